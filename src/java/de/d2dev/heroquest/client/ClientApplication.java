@@ -7,6 +7,9 @@ import java.awt.event.KeyListener;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+
+import javax.swing.SwingUtilities;
 
 import de.d2dev.fourseasons.resource.ResourceLocator;
 import de.d2dev.fourseasons.script.ScriptEngine;
@@ -22,6 +25,8 @@ import de.d2dev.heroquest.engine.game.Map;
 import de.d2dev.heroquest.engine.game.Monster.MonsterType;
 import de.d2dev.heroquest.engine.game.action.*;
 import de.d2dev.heroquest.engine.game.classical.ClassicalGameContext;
+import de.d2dev.heroquest.engine.game.event.GameEventBus;
+import de.d2dev.heroquest.engine.game.event.ListenerEventHandler;
 import de.d2dev.heroquest.engine.rendering.Renderer;
 import de.d2dev.heroquest.engine.rendering.quads.QuadRenderModel;
 import de.d2dev.heroquest.engine.sound.JmeSoundPlayer;
@@ -29,8 +34,6 @@ import de.schlichtherle.truezip.file.TFile;
 
 import java.util.*;
 
-import javax.swing.SwingUtilities;
-
 import org.apache.log4j.BasicConfigurator;
 import org.apache.log4j.Logger;
 
@@ -64,7 +67,18 @@ public class ClientApplication implements KeyListener, WindowListener {
     private Hero activeHero = null;
     
     private Monster activeMonster = null;
-    private List<GameAction> actionsToPerform;
+    
+    /*
+     * Runs all game logic, off the Swing event thread
+     */
+    private ActionExecutor executor;
+    
+    /*
+     * Time between two monster actions, so the player can follow them
+     */
+    private static final long MONSTER_STEP_NANOS = 10000000L;
+    
+    private static final int FRAMES_PER_SECOND = 60;
     
 	/**************************************************************************************
 	 * 
@@ -111,9 +125,14 @@ public class ClientApplication implements KeyListener, WindowListener {
     	this.game = new ClassicalGameContext( map );
     	this.map.setContext( this.game );
     	
-    	// sound player setup
+    	// game logic thread
+    	this.executor = new ActionExecutor( this.game );
+    	this.executor.setStepNanos( MONSTER_STEP_NANOS );
+    	this.executor.setFrameRate( FRAMES_PER_SECOND );
+    	
+    	// sound player setup - plays on its own thread
     	this.soundPlayer = new JmeSoundPlayer( this.resources.assestManager );
-    	this.game.addListener( soundPlayer );
+    	this.map.getEventBus().subscribe( new ListenerEventHandler( this.soundPlayer ), GameEventBus.Mode.ASYNCHRONOUS );
     	
     	// initialize the ai system - add all existing monsters 
         this.aiSystem = new AISystem(map);
@@ -181,7 +200,8 @@ public class ClientApplication implements KeyListener, WindowListener {
         this.renderTarget = new QuadRenderModel(map.getWidth(), map.getHeight());
 
         this.renderer = new Renderer(map, renderTarget, this.resourceFinder, this.fogOfWar);
-        this.map.addListener(renderer);
+        // the renderer collects the changes of each action, render() applies them
+        this.map.getEventBus().subscribe( this.renderer, GameEventBus.Mode.BATCHED );
         this.renderer.render();
 
         this.window = new ClientWindow( this.resources, this.settings, this.renderer.getRederTarget() );
@@ -190,6 +210,32 @@ public class ClientApplication implements KeyListener, WindowListener {
 
         this.window.addKeyListener(this);
         this.window.addWindowListener(this);
+        
+        // render the changes of the game logic thread, at most once per frame
+        final Runnable renderStep = new Runnable() {
+			
+			@Override
+			public void run() {
+				ClientApplication.this.renderer.render();
+				ClientApplication.this.window.repaint();
+			}
+		};
+        
+        this.executor.addListener(new ActionBatchListener() {
+			
+			@Override
+			public void onBatchExecuted(int actions, int tasks) {
+				// the render model is painted on the swing thread and the renderer reads the
+				// map, so render there while the game logic waits
+				try {
+					SwingUtilities.invokeAndWait( renderStep );
+				} catch (InterruptedException e) {	// shutting down
+					Thread.currentThread().interrupt();
+				} catch (InvocationTargetException e) {
+					Logger.getLogger( ClassicalGameContext.GAME_LOGGER_NAME ).error( "Rendering failed", e.getCause() );
+				}
+			}
+		});
     }
 
     public void heroesRound() {
@@ -203,6 +249,8 @@ public class ClientApplication implements KeyListener, WindowListener {
     
 	@Override
 	public void windowClosing(WindowEvent arg0) {
+		this.executor.shutdown();
+		
 		try {
 			this.settings.save();
 		} catch (IOException e) {
@@ -215,6 +263,8 @@ public class ClientApplication implements KeyListener, WindowListener {
 	 * 
 	 * 							      LET THE MONSTERS ACT!
 	 * 
+	 * 			   All called on the game logic thread, see ActionExecutor
+	 * 
 	 **************************************************************************************/    
     
     public void startMonstersRound() {
@@ -224,16 +274,6 @@ public class ClientApplication implements KeyListener, WindowListener {
     	this.aiSystem.startMonstersRound();
     	
     	// Get the first monster to act
-        this.activeMonster = this.aiSystem.getNextMonster();
-        
-        if ( this.activeMonster == null ) {	// nothing to do
-        	this.endMonstersRound();
-        	return;
-        }
-        
-        // Let the first monster perform actions!
-        this.actionsToPerform = this.activeMonster.getAIController().getActions();
-        
         this.performMonsterActions();
     }
     
@@ -244,61 +284,31 @@ public class ClientApplication implements KeyListener, WindowListener {
     	this.heroesRound = true;
     }
 
+    /**
+     * Let the next monster act. Its actions are executed one per step, then the monster
+     * after it gets its turn.
+     */
     public void performMonsterActions() {
-    	// monster perform action
-    	if ( !this.actionsToPerform.isEmpty() ) { 
-            this.performAction( this.actionsToPerform.get(0) );
-            this.actionsToPerform.remove(0);        	
-        }    	
-    	// the current monsters has all actions performed
-    	else {
-        	// Get the next monster perform actions!
-            this.activeMonster = this.aiSystem.getNextMonster();        	
-
-        	if ( this.activeMonster != null ) {
-        		this.actionsToPerform = this.activeMonster.getAIController().getActions();
-        		
-        		this.performMonsterActions();
-        	} 
-        	// no more monsters - end monsters round
-        	else {
-            	this.endMonstersRound();
-            	return;        		
-        	}
-        } 
-    }
-
-    public void performAction(GameAction action) {
-    	// perform the action
-        try {
-        	this.game.execute( action );
-        } catch (GameStateException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-        }
-
-        this.renderer.render();
-        this.window.repaint();
-        
-        // short pause
-        try {
-            Thread.sleep(10);
-        } catch (InterruptedException ex) {
-        	ex.printStackTrace();
-        }
-
-        // what to do next?
-        SwingUtilities.invokeLater(new Runnable() {
-
-            @Override
-            public void run() {
-            	if ( !ClientApplication.this.heroesRound) {
-            		ClientApplication.this.performMonsterActions();
-            	}
-            }
-        });
+    	this.activeMonster = this.aiSystem.getNextMonster();
+    	
+    	// no more monsters - end monsters round
+    	if ( this.activeMonster == null ) {
+    		this.endMonstersRound();
+    		return;
+    	}
+    	
+    	this.executor.submit( this.aiSystem.getActions( this.activeMonster ) );
+    	this.executor.execute( this.nextMonster );
     }
     
+    private final Runnable nextMonster = new Runnable() {
+		
+		@Override
+		public void run() {
+			ClientApplication.this.performMonsterActions();
+		}
+	};
+    
 	/**************************************************************************************
 	 * 
 	 * 								INPUT METHODS
@@ -431,8 +441,18 @@ public class ClientApplication implements KeyListener, WindowListener {
     }
 
     @Override
-    public void keyPressed(KeyEvent e) {
-    	
+    public void keyPressed(final KeyEvent e) {
+    	// the game state belongs to the game logic thread
+    	this.executor.execute(new Runnable() {
+			
+			@Override
+			public void run() {
+				ClientApplication.this.handleKeyEvent(e);
+			}
+		});
+    }
+    
+    public void handleKeyEvent(KeyEvent e) {
         if (this.heroesRound) {
         	this.handleHeroesRoundKeyEvent(e);
         }
@@ -449,9 +469,6 @@ public class ClientApplication implements KeyListener, WindowListener {
 
             }
         }
-
-        this.renderer.render();
-        this.window.repaint();
     }
 
     @Override
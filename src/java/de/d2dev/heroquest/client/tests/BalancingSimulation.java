@@ -0,0 +1,96 @@
+package de.d2dev.heroquest.client.tests;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import de.d2dev.fourseasons.script.ScriptEngine;
+import de.d2dev.heroquest.editor.script.EditorLuaScriptDecomposer;
+import de.d2dev.heroquest.editor.script.LuaMapCreatorFunction;
+import de.d2dev.heroquest.engine.files.HqMapFile;
+import de.d2dev.heroquest.engine.game.Hero.HeroType;
+import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.Monster.MonsterType;
+import de.d2dev.heroquest.engine.game.classical.ClassicalGameContext;
+import de.d2dev.heroquest.engine.simulation.HuntingPolicy;
+import de.d2dev.heroquest.engine.simulation.Scenario;
+import de.d2dev.heroquest.engine.simulation.SimulationReport;
+import de.d2dev.heroquest.engine.simulation.Simulator;
+import de.schlichtherle.truezip.file.TFile;
+
+/**
+ * Plays many games on a map without rendering and prints the results.<br>
+ * Arguments: map (lua template or hqmap), number of games, number of threads (0 for all processors), seed.
+ * Maps without heroes or monsters get the test units of the client.
+ * @author Sebastian Bordt
+ *
+ */
+public class BalancingSimulation extends TestMap {
+	
+	private ScriptEngine scriptEngine;
+	
+	public BalancingSimulation() throws Exception {
+		super();
+		
+		this.scriptEngine = ScriptEngine.createDefaultScriptEngine( this.resources.resourceFinder, new EditorLuaScriptDecomposer() );
+	}
+	
+	public Scenario load(String path) throws Exception {
+		Scenario scenario;
+		
+		if ( path.endsWith( ".lua" ) ) {
+			LuaMapCreatorFunction function = (LuaMapCreatorFunction) scriptEngine.load( new TFile( path ) ).getFunctions().get(0);
+			Map map = function.createMap();
+			
+			scenario = new Scenario( map );
+		} else {
+			scenario = new Scenario( new HqMapFile( path ) );
+		}
+		
+		// the test units of the client
+		if ( scenario.getNumHeroes() == 0 ) {
+			HeroType[] heroTypes = { HeroType.BARBARIAN, HeroType.DWARF, HeroType.ALB, HeroType.WIZARD };
+			
+			for (int i=0; i<heroTypes.length; i++) {
+				scenario.addHero( heroTypes[i], 0, i );
+			}
+		}
+		
+		if ( scenario.getNumMonsters() == 0 ) {
+			MonsterType[] monsterTypes = { MonsterType.GOBLIN, MonsterType.ORC, MonsterType.FIMIR, MonsterType.SKELETON,
+	    			MonsterType.ZOMBIE, MonsterType.MUMMY, MonsterType.CHAOS_WARRIOR, MonsterType.GARGOYLE };
+			
+			for (int i=0; i<monsterTypes.length; i++) {
+				scenario.addMonster( monsterTypes[i], 34, 10 + i );
+			}
+		}
+		
+		return scenario;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if ( args.length < 1 ) {
+			System.out.println( "Usage: BalancingSimulation <map.lua|map.hqmap> [games] [threads] [seed]" );
+			return;
+		}
+		
+		int games = args.length > 1 ? Integer.parseInt( args[1] ) : 1000;
+		int threads = args.length > 2 ? Integer.parseInt( args[2] ) : 0;
+		long seed = args.length > 3 ? Long.parseLong( args[3] ) : System.nanoTime();
+		
+		// no log output for every attack
+		Logger.getLogger( ClassicalGameContext.GAME_LOGGER_NAME ).setLevel( Level.WARN );
+		
+		BalancingSimulation simulation = new BalancingSimulation();
+		
+		Simulator simulator = new Simulator( simulation.load( args[0] ), HuntingPolicy.FACTORY );
+		simulator.setThreads( threads );
+		
+		// warm up
+		simulator.run( Math.min( games, 100 ), seed );
+		
+		SimulationReport report = simulator.run( games, seed );
+		
+		System.out.println( "seed " + seed );
+		System.out.println( report );
+	}
+}
@@ -0,0 +1,119 @@
+package de.d2dev.heroquest.client.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import de.d2dev.fourseasons.script.ScriptEngine;
+import de.d2dev.heroquest.editor.script.EditorLuaScriptDecomposer;
+import de.d2dev.heroquest.editor.script.LuaMapCreatorFunction;
+import de.d2dev.heroquest.engine.ai.FindPath;
+import de.d2dev.heroquest.engine.ai.astar.GridSearch;
+import de.d2dev.heroquest.engine.game.Map;
+import de.schlichtherle.truezip.file.TFile;
+
+/**
+ * Compares the A* grid search with the jump point search on all map templates:
+ * searches paths between random free fields with both, checks that the lengths are
+ * the same and prints the expanded nodes and running times.
+ * @author Sebastian Bordt
+ *
+ */
+public class PathfindingComparison extends TestMap {
+	
+	private static final int NUM_SEARCHES = 2000;
+	
+	private ScriptEngine scriptEngine;
+	
+	private int mismatches = 0;
+	
+	public PathfindingComparison() throws Exception {
+		super();
+		
+		this.scriptEngine = ScriptEngine.createDefaultScriptEngine( this.resources.resourceFinder, new EditorLuaScriptDecomposer() );
+	}
+	
+	public void compareAll(TFile folder) throws Exception {
+		for (TFile file : folder.listFiles()) {
+			if ( file.isDirectory() )
+				this.compareAll( file );
+			else if ( file.getName().endsWith( ".lua" ) )
+				this.compare( file );
+		}
+	}
+	
+	public void compare(TFile mapCreatorScript) throws Exception {
+		Map map;
+		
+		try {
+			LuaMapCreatorFunction function = (LuaMapCreatorFunction) scriptEngine.load( mapCreatorScript ).getFunctions().get(0);
+			map = function.createMap();
+		} catch (Exception e) {
+			System.out.println( mapCreatorScript.getName() + ": no map (" + e.getMessage() + ")" );
+			return;
+		}
+		
+		List<Integer> free = new ArrayList<Integer>();
+		
+		for (int x=0; x<map.getWidth(); x++) {
+			for (int y=0; y<map.getHeight(); y++) {
+				if ( !map.isBlocked( x, y ) )
+					free.add( map.getFieldIndex( x, y ) );
+			}
+		}
+		
+		if ( free.size() < 2 )
+			return;
+		
+		FindPath aStar = new FindPath( map );
+		FindPath jumping = new FindPath( map );
+		jumping.setJumpPointSearch( true );
+		
+		Random random = new Random( 0 );
+		long aStarExpansions = 0, jumpingExpansions = 0;
+		long aStarNanos = 0, jumpingNanos = 0;
+		int found = 0;
+		
+		for (int i=0; i<NUM_SEARCHES; i++) {
+			int start = free.get( random.nextInt( free.size() ) );
+			int goal = free.get( random.nextInt( free.size() ) );
+			
+			long t0 = System.nanoTime();
+			boolean aStarFound = search( aStar, start, goal );
+			long t1 = System.nanoTime();
+			boolean jumpingFound = search( jumping, start, goal );
+			long t2 = System.nanoTime();
+			
+			aStarNanos += t1 - t0;
+			jumpingNanos += t2 - t1;
+			aStarExpansions += aStar.getGridSearch().getExpansions();
+			jumpingExpansions += jumping.getGridSearch().getExpansions();
+			
+			if ( aStarFound != jumpingFound || aStar.getGridSearch().getPathLength() != jumping.getGridSearch().getPathLength() ) {
+				this.mismatches++;
+				System.out.println( mapCreatorScript.getName() + ": different paths from " + start + " to " + goal );
+			}
+			
+			if ( aStarFound )
+				found++;
+		}
+		
+		System.out.println( mapCreatorScript.getName() + " (" + map.getWidth() + "x" + map.getHeight() + "): "
+				+ found + "/" + NUM_SEARCHES + " paths, expansions A* " + aStarExpansions + " / JPS " + jumpingExpansions
+				+ ", time A* " + aStarNanos / 1000000 + "ms / JPS " + jumpingNanos / 1000000 + "ms" );
+	}
+	
+	private static boolean search(FindPath findPath, int start, int goal) {
+		GridSearch search = findPath.getGridSearch();
+		
+		return search.search( start, goal, findPath );
+	}
+
+	public static void main(String[] args) throws Exception {
+		PathfindingComparison comparison = new PathfindingComparison();
+		
+		comparison.compareAll( new TFile( comparison.resources.dropbox.dropboxFolderPath + "/script/map templates" ) );
+		
+		System.out.println( comparison.mismatches == 0 ? "All path lengths are equal." : comparison.mismatches + " mismatches!" );
+	}
+}
@@ -8,11 +8,15 @@ import de.d2dev.heroquest.engine.game.Direction2D;
 import de.d2dev.heroquest.engine.game.Field;
 import de.d2dev.heroquest.engine.game.Hero;
 import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.MapSnapshot;
+import de.d2dev.heroquest.engine.game.Monster;
+import de.d2dev.heroquest.engine.game.Neighbourhood;
 import de.d2dev.heroquest.engine.game.Unit;
 import de.d2dev.heroquest.engine.game.action.ActionBuilder;
 import de.d2dev.heroquest.engine.game.action.GameAction;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.PriorityQueue;
 
@@ -25,19 +29,59 @@ public class AIMonsterController implements AIController {
     private Unit unit;
     private Map map;
     private PriorityQueue<Target> targets;
-    private double agression = 1;
+    /** extra costs for walking over other monsters, see {@link AIUtility} */
+    private int unitCosts = AIUtility.DEFAULT_UNIT_COSTS;
+    /** searches each hero separately, created on first use if there is no ai system */
+    private AIUtility utility;
+    /** shares its searches for each hero separately, null for an own {@link AIUtility} */
+    private AISystem system;
+    /** shared distances to the heroes, null to search each hero separately */
+    private HeroDistanceField distanceField;
 
     public AIMonsterController(Unit unit, Map map) {
+        this(unit, map, null);
+    }
+
+    public AIMonsterController(Unit unit, Map map, HeroDistanceField distanceField) {
+        this(unit, map, distanceField, null);
+    }
+
+    /**
+     * @param unit
+     * @param map
+     * @param distanceField shared distances to the heroes, null to search each hero separately
+     * @param system shares its searches for each hero separately (with a path cache per
+     * thread), null for an own {@link AIUtility}
+     */
+    public AIMonsterController(Unit unit, Map map, HeroDistanceField distanceField, AISystem system) {
 
         this.unit = unit;
         this.map = map;
         this.targets = new PriorityQueue<Target>();
+        this.distanceField = distanceField;
+        this.system = system;
+    }
+
+    public int getUnitCosts() {
+        return unitCosts;
+    }
+
+    /**
+     * How many extra steps the monster accepts for a way over other monsters,
+     * which then have to make room.
+     * @param unitCosts
+     */
+    public void setUnitCosts(int unitCosts) {
+        this.unitCosts = unitCosts;
     }
 
 //*************************Interface AIController*******************************
     @Override
     public List<GameAction> getActions() {
         System.out.println("Monster wurde aufgerufen: "+ unit.getName());
+        if (distanceField != null) {
+            return steerByFlowField();
+        }
         //Fill the priority queue with heroes
         findWay();
         //Get Path to next Target
@@ -59,20 +103,111 @@ public class AIMonsterController implements AIController {
      */
     private void findWay() {
         targets.clear();
+        AIUtility utility = getUtility();
         List<Hero> heroes = map.getHeroes();
         System.out.println("Heroes on map: "+heroes.size());
-        while (!heroes.isEmpty()) {
-            //Starting with first heroe
-            Unit nextUnit = heroes.get(0);
-            //Get shortest unblocked Path
-            Target target = AIUtility.getTarget(this.map, this.unit, nextUnit, agression);
-            targets.add(target);
-            heroes.remove(0);
+        for (Hero nextUnit : heroes) {
+            //Get best Path, possibly over other monsters
+            utility.setUnitCosts(unitCosts);
+            Target target = utility.findWay(this.unit, nextUnit);
+            if (target != null) {
+                targets.add(target);
+            }
         }
         
     }
 
 
+    /**
+     * Follows the flow field of the shared distance field towards the nearest hero, one
+     * lookup per step, as far as the monster can walk. If the way is blocked by other
+     * units (or the way over them is much shorter) the monster takes the best way over
+     * units instead, see {@link #walkOverUnits(Hero)}.
+     */
+    private List<GameAction> steerByFlowField() {
+        int blockedDistance = distanceField.getDistance(unit, true);
+        int passableDistance = distanceField.getDistance(unit, false);
+        ActionBuilder actionBuilder = new ActionBuilder(unit);
+        if (passableDistance < 0) {
+            return actionBuilder.getActions();
+        }
+        if (blockedDistance < 0 || blockedDistance > passableDistance + unitCosts) {
+            return walkOverUnits(distanceField.getNearestHero(unit.getField().getIndex(), false));
+        }
+        MapSnapshot snapshot = distanceField.getSnapshot();
+        Neighbourhood neighbourhood = map.getNeighbourhood();
+
+        int steps = getSteps();
+        int index = unit.getField().getIndex();
+        int k = distanceField.getFlow(unit, true);
+        for (int i = 0; i < steps && k >= 0; i++) {
+            int next = neighbourhood.getNeighbour(index, k);
+            //Stop in front of the hero
+            if (snapshot.isBlocked(next)) {
+                break;
+            }
+            actionBuilder.addMove(Neighbourhood.getDirection(k));
+            index = next;
+            k = distanceField.getFlow(index, true);
+        }
+        return actionBuilder.getActions();
+    }
+
+    /**
+     * Walks towards the hero on the best way over other units, found by one weighted
+     * search of the {@link AIUtility} (cached if shared), and stops in front
+     * of the first unit that has to make room.
+     */
+    private List<GameAction> walkOverUnits(Hero hero) {
+        ActionBuilder actionBuilder = new ActionBuilder(unit);
+        AIUtility utility = getUtility();
+        utility.setUnitCosts(unitCosts);
+        Target target = utility.findWay(unit, hero);
+        if (target == null) {
+            return actionBuilder.getActions();
+        }
+        Neighbourhood neighbourhood = map.getNeighbourhood();
+
+        int steps = getSteps();
+        Iterator<Field> path = target.getPathToMonster().iterator();
+        int index = path.next().getIndex();
+        for (int i = 0; i < steps && path.hasNext(); i++) {
+            int next = path.next().getIndex();
+            if (map.getOccupancy().isBlocked(next)) {
+                break;
+            }
+            for (int k : Neighbourhood.getSlots(neighbourhood.getMask(index) & Neighbourhood.DIRECT)) {
+                if (neighbourhood.getNeighbour(index, k) == next) {
+                    actionBuilder.addMove(Neighbourhood.getDirection(k));
+                    break;
+                }
+            }
+            index = next;
+        }
+        return actionBuilder.getActions();
+    }
+
+    /**
+     * The searches for each hero separately: those of the ai system for the calling
+     * thread, else an own one.
+     */
+    private AIUtility getUtility() {
+        if (system != null) {
+            return system.getPathfinding();
+        }
+        if (utility == null) {
+            utility = new AIUtility(map, unitCosts);
+        }
+        return utility;
+    }
+
+    /**
+     * How many fields the unit walks at most.
+     */
+    private int getSteps() {
+        return unit.isMonster() ? ((Monster) unit).getFieldTempo() : Integer.MAX_VALUE;
+    }
+
     private List<GameAction> traversePath2Action(ArrayDeque<Field> actionPath) {
 
         Field start = actionPath.getFirst();
@@ -4,48 +4,575 @@
  */
 package de.d2dev.heroquest.engine.ai;
 
+import de.d2dev.heroquest.engine.ai.astar.CooperativeAStar;
+import de.d2dev.heroquest.engine.ai.astar.GridCommunicator;
+import de.d2dev.heroquest.engine.ai.astar.GridHeuristic;
+import de.d2dev.heroquest.engine.ai.astar.ReservationTable;
+import de.d2dev.heroquest.engine.ai.mcts.MonteCarloPlanner;
+import de.d2dev.heroquest.engine.game.Hero;
 import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.MapSnapshot;
 import de.d2dev.heroquest.engine.game.Monster;
+import de.d2dev.heroquest.engine.game.Neighbourhood;
 import de.d2dev.heroquest.engine.game.Unit;
+import de.d2dev.heroquest.engine.game.action.ActionBuilder;
+import de.d2dev.heroquest.engine.game.action.AttackAction;
+import de.d2dev.heroquest.engine.game.action.GameAction;
+import de.d2dev.heroquest.engine.game.action.MoveAction;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  *
  * @author Simon + Toni
  */
 public class AISystem {
-    
+
     private Map map;
 
+    /**
+     * Distances to the heroes, shared by all monsters.
+     */
+    private HeroDistanceField distanceField;
+
+    /**
+     * Areas and doors of the map for long distance searches. The searches of the
+     * planning threads use own copies of it.
+     */
+    private RoomGraph roomGraph;
+
+    /**
+     * Searches for single heroes, shared by all monsters planned outside of the
+     * planning threads. Caches its paths.
+     */
+    private AIUtility pathfinding;
+
+    /**
+     * The own searches of each planning thread, see {@link #enableParallelPlanning(int)}.
+     * An {@link AIUtility} with its search and path caches must not be shared between threads.
+     */
+    private final ThreadLocal<AIUtility> plannerPathfinding = new ThreadLocal<AIUtility>();
+    private final List<AIUtility> plannerPathfindings = new ArrayList<AIUtility>();
+
+    /**
+     * The monsters of this round, sorted in the order they act. They are planned and
+     * executed in this order.
+     */
+    private List<MonsterPlan> schedule = new ArrayList<MonsterPlan>();
+    /** the monster in the schedule to act next */
+    private int next;
+
+    /**
+     * Field indices where monsters that already acted this round end up.
+     */
+    private List<Integer> reservedFields = new ArrayList<Integer>();
+
+    /**
+     * Plans the monsters at the start of a round in parallel, {@code null} for serial planning.
+     */
+    private ExecutorService planners;
+
+    /**
+     * Plan the monsters one after another around each others ways, see
+     * {@link #setCooperativePlanning(boolean)}.
+     */
+    private boolean cooperativePlanning = false;
+    private ReservationTable reservations;
+    private CooperativeAStar cooperativeAStar;
+    /** start fields of monsters planned to move away this round */
+    private BitSet vacatedFields;
+
+    /**
+     * Plans the turns of new monsters by Monte Carlo tree search, {@code null} for
+     * the {@link AIMonsterController}.
+     */
+    private MonteCarloPlanner monteCarloPlanner;
+
+    /*
+     * Statistics of the last round
+     */
+    private long roundStart;
+    private long planningNanos;
+    private long roundNanos;
+    private int plannedMonsters;
+    private int replannedMonsters;
+    private int cooperativeExpansions;
+
+    /**
+     * A monster scheduled for this round together with its planned actions.
+     */
+    private class MonsterPlan implements Comparable<MonsterPlan> {
+
+        private final Monster monster;
+        /** position of the monster in the maps registry, decides between equal monsters */
+        private final int order;
+        /** distance to the nearest hero, Integer.MAX_VALUE if there is none */
+        private final int distance;
+        private List<GameAction> actions;
+        /** field indices the monster passes, the last one is where it ends up */
+        private int[] route;
+
+        private MonsterPlan(Monster monster, int order) {
+            this.monster = monster;
+            this.order = order;
+            int d = distanceField.getDistance(monster, false);
+            this.distance = d < 0 ? Integer.MAX_VALUE : d;
+        }
+
+        private void plan() {
+            actions = monster.getAIController().getActions();
+            route = getRoute(monster, actions);
+        }
+
+        /**
+         * Whether a unit the monster is to attack has been killed since planning.
+         */
+        private boolean attacksKilledUnit() {
+            for (GameAction action : actions) {
+                if (action instanceof AttackAction && ((AttackAction) action).getUnitToAttack().getField() == null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Closest monsters first, then the faster, then the stronger ones, then the
+         * one placed on the map first. No two plans are equal.
+         */
+        @Override
+        public int compareTo(MonsterPlan o) {
+            if (distance != o.distance) {
+                return distance < o.distance ? -1 : 1;
+            }
+            if (monster.getFieldTempo() != o.monster.getFieldTempo()) {
+                return o.monster.getFieldTempo() - monster.getFieldTempo();
+            }
+            if (monster.getNumAttackDices() != o.monster.getNumAttackDices()) {
+                return o.monster.getNumAttackDices() - monster.getNumAttackDices();
+            }
+            return order - o.order;
+        }
+    }
+
     public AISystem(Map map) {
         this.map = map;
-    } 
-    
+        this.distanceField = new HeroDistanceField(map);
+        this.map.addListener(distanceField);
+        this.roomGraph = new RoomGraph(map);
+        this.map.addListener(roomGraph);
+        this.pathfinding = new AIUtility(map);
+        this.pathfinding.enablePathCache();
+        this.pathfinding.setRoomGraph(roomGraph);
+    }
+
     public AIController creatAIController(Unit unit){
-        return new AIMonsterController(unit,map);
+        if (monteCarloPlanner != null) {
+            return new MonteCarloController(unit, monteCarloPlanner);
+        }
+        return new AIMonsterController(unit,map,distanceField,this);
+    }
+
+    public HeroDistanceField getDistanceField() {
+        return distanceField;
+    }
+
+    public RoomGraph getRoomGraph() {
+        return roomGraph;
+    }
+
+    /**
+     * The searches for single heroes of the calling thread, e.g. to read the statistics
+     * of its path caches. Each planning thread has its own, all other threads share one.
+     * @return
+     */
+    public AIUtility getPathfinding() {
+        AIUtility own = plannerPathfinding.get();
+        return own != null ? own : pathfinding;
     }
-    
+
     /**
-     * Inform the ai system that a monsters round begins. 
+     * Inform the ai system that a monsters round begins. All monsters under
+     * ai control are scheduled and planned right away.
      */
     public void startMonstersRound() {
+        roundStart = System.nanoTime();
+        // the heroes have moved and the map might have been changed - start from scratch
+        distanceField.invalidate();
+        schedule.clear();
+        next = 0;
+        reservedFields.clear();
+        replannedMonsters = 0;
+
+        List<Monster> monsters = map.getMonsters();
+        for (int i = 0; i < monsters.size(); i++) {
+            if (monsters.get(i).getAIController() != null) {
+                schedule.add(new MonsterPlan(monsters.get(i), i));
+            }
+        }
+        Collections.sort(schedule);
+        // plan the whole round against the current map - no one has moved yet
+        distanceField.prepare();
+        if (cooperativePlanning) {
+            planCooperatively();
+        } else if (planners != null && schedule.size() > 1) {
+            planInParallel();
+        } else {
+            for (MonsterPlan plan : schedule) {
+                plan.plan();
+            }
+        }
+        plannedMonsters = schedule.size();
+        planningNanos = System.nanoTime() - roundStart;
     }
-    
+
     /**
      * During a monsters round, this method determines
      * the next monster to act. Each monster can only
-     * act once. To get the monsters actions, its 
+     * act once. To get the monsters actions, its
      * {@link AIController} will be asked. This methods allows the ai
      * to determine the order in which the monsters act.
      * @return {@code null} if there are no more monsters to do a thing!
      */
     public Monster getNextMonster() {
-    	return null;
+        while (next < schedule.size()) {
+            MonsterPlan plan = schedule.get(next);
+            // killed meanwhile?
+            if (plan.monster.getField() == null) {
+                next++;
+                continue;
+            }
+            // the monsters before have moved and attacked - plan again if our way
+            // crosses theirs or our target is dead
+            if (conflicts(plan.route) || plan.attacksKilledUnit()) {
+                long start = System.nanoTime();
+                plan.plan();
+                planningNanos += System.nanoTime() - start;
+                replannedMonsters++;
+            }
+            return plan.monster;
+        }
+        return null;
+    }
+
+    /**
+     * The actions the given monster is to perform in this round. The monster should
+     * have been returned by {@link #getNextMonster()} before. Asks the monsters
+     * {@link AIController} if the monster has not been planned in this round.
+     * @param monster
+     * @return
+     */
+    public List<GameAction> getActions(Monster monster) {
+        MonsterPlan plan = next < schedule.size() ? schedule.get(next) : null;
+        if (plan == null || plan.monster != monster) {
+            return monster.getAIController().getActions();
+        }
+        next++;
+        reservedFields.add(plan.route[plan.route.length - 1]);
+        return plan.actions;
     }
-    
+
     /**
      * Inform the ai system that a monsters round ends.
      */
-    public void endMonstersRound() {	
+    public void endMonstersRound() {
+        schedule.clear();
+        next = 0;
+        roundNanos = System.nanoTime() - roundStart;
+    }
+
+    /**
+     * Plan the monsters at the start of a round on several threads. While planning,
+     * the {@link AIController}s must only read the map; the map is not changed
+     * before all plans are done. The controllers must not share mutable search
+     * state between threads: caches, open lists or cost settings. Each planning
+     * thread gets its own {@link AIUtility} with its own path cache, see
+     * {@link #getPathfinding()}. The plans are used in the same order as with
+     * serial planning, conflicts are resolved the same way.
+     * @param threads number of planning threads, 0 for one per processor
+     */
+    public void enableParallelPlanning(int threads) {
+        disableParallelPlanning();
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        planners = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                final AIUtility own = createPlannerPathfinding();
+                Thread thread = new Thread(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        plannerPathfinding.set(own);
+                        r.run();
+                    }
+                }, "ai planner");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Back to planning on the calling thread. Stops the planning threads.
+     */
+    public void disableParallelPlanning() {
+        if (planners != null) {
+            planners.shutdown();
+            planners = null;
+            releasePlannerPathfindings();
+        }
+    }
+
+    /**
+     * Monsters created from now on plan their turns by Monte Carlo tree search, see
+     * {@link MonteCarloPlanner}. They walk and attack.
+     * @param budgetNanos time per monster and turn, e.g. by difficulty level
+     * @param threads number of search threads, 0 for one per processor
+     */
+    public void enableMonteCarloPlanning(long budgetNanos, int threads) {
+        disableMonteCarloPlanning();
+        monteCarloPlanner = new MonteCarloPlanner(map, budgetNanos, threads);
+    }
+
+    /**
+     * Monsters created from now on get an {@link AIMonsterController} again. Monsters
+     * with a {@link MonteCarloController} keep planning on a single thread.
+     */
+    public void disableMonteCarloPlanning() {
+        if (monteCarloPlanner != null) {
+            monteCarloPlanner.shutdown();
+            monteCarloPlanner = null;
+        }
+    }
+
+    /**
+     * The planner of the monsters created with Monte Carlo planning enabled, e.g. to
+     * read its rollouts per second.
+     * @return {@code null} if disabled
+     */
+    public MonteCarloPlanner getMonteCarloPlanner() {
+        return monteCarloPlanner;
+    }
+
+    /**
+     * Plan the monsters cooperatively: in the order they act, each monster searches its
+     * way in space and time around the reservations of the monsters before
+     * ({@link CooperativeAStar}) and reserves its own. Fields left by monsters before are
+     * free, fields where they stop are taken. The search looks as many steps ahead as the
+     * monster can walk. Monsters without a way fall back to their {@link AIController}.
+     * Cooperative planning is done on the calling thread, even if parallel planning is enabled.
+     * @param cooperativePlanning
+     */
+    public void setCooperativePlanning(boolean cooperativePlanning) {
+        this.cooperativePlanning = cooperativePlanning;
+    }
+
+    public boolean isCooperativePlanning() {
+        return cooperativePlanning;
+    }
+
+    /**
+     * Time spent planning in the last round, including replanning.
+     * @return nanoseconds
+     */
+    public long getPlanningNanos() {
+        return planningNanos;
+    }
+
+    /**
+     * Duration of the last round from start to end.
+     * @return nanoseconds
+     */
+    public long getRoundNanos() {
+        return roundNanos;
+    }
+
+    /**
+     * Number of monsters planned at the start of the last round.
+     * @return
+     */
+    public int getPlannedMonsters() {
+        return plannedMonsters;
+    }
+
+    /**
+     * Number of monsters that had to be planned again during the last round.
+     * @return
+     */
+    public int getReplannedMonsters() {
+        return replannedMonsters;
+    }
+
+    /**
+     * Number of states the cooperative searches expanded in the last round.
+     * @return
+     */
+    public int getCooperativeExpansions() {
+        return cooperativeExpansions;
+    }
+
+//******************Private*************************
+    private void planCooperatively() {
+        if (cooperativeAStar == null) {
+            reservations = new ReservationTable(map.getOccupancy().getIndexCapacity());
+            cooperativeAStar = new CooperativeAStar(map);
+            vacatedFields = new BitSet(map.getOccupancy().getIndexCapacity());
+        }
+        reservations.clear();
+        vacatedFields.clear();
+        cooperativeExpansions = 0;
+
+        final MapSnapshot snapshot = distanceField.getSnapshot();
+        GridCommunicator communicator = new GridCommunicator() {
+
+            @Override
+            public boolean canEnter(int index) {
+                return !snapshot.isBlocked(index) || vacatedFields.get(index);
+            }
+        };
+        // the distance to the nearest hero never overestimates the distance to a certain hero
+        GridHeuristic heuristic = new GridHeuristic() {
+
+            @Override
+            public int estimate(int index) {
+                return Math.max(distanceField.getDistance(index, false), 0);
+            }
+        };
+
+        // in the order the monsters act, so each finds the fields of the ones before vacated
+        int time = 0;
+        for (int owner = 0; owner < schedule.size(); owner++) {
+            MonsterPlan plan = schedule.get(owner);
+            int start = plan.monster.getField().getIndex();
+            Hero hero = distanceField.getNearestHero(start, false);
+            int tempo = plan.monster.getFieldTempo();
+            if (hero == null || !cooperativeAStar.search(start, hero.getField().getIndex(), time, tempo + 1,
+                    communicator, heuristic, reservations, owner)) {
+                cooperativeExpansions += cooperativeAStar.getExpansions();
+                plan.plan();
+                continue;
+            }
+            cooperativeExpansions += cooperativeAStar.getExpansions();
+
+            // stop in front of the hero and after as many steps as the monster can walk
+            int last = cooperativeAStar.getPathLength() - 1;
+            if (cooperativeAStar.hasReachedGoal()) {
+                last--;
+            }
+            last = Math.min(last, tempo);
+            cooperativeAStar.reservePath(reservations, time, last + 1, owner);
+
+            ActionBuilder actionBuilder = new ActionBuilder(plan.monster);
+            for (int i = 1; i <= last; i++) {
+                int from = cooperativeAStar.getPathIndex(i - 1);
+                int to = cooperativeAStar.getPathIndex(i);
+                // the monsters act one after another, so there is no point in waiting
+                if (from == to) {
+                    continue;
+                }
+                for (int k = 0; k < 4; k++) {
+                    if (map.getNeighbourhood().getNeighbour(from, k) == to) {
+                        actionBuilder.addMove(Neighbourhood.getDirection(k));
+                        break;
+                    }
+                }
+            }
+            plan.actions = actionBuilder.getActions();
+            plan.route = getRoute(plan.monster, plan.actions);
+            if (plan.route.length > 1) {
+                vacatedFields.set(start);
+            }
+            time += last;
+        }
+    }
+
+    /**
+     * The searches of a new planning thread, with path caches of its own.
+     */
+    private synchronized AIUtility createPlannerPathfinding() {
+        AIUtility own = new AIUtility(map);
+        own.enablePathCache();
+        own.setRoomGraph(new RoomGraph(roomGraph));
+        plannerPathfindings.add(own);
+        return own;
+    }
+
+    /**
+     * The planning threads are done - their caches stop listening to the map.
+     */
+    private synchronized void releasePlannerPathfindings() {
+        for (AIUtility own : plannerPathfindings) {
+            own.disablePathCache();
+        }
+        plannerPathfindings.clear();
+    }
+
+    private void planInParallel() {
+        List<Future<?>> futures = new ArrayList<Future<?>>(schedule.size());
+        for (final MonsterPlan plan : schedule) {
+            futures.add(planners.submit(new Callable<Object>() {
+
+                @Override
+                public Object call() {
+                    plan.plan();
+                    return null;
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("planInParallel: interrupted", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("planInParallel: planning failed", e.getCause());
+            }
+        }
+    }
+
+    private boolean conflicts(int[] route) {
+        for (int i = 1; i < route.length; i++) {
+            if (reservedFields.contains(route[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The field indices a unit passes when performing the given actions,
+     * starting with its current field.
+     */
+    private static int[] getRoute(Unit unit, List<GameAction> actions) {
+        Neighbourhood neighbourhood = unit.getMap().getNeighbourhood();
+        int[] route = new int[actions.size() + 1];
+        int length = 0;
+        int index = unit.getField().getIndex();
+        route[length++] = index;
+        for (GameAction action : actions) {
+            if (action instanceof MoveAction) {
+                int next = neighbourhood.getNeighbour(index, Neighbourhood.getNeighbour(((MoveAction) action).getDirection()));
+                if (next < 0) {
+                    break;
+                }
+                index = next;
+                route[length++] = index;
+            }
+        }
+        int[] result = new int[length];
+        System.arraycopy(route, 0, result, 0, length);
+        return result;
     }
-    
 }
@@ -4,11 +4,15 @@
  */
 package de.d2dev.heroquest.engine.ai;
 
+import de.d2dev.heroquest.engine.ai.astar.GridAStar;
+import de.d2dev.heroquest.engine.ai.astar.GridCostCommunicator;
 import de.d2dev.heroquest.engine.game.Field;
 import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.OccupancyGrid;
 import de.d2dev.heroquest.engine.game.Unit;
 import java.util.ArrayDeque;
-import java.util.PriorityQueue;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  *
@@ -16,16 +20,101 @@ import java.util.PriorityQueue;
  */
 public class AIUtility {
 
-    private PriorityQueue<Target> targets;
+    /**
+     * Extra costs for walking over a friendly unit, i.e. for waiting until it made room.
+     */
+    public static final int DEFAULT_UNIT_COSTS = 3;
+
     private Map map;
-    private FindPath findPath;
-    private FindBlockedPath findBlockedPath;
+    private GridAStar gridAStar;
+    private int unitCosts;
+    /** communicators for searches of monsters and of heroes */
+    private DeblockingCommunicator monsterSide;
+    private DeblockingCommunicator heroSide;
+    /** caches for searches of monsters and of heroes, null if caching is disabled */
+    private PathCache monsterPaths;
+    private PathCache heroPaths;
+    /** areas and doors for long distance searches, null to search the whole way */
+    private RoomGraph roomGraph;
+
+    /**
+     * Fields of units on the searching units side are passable at extra costs.
+     */
+    private class DeblockingCommunicator implements GridCostCommunicator {
+
+        private final boolean heroes;
+
+        private DeblockingCommunicator(boolean heroes) {
+            this.heroes = heroes;
+        }
+
+        @Override
+        public boolean canEnter(int index) {
+            OccupancyGrid occupancy = map.getOccupancy();
+            if (!occupancy.isBlocked(index)) {
+                return true;
+            }
+            return occupancy.hasUnit(index) && map.getField(index).getUnit().isHero() == heroes;
+        }
+
+        @Override
+        public int getExtraCosts(int index) {
+            return map.getOccupancy().hasUnit(index) ? unitCosts : 0;
+        }
+    }
 
     public AIUtility(Map map) {
-        this.targets = new PriorityQueue<Target>();
+        this(map, DEFAULT_UNIT_COSTS);
+    }
+
+    /**
+     * @param map
+     * @param unitCosts extra costs for a field occupied by a friendly unit
+     */
+    public AIUtility(Map map, int unitCosts) {
         this.map = map;
-        this.findPath = new FindPath(this.map);
-        this.findBlockedPath = new FindBlockedPath(this.map);
+        this.gridAStar = new GridAStar(map);
+        this.monsterSide = new DeblockingCommunicator(false);
+        this.heroSide = new DeblockingCommunicator(true);
+        setUnitCosts(unitCosts);
+    }
+
+//*******************************Getter/Setter********************************
+    public int getUnitCosts() {
+        return unitCosts;
+    }
+
+    public void setUnitCosts(int unitCosts) {
+        if (unitCosts < 0) {
+            throw new IllegalArgumentException("setUnitCosts: unitCosts < 0");
+        }
+        if (unitCosts != this.unitCosts && monsterPaths != null) {
+            monsterPaths.clear();
+            heroPaths.clear();
+        }
+        this.unitCosts = unitCosts;
+    }
+
+    /**
+     * The path cache for searches of monsters (or heroes).
+     * @param heroes
+     * @return null if caching is disabled
+     */
+    public PathCache getPathCache(boolean heroes) {
+        return heroes ? heroPaths : monsterPaths;
+    }
+
+    public RoomGraph getRoomGraph() {
+        return roomGraph;
+    }
+
+    /**
+     * If set, {@link #findWay(Unit, Unit)} searches only as far as the first door if
+     * start and goal are in different areas of the graph.
+     * @param roomGraph null to search the whole way
+     */
+    public void setRoomGraph(RoomGraph roomGraph) {
+        this.roomGraph = roomGraph;
     }
 
 //******************Static Methods****************************************
@@ -34,63 +123,138 @@ public class AIUtility {
      * @param map
      * @param start
      * @param goal
-     * @param agression
-     * @return 
+     * @param unitCosts extra costs for a field occupied by a friendly unit
+     * @return null if there is no way to the goal, not even over friendly units
      */
-    public static Target getTarget(Map map, Unit start, Unit goal, double agression) {
+    public static Target getTarget(Map map, Unit start, Unit goal, int unitCosts) {
 
-        AIUtility util = new AIUtility(map);
-        return util.findWay(start, goal, agression);
+        AIUtility util = new AIUtility(map, unitCosts);
+        return util.findWay(start, goal);
         
     }
 
 //*****************Public Methods********************************
 
-    public Target findWay(Unit start, Unit goal, double agression){
-        ArrayDeque<Field> path = findPath.getPath(start.getField(), goal.getField());
-
-            //If path found 
-            if (path != null) {
-                //Heroe as target with direct path and add it to the priorityqueue
-                Target nextTarget = new Target(goal, path, 0);
-                targets.add(nextTarget);
-                //Look if there is a shorter blocked path
-                ArrayDeque<Field> blockedPath = findBlockedPath.getPath(start.getField(), goal.getField());
-                // if blockedPath + 1* agression is shorter, then try to deblock unit
-                if ((blockedPath.size()+ 1 * agression) < path.size() ) {
-                    Target deblocked = deblockUnit(start,goal, 1);
-                    targets.add(deblocked);
-                }                             
-            } else {
-                //If no direct way found, try to deblock unit
-                Target deblocked = deblockUnit(start,goal, 1);
-                if (deblocked != null) {
-                    targets.add(deblocked);
-                } else {
-                    System.out.println(start.getName() + " Deblocking not successful");
-                }
+    /**
+     * The best target on the way to goal: the goal itself if the way is free,
+     * else the first friendly unit that has to make room. With a {@link RoomGraph}
+     * and the goal in another area, the path leads to the first door only.
+     * @param start
+     * @param goal
+     * @return null if there is no way to the goal, not even over friendly units
+     */
+    public Target findWay(Unit start, Unit goal) {
+        DeblockingPath way = null;
+        if (roomGraph != null && isInOtherArea(start, goal)) {
+            way = findFirstLeg(start, goal);
+        }
+        if (way == null) {
+            way = findDeblockingPath(start, goal);
+        }
+        if (way == null) {
+            System.out.println(start.getName() + " Deblocking not successful");
+            return null;
+        }
+        if (!way.isBlocked()) {
+            //Ranked by the costs of the whole way, even if the path ends at a door
+            return new Target(goal, way.getPath(), way.getCosts() + 1 - way.getPath().size());
+        }
+        //Head for the first unit in the way, ranked by the costs of the whole way
+        ArrayDeque<Field> path = way.getPathToFirstBlockingUnit();
+        return new Target(way.getBlockingUnits().get(0), path, way.getCosts() + 1 - path.size());
+    }
+
+    /**
+     * One weighted search from start to goal, where fields of units on the side of
+     * start are passable for {@link #getUnitCosts()} extra costs. Replaces searching a
+     * free path first and deblocking the units of a blocked path one by one.
+     * @param start
+     * @param goal
+     * @return null if there is no way to the goal, not even over friendly units
+     */
+    public DeblockingPath findDeblockingPath(Unit start, Unit goal) {
+        int from = start.getField().getIndex();
+        int to = goal.getField().getIndex();
+        boolean found;
+        int length;
+        int costs;
+        PathCache cache = getPathCache(start.isHero());
+        if (cache != null) {
+            found = cache.search(from, to);
+            length = cache.getPathLength();
+            costs = cache.getPathCosts();
+        } else {
+            found = gridAStar.search(from, to, start.isHero() ? heroSide : monsterSide);
+            length = gridAStar.getPathLength();
+            costs = gridAStar.getPathCosts();
+        }
+        if (!found) {
+            return null;
+        }
+
+        ArrayDeque<Field> path = new ArrayDeque<Field>(length);
+        List<Unit> blockingUnits = new ArrayList<Unit>();
+        for (int i = 0; i < length; i++) {
+            Field field = map.getField(cache != null ? cache.getPathIndex(i) : gridAStar.getPathIndex(i));
+            path.addLast(field);
+            if (i > 0 && i < length - 1 && field.hasUnit()) {
+                blockingUnits.add(field.getUnit());
             }
-            return targets.remove();
+        }
+        return new DeblockingPath(path, blockingUnits, costs);
     }
-    
-        public Target deblockUnit(Unit from, Unit blockedUnit, int costs) {
-
-        ArrayDeque<Field> blockedPath = findBlockedPath.getPath(from.getField(), blockedUnit.getField());
-        while (!blockedPath.isEmpty()) {
-
-            Field last = blockedPath.removeLast();
-            if (last.hasUnit() && last.getUnit() != blockedUnit ) {
-                Unit nextUnit = last.getUnit();
-                ArrayDeque<Field> unblockedPath = findPath.getPath(from.getField(), last);
-                if (unblockedPath != null) {
-                    return new Target(nextUnit, unblockedPath, costs);
-
-                } else {
-                    return deblockUnit(from, nextUnit, costs + 1*3);
-                }
+
+    /**
+     * Caches the searches of {@link #findDeblockingPath(Unit, Unit)} until the map
+     * changes along their way. The caches listen to the map until {@link #disablePathCache()}.
+     */
+    public void enablePathCache() {
+        if (monsterPaths != null) {
+            return;
+        }
+        monsterPaths = new PathCache(map, monsterSide);
+        heroPaths = new PathCache(map, heroSide);
+        map.addListener(monsterPaths);
+        map.addListener(heroPaths);
+    }
+
+    public void disablePathCache() {
+        if (monsterPaths == null) {
+            return;
+        }
+        map.removeListener(monsterPaths);
+        map.removeListener(heroPaths);
+        monsterPaths = null;
+        heroPaths = null;
+    }
+
+//******************Private*************************
+    private boolean isInOtherArea(Unit start, Unit goal) {
+        int area = roomGraph.getArea(start.getField().getIndex());
+        return area < 0 || area != roomGraph.getArea(goal.getField().getIndex());
+    }
+
+    /**
+     * The way towards goal as far as the first door of the best route on the room graph,
+     * friendly units passable like in {@link #findDeblockingPath(Unit, Unit)}. The costs
+     * are those of the whole way, units beyond the first door not counted.
+     * @return null if the graph finds no way or the first leg is blocked for good
+     */
+    private DeblockingPath findFirstLeg(Unit start, Unit goal) {
+        ArrayDeque<Field> path = roomGraph.getFirstLeg(start.getField(), goal.getField(),
+                start.isHero() ? heroSide : monsterSide);
+        if (path == null) {
+            return null;
+        }
+        List<Unit> blockingUnits = new ArrayList<Unit>();
+        int i = 0;
+        for (Field field : path) {
+            // a unit in the door blocks as well, only the goal itself doesn't
+            if (i > 0 && field.hasUnit() && field != goal.getField()) {
+                blockingUnits.add(field.getUnit());
             }
-            costs++;
+            i++;
         }
-        return null;
+        return new DeblockingPath(path, blockingUnits, roomGraph.getLastDistance() + blockingUnits.size() * unitCosts);
     }
 }
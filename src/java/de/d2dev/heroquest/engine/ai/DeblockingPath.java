@@ -0,0 +1,74 @@
+package de.d2dev.heroquest.engine.ai;
+
+import de.d2dev.heroquest.engine.game.Field;
+import de.d2dev.heroquest.engine.game.Unit;
+import java.util.ArrayDeque;
+import java.util.List;
+
+/**
+ * The best path to a unit if friendly units are passable at some costs,
+ * together with the units that have to make room first.
+ *
+ * @author Simon + Toni
+ */
+public class DeblockingPath {
+
+    private ArrayDeque<Field> path;
+    private List<Unit> blockingUnits;
+    private int costs;
+
+    public DeblockingPath(ArrayDeque<Field> path, List<Unit> blockingUnits, int costs) {
+        if (path == null) {
+            throw new RuntimeException("DeblockingPathConstructor: path == Null");
+        }
+        this.path = path;
+        this.blockingUnits = blockingUnits;
+        this.costs = costs;
+    }
+
+    /**
+     * The path from the units field to the goals field (both included).
+     * @return
+     */
+    public ArrayDeque<Field> getPath() {
+        return path;
+    }
+
+    /**
+     * The units standing on the path, in the order they are met.
+     * @return
+     */
+    public List<Unit> getBlockingUnits() {
+        return blockingUnits;
+    }
+
+    public boolean isBlocked() {
+        return !blockingUnits.isEmpty();
+    }
+
+    /**
+     * Steps plus the extra costs for every blocking unit.
+     * @return
+     */
+    public int getCosts() {
+        return costs;
+    }
+
+    /**
+     * The path up to (and including) the first blocking unit.
+     * @return the whole path if it is not blocked
+     */
+    public ArrayDeque<Field> getPathToFirstBlockingUnit() {
+        if (!isBlocked()) {
+            return path;
+        }
+        ArrayDeque<Field> result = new ArrayDeque<Field>();
+        for (Field field : path) {
+            result.addLast(field);
+            if (field.getUnit() == blockingUnits.get(0)) {
+                break;
+            }
+        }
+        return result;
+    }
+}
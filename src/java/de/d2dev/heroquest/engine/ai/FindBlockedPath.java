@@ -8,6 +8,7 @@ import de.d2dev.heroquest.engine.ai.astar.AbstractCommunicator;
 import de.d2dev.heroquest.engine.ai.astar.Knot;
 import de.d2dev.heroquest.engine.game.Field;
 import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.Neighbourhood;
 import java.util.ArrayDeque;
 
 /**
@@ -27,20 +28,30 @@ public class FindBlockedPath extends AbstractCommunicator {
 
     @Override
     public ArrayDeque<Knot> getSuccessors(Knot actual) {
-        ArrayDeque<Knot> speicher = new ArrayDeque<Knot>();
-
-        for (Field f : ((SearchKnot) actual).getField().getNeighbours()) {
-            if (!f.isBlocked()) {
-                speicher.add(getKnot(f));
-            } else if ((f.getX() == getGoalX() && f.getY() == getGoalY()) || f.hasUnit()) {
-                speicher.add(getKnot(f));
+        ArrayDeque<Knot> speicher = new ArrayDeque<Knot>(4);
+        Field field = ((SearchKnot) actual).getField();
+        Map map = field.getMap();
+        Neighbourhood neighbourhood = map.getNeighbourhood();
+        int goal = map.getFieldIndex(getGoalX(), getGoalY());
+        for (int k : Neighbourhood.getSlots(neighbourhood.getMask(field.getIndex()) & Neighbourhood.DIRECT)) {
+            int f = neighbourhood.getNeighbour(field.getIndex(), k);
+            if (f == goal || canEnter(f)) {
+                speicher.add(getKnot(map.getField(f)));
             }
-
         }
 
         return speicher;
     }
 
+    /**
+     * Free fields and fields blocked by units
+     */
+    @Override
+    public boolean canEnter(int index) {
+        Map map = getMap();
+        return !map.getOccupancy().isBlocked(index) || map.getOccupancy().hasUnit(index);
+    }
+
     @Override
     public int getHeuristic(Field field) {
         return Math.abs(getGoalX() - field.getX()) + Math.abs(getGoalY() - field.getY());
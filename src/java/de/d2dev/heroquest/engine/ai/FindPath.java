@@ -9,6 +9,7 @@ import de.d2dev.heroquest.engine.ai.astar.Communicator;
 import de.d2dev.heroquest.engine.ai.astar.Knot;
 import de.d2dev.heroquest.engine.game.Field;
 import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.Neighbourhood;
 import java.util.ArrayDeque;
 
 /**
@@ -33,20 +34,30 @@ public class FindPath extends AbstractCommunicator implements Communicator {
 
     @Override
     public ArrayDeque<Knot> getSuccessors(Knot actual) {
-        ArrayDeque<Knot> speicher = new ArrayDeque<Knot>();
-
-        for (Field f : ((SearchKnot) actual).getField().getNeighbours()) {
-            if (!f.isBlocked()) {
-                speicher.add(getKnot(f));
-            } else if ((f.getX() == getGoalX() && f.getY() == getGoalY())) {
-                speicher.add(getKnot(f));
+        ArrayDeque<Knot> speicher = new ArrayDeque<Knot>(4);
+        Field field = ((SearchKnot) actual).getField();
+        Map map = field.getMap();
+        Neighbourhood neighbourhood = map.getNeighbourhood();
+        int goal = map.getFieldIndex(getGoalX(), getGoalY());
+        for (int k : Neighbourhood.getSlots(neighbourhood.getMask(field.getIndex()) & Neighbourhood.DIRECT)) {
+            int f = neighbourhood.getNeighbour(field.getIndex(), k);
+            if (f == goal || canEnter(f)) {
+                speicher.add(getKnot(map.getField(f)));
             }
-
         }
 
         return speicher;
     }
 
+    /**
+     * Free fields only
+     */
+    @Override
+    public boolean canEnter(int index) {
+        Map map = getMap();
+        return !map.getOccupancy().isBlocked(index);
+    }
+
     @Override
     public int getHeuristic(Field field) {
         return Math.abs(getGoalX() - field.getX()) + Math.abs(getGoalY() - field.getY());
@@ -0,0 +1,480 @@
+package de.d2dev.heroquest.engine.ai;
+
+import de.d2dev.heroquest.engine.game.Door;
+import de.d2dev.heroquest.engine.game.Field;
+import de.d2dev.heroquest.engine.game.Hero;
+import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.MapListener;
+import de.d2dev.heroquest.engine.game.MapSnapshot;
+import de.d2dev.heroquest.engine.game.Neighbourhood;
+import de.d2dev.heroquest.engine.game.Room;
+import de.d2dev.heroquest.engine.game.Unit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Distance of every field to the nearest hero, shared by all monsters of a round.
+ * Computed by one multi-source breadth first search from all heroes instead of one
+ * A* search per monster and hero. There are two variants: one where units block
+ * fields (the way a monster can actually walk) and one where units are passable
+ * (the way a monster would walk if the others made room).<br>
+ * Registered as {@link MapListener}, the field keeps track of the changes: hero moves and
+ * opened doors invalidate both variants, which are then recomputed on the next query.
+ * Monster moves only touch the unit blocking variant. It is repaired on the next query:
+ * the distances behind a field a monster entered are searched again from the edge of that
+ * region, and a field a monster left is searched from its neighbours onwards. The work is
+ * in proportion to the fields whose distance changes, not to the map.<br>
+ * Along with the distances each variant keeps a flow field: one byte per field telling
+ * which neighbour leads towards the nearest hero, so a unit can be steered step by
+ * step without searching or walking the distances.<br>
+ * The variants are computed on a {@link MapSnapshot}. Once {@link #prepare()} has been
+ * called, queries only read and may come from several threads, as long as the map
+ * is not changed meanwhile.
+ *
+ * @author Simon + Toni
+ */
+public class HeroDistanceField implements MapListener {
+
+    /**
+     * Repairing more changed fields at once is hardly cheaper than computing from scratch.
+     */
+    private static final int MAX_REPAIRED_FIELDS = 32;
+
+    private Map map;
+    private Neighbourhood neighbourhood;
+    /** the heroes at the time of the last computation, sources of the search */
+    private List<Hero> heroes = new ArrayList<Hero>();
+    /** field indices of the heroes above */
+    private int[] heroFields = new int[0];
+    private Variant blocking;
+    private Variant passable;
+    private int[] queue;
+    /** repair: start fields of the search, distance in the upper half */
+    private long[] seeds;
+    /** repair: fields left by monsters, still blocked while the entered ones are repaired */
+    private BitSet held;
+    private int computations = 0;
+    private int repairs = 0;
+
+    /**
+     * One distance array with the nearest hero per field.
+     */
+    private class Variant {
+
+        private final boolean unitsBlock;
+        private final int[] distance;
+        private final int[] nearest;
+        /** neighbour slot towards the nearest hero, -1 on hero fields */
+        private final byte[] flow;
+        /** the map state the variant has been computed on */
+        private MapSnapshot snapshot;
+        private boolean valid = false;
+        /** fields where units came or went since the variant has been computed */
+        private final BitSet changed = new BitSet();
+
+        private Variant(boolean unitsBlock) {
+            this.unitsBlock = unitsBlock;
+            this.distance = new int[map.getOccupancy().getIndexCapacity()];
+            this.nearest = new int[map.getOccupancy().getIndexCapacity()];
+            this.flow = new byte[map.getOccupancy().getIndexCapacity()];
+        }
+
+        private void compute() {
+            snapshot = map.createSnapshot();
+            changed.clear();
+            Arrays.fill(distance, -1);
+            int head = 0;
+            int tail = 0;
+            for (int i = 0; i < heroFields.length; i++) {
+                distance[heroFields[i]] = 0;
+                nearest[heroFields[i]] = i;
+                flow[heroFields[i]] = -1;
+                queue[tail++] = heroFields[i];
+            }
+            while (head < tail) {
+                int actual = queue[head++];
+                for (int k : Neighbourhood.getSlots(neighbourhood.getMask(actual) & Neighbourhood.DIRECT)) {
+                    int next = neighbourhood.getNeighbour(actual, k);
+                    if (distance[next] >= 0 || !canEnter(next)) {
+                        continue;
+                    }
+                    distance[next] = distance[actual] + 1;
+                    nearest[next] = nearest[actual];
+                    flow[next] = (byte) Neighbourhood.getOpposite(k);
+                    queue[tail++] = next;
+                }
+            }
+            valid = true;
+            computations++;
+        }
+
+        /**
+         * Bring the variant up to date with the fields that changed. First the fields units
+         * have entered: everything whose way led over them loses its distance and is searched
+         * again from the neighbours that kept theirs. Then the fields units have left are
+         * searched from their neighbours, which may only shorten distances.
+         */
+        private void repair() {
+            MapSnapshot before = snapshot;
+            snapshot = map.createSnapshot();
+            held.clear();
+
+            // cut off the fields whose way leads over an entered field
+            int tail = 0;
+            for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+                if (before.isBlocked(i) == snapshot.isBlocked(i)) {
+                    continue;
+                }
+                if (before.isBlocked(i)) {
+                    held.set(i);
+                } else if (distance[i] >= 0) {
+                    distance[i] = -1;
+                    queue[tail++] = i;
+                }
+            }
+            for (int head = 0; head < tail; head++) {
+                int actual = queue[head];
+                for (int k : Neighbourhood.getSlots(neighbourhood.getMask(actual) & Neighbourhood.DIRECT)) {
+                    int next = neighbourhood.getNeighbour(actual, k);
+                    if (distance[next] > 0 && neighbourhood.getNeighbour(next, flow[next]) == actual) {
+                        distance[next] = -1;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+            int count = 0;
+            for (int i = 0; i < tail; i++) {
+                if (canEnter(queue[i]) && attach(queue[i])) {
+                    seeds[count++] = ((long) distance[queue[i]] << 32) | queue[i];
+                }
+            }
+            propagate(count);
+
+            // continue from the left fields
+            held.clear();
+            count = 0;
+            for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+                if (canEnter(i) && attach(i)) {
+                    seeds[count++] = ((long) distance[i] << 32) | i;
+                }
+            }
+            propagate(count);
+
+            changed.clear();
+            repairs++;
+        }
+
+        /**
+         * Give a field the distance of its best neighbour plus one, if that is shorter.
+         * @return whether the distance changed
+         */
+        private boolean attach(int index) {
+            int k = bestSlot(this, index);
+            if (k < 0) {
+                return false;
+            }
+            int next = neighbourhood.getNeighbour(index, k);
+            if (distance[index] >= 0 && distance[index] <= distance[next] + 1) {
+                return false;
+            }
+            distance[index] = distance[next] + 1;
+            nearest[index] = nearest[next];
+            flow[index] = (byte) k;
+            return true;
+        }
+
+        /**
+         * Breadth first search from seeds with different distances: the seeds are taken in
+         * the order of their distance, merged with the queue of the search.
+         */
+        private void propagate(int count) {
+            Arrays.sort(seeds, 0, count);
+            int seed = 0;
+            int head = 0;
+            int tail = 0;
+            while (seed < count || head < tail) {
+                int actual;
+                if (head == tail || (seed < count && (int) (seeds[seed] >>> 32) <= distance[queue[head]])) {
+                    actual = (int) seeds[seed];
+                    // shortened since
+                    if (distance[actual] != (int) (seeds[seed++] >>> 32)) {
+                        continue;
+                    }
+                } else {
+                    actual = queue[head++];
+                }
+                for (int k : Neighbourhood.getSlots(neighbourhood.getMask(actual) & Neighbourhood.DIRECT)) {
+                    int next = neighbourhood.getNeighbour(actual, k);
+                    if ((distance[next] >= 0 && distance[next] <= distance[actual] + 1) || !canEnter(next)) {
+                        continue;
+                    }
+                    distance[next] = distance[actual] + 1;
+                    nearest[next] = nearest[actual];
+                    flow[next] = (byte) Neighbourhood.getOpposite(k);
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        private boolean canEnter(int index) {
+            if (held.get(index)) {
+                return false;
+            }
+            if (!snapshot.isBlocked(index)) {
+                return true;
+            }
+            return !unitsBlock && snapshot.hasUnit(index);
+        }
+    }
+
+    public HeroDistanceField(Map map) {
+        this.map = map;
+        this.neighbourhood = map.getNeighbourhood();
+        this.queue = new int[map.getOccupancy().getIndexCapacity()];
+        this.seeds = new long[map.getOccupancy().getIndexCapacity()];
+        this.held = new BitSet(map.getOccupancy().getIndexCapacity());
+        this.blocking = new Variant(true);
+        this.passable = new Variant(false);
+    }
+
+//*****************Public Methods********************************
+    /**
+     * Throws away both variants, e.g. at the start of a monsters round.
+     */
+    public void invalidate() {
+        blocking.valid = false;
+        passable.valid = false;
+    }
+
+    /**
+     * Computes all invalid variants, so that later queries only read.
+     * Call this before querying from several threads.
+     */
+    public void prepare() {
+        get(true);
+        get(false);
+    }
+
+    /**
+     * The map state the unit blocking variant has been computed on.
+     * @return
+     */
+    public MapSnapshot getSnapshot() {
+        return get(true).snapshot;
+    }
+
+    /**
+     * Distance of a field to the nearest hero.
+     * @param index field index
+     * @param unitsBlock whether units block fields
+     * @return -1 if no hero can be reached
+     */
+    public int getDistance(int index, boolean unitsBlock) {
+        return get(unitsBlock).distance[index];
+    }
+
+    /**
+     * The nearest hero of a field.
+     * @param index field index
+     * @param unitsBlock whether units block fields
+     * @return null if no hero can be reached
+     */
+    public Hero getNearestHero(int index, boolean unitsBlock) {
+        Variant variant = get(unitsBlock);
+        if (variant.distance[index] < 0) {
+            return null;
+        }
+        return heroes.get(variant.nearest[index]);
+    }
+
+    /**
+     * Distance of a unit to its nearest hero, i.e. one more than the
+     * distance of its best neighbour (the unit blocks its own field).
+     * @param unit
+     * @param unitsBlock
+     * @return -1 if no hero can be reached
+     */
+    public int getDistance(Unit unit, boolean unitsBlock) {
+        int best = bestNeighbour(get(unitsBlock), unit.getField().getIndex());
+        if (best < 0) {
+            return -1;
+        }
+        return get(unitsBlock).distance[best] + 1;
+    }
+
+    /**
+     * The step from a field towards its nearest hero.
+     * @param index field index
+     * @param unitsBlock whether units block fields
+     * @return one of {@link Neighbourhood#UP}, {@link Neighbourhood#LEFT}, {@link Neighbourhood#DOWN},
+     * {@link Neighbourhood#RIGHT}, -1 on hero fields and fields from where no hero can be reached
+     */
+    public int getFlow(int index, boolean unitsBlock) {
+        Variant variant = get(unitsBlock);
+        return variant.distance[index] > 0 ? variant.flow[index] : -1;
+    }
+
+    /**
+     * The first step of a unit towards its nearest hero. The units own field might not be part of
+     * the flow field (the unit blocks it), then the step leads to the best neighbour.
+     * @param unit
+     * @param unitsBlock whether units block fields
+     * @return see {@link #getFlow(int, boolean)}
+     */
+    public int getFlow(Unit unit, boolean unitsBlock) {
+        Variant variant = get(unitsBlock);
+        int index = unit.getField().getIndex();
+        if (variant.distance[index] >= 0) {
+            return getFlow(index, unitsBlock);
+        }
+        return bestSlot(variant, index);
+    }
+
+    /**
+     * Shortest path from a unit to its nearest hero, found by descending the distance field.
+     * @param unit
+     * @param unitsBlock whether units block fields. If not, the path may lead over other units.
+     * @return the path from the units field to the heroes field (both included), null if there is none
+     */
+    public ArrayDeque<Field> descend(Unit unit, boolean unitsBlock) {
+        Variant variant = get(unitsBlock);
+        int actual = unit.getField().getIndex();
+        int next = bestNeighbour(variant, actual);
+        if (next < 0) {
+            return null;
+        }
+        ArrayDeque<Field> path = new ArrayDeque<Field>(variant.distance[next] + 2);
+        path.addLast(unit.getField());
+        while (true) {
+            actual = next;
+            path.addLast(map.getField(actual));
+            if (variant.distance[actual] == 0) {
+                return path;
+            }
+            next = bestNeighbour(variant, actual);
+        }
+    }
+
+    /**
+     * How often a variant has been computed from scratch, for tuning.
+     * @return
+     */
+    public int getComputations() {
+        return computations;
+    }
+
+    /**
+     * How often the unit blocking variant has been repaired after monster moves, for tuning.
+     * @return
+     */
+    public int getRepairs() {
+        return repairs;
+    }
+
+//******************Private*************************
+    private Variant get(boolean unitsBlock) {
+        Variant variant = unitsBlock ? blocking : passable;
+        if (!variant.valid) {
+            if (!blocking.valid && !passable.valid) {
+                collectHeroes();
+            }
+            variant.compute();
+        } else if (!variant.changed.isEmpty()) {
+            variant.repair();
+        }
+        return variant;
+    }
+
+    private void collectHeroes() {
+        heroes.clear();
+        for (Hero hero : map.getHeroes()) {
+            if (hero.getField() != null) {
+                heroes.add(hero);
+            }
+        }
+        heroFields = new int[heroes.size()];
+        for (int i = 0; i < heroFields.length; i++) {
+            heroFields[i] = heroes.get(i).getField().getIndex();
+        }
+    }
+
+    /**
+     * The direct neighbour with the smallest distance.
+     * @return -1 if no neighbour has a distance
+     */
+    private int bestNeighbour(Variant variant, int index) {
+        int k = bestSlot(variant, index);
+        return k < 0 ? -1 : neighbourhood.getNeighbour(index, k);
+    }
+
+    /**
+     * The slot of the direct neighbour with the smallest distance.
+     * @return -1 if no neighbour has a distance
+     */
+    private int bestSlot(Variant variant, int index) {
+        int best = -1;
+        int bestDistance = 0;
+        for (int k : Neighbourhood.getSlots(neighbourhood.getMask(index) & Neighbourhood.DIRECT)) {
+            int d = variant.distance[neighbourhood.getNeighbour(index, k)];
+            if (d >= 0 && (best < 0 || d < bestDistance)) {
+                best = k;
+                bestDistance = d;
+            }
+        }
+        return best;
+    }
+
+    private boolean isHeroField(Field field) {
+        if (field.hasUnit() && field.getUnit().isHero()) {
+            return true;
+        }
+        for (int i = 0; i < heroFields.length; i++) {
+            if (heroFields[i] == field.getIndex()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void onUnitMoved(Field field) {
+        if (isHeroField(field)) {
+            invalidate();
+        } else if (blocking.valid) {
+            blocking.changed.set(field.getIndex());
+            if (blocking.changed.cardinality() > MAX_REPAIRED_FIELDS) {
+                blocking.valid = false;
+            }
+        }
+    }
+
+//***********InterFace MapListener*******************
+    @Override
+    public void onUnitEntersField(Field field) {
+        onUnitMoved(field);
+    }
+
+    @Override
+    public void onUnitLeavesField(Field field) {
+        onUnitMoved(field);
+    }
+
+    @Override
+    public void onFieldRevealed(Field field) {
+    }
+
+    @Override
+    public void onDoorOpened(Door door) {
+        invalidate();
+    }
+
+    @Override
+    public void onRoomRevealed(Room room) {
+    }
+
+    @Override
+    public void onFieldTextureChanges(Field field) {
+    }
+}
@@ -0,0 +1,38 @@
+package de.d2dev.heroquest.engine.ai;
+
+import de.d2dev.heroquest.engine.ai.mcts.MonteCarloPlanner;
+import de.d2dev.heroquest.engine.game.Unit;
+import de.d2dev.heroquest.engine.game.action.GameAction;
+import java.util.List;
+
+/**
+ * Lets a {@link MonteCarloPlanner} decide where the monster walks and whom it attacks,
+ * instead of walking the shortest way to the nearest hero like the
+ * {@link AIMonsterController}.
+ *
+ * @author Simon + Toni
+ */
+public class MonteCarloController implements AIController {
+
+    private Unit unit;
+    private MonteCarloPlanner planner;
+
+    /**
+     * @param unit
+     * @param planner may be shared by all monsters of the map
+     */
+    public MonteCarloController(Unit unit, MonteCarloPlanner planner) {
+        this.unit = unit;
+        this.planner = planner;
+    }
+
+    public MonteCarloPlanner getPlanner() {
+        return planner;
+    }
+
+//*************************Interface AIController*******************************
+    @Override
+    public List<GameAction> getActions() {
+        return planner.getActions(unit);
+    }
+}
@@ -0,0 +1,258 @@
+package de.d2dev.heroquest.engine.ai;
+
+import de.d2dev.heroquest.engine.ai.astar.GridAStar;
+import de.d2dev.heroquest.engine.ai.astar.GridCommunicator;
+import de.d2dev.heroquest.engine.game.Door;
+import de.d2dev.heroquest.engine.game.Field;
+import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.MapListener;
+import de.d2dev.heroquest.engine.game.OccupancyGrid;
+import de.d2dev.heroquest.engine.game.Room;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Caches the results of {@link GridAStar} searches with one {@link GridCommunicator}
+ * by start and goal. Has the same result accessors as the {@link GridAStar}.<br>
+ * Registered as {@link MapListener}, the cache drops only the entries a change can
+ * affect: when a field gets blocked (a unit enters it), the paths crossing it. When
+ * a field gets free (a unit leaves it, a door opens), the paths crossing it and the
+ * paths that a detour over the field could beat: such a detour costs at least the
+ * Manhattan distance from start over the field to goal. Searches that found no path
+ * are dropped on every freed field.<br>
+ * At most {@code maxEntries} entries are kept, the least recently used go first.
+ * Not thread safe.
+ *
+ * @author Simon + Toni
+ */
+public class PathCache implements MapListener {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    private Map map;
+    private OccupancyGrid occupancy;
+    private GridCommunicator communicator;
+    private GridAStar gridAStar;
+    private LinkedHashMap<Long, Entry> entries;
+    /** result of the last search */
+    private Entry last;
+    private int hits = 0;
+    private int misses = 0;
+    private int invalidations = 0;
+
+    /**
+     * The result of one search.
+     */
+    private static class Entry {
+
+        private final int start;
+        private final int goal;
+        /** field indices from start to goal, null if there is no path */
+        private final int[] path;
+        private final int costs;
+        /** fields the path crosses */
+        private final BitSet corridor;
+
+        private Entry(int start, int goal, int[] path, int costs) {
+            this.start = start;
+            this.goal = goal;
+            this.path = path;
+            this.costs = costs;
+            this.corridor = new BitSet();
+            if (path != null) {
+                for (int i = 0; i < path.length; i++) {
+                    corridor.set(path[i]);
+                }
+            }
+        }
+    }
+
+    public PathCache(Map map, GridCommunicator communicator) {
+        this(map, communicator, DEFAULT_MAX_ENTRIES);
+    }
+
+    public PathCache(Map map, GridCommunicator communicator, final int maxEntries) {
+        this.map = map;
+        this.occupancy = map.getOccupancy();
+        this.communicator = communicator;
+        this.gridAStar = new GridAStar(map);
+        this.entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(java.util.Map.Entry<Long, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+//*******************************Getter/Setter********************************
+    /**
+     * Number of fields on the last path found, including start and goal.
+     * @return 0 if the last search failed
+     */
+    public int getPathLength() {
+        return last == null || last.path == null ? 0 : last.path.length;
+    }
+
+    /**
+     * Field index of the i-th field on the last path found, 0 being the start.
+     * @param i
+     * @return
+     */
+    public int getPathIndex(int i) {
+        return last.path[i];
+    }
+
+    /**
+     * Costs of the last path found.
+     * @return
+     */
+    public int getPathCosts() {
+        return last == null || last.path == null ? 0 : last.costs;
+    }
+
+    /**
+     * Number of searches answered from the cache.
+     * @return
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * Number of searches actually done.
+     * @return
+     */
+    public int getMisses() {
+        return misses;
+    }
+
+    /**
+     * Number of entries dropped because of map changes.
+     * @return
+     */
+    public int getInvalidations() {
+        return invalidations;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+//****************Public Methods************************
+    /**
+     * Shortest path from start to goal, from the cache if possible.
+     * @param start field index of the start
+     * @param goal field index of the goal
+     * @return true if a path has been found, see {@link #getPathLength()} and {@link #getPathIndex(int)}
+     */
+    public boolean search(int start, int goal) {
+        Long key = ((long) start << 32) | (goal & 0xFFFFFFFFL);
+        last = entries.get(key);
+        if (last != null) {
+            hits++;
+            return last.path != null;
+        }
+        misses++;
+        int[] path = null;
+        if (gridAStar.search(start, goal, communicator)) {
+            path = new int[gridAStar.getPathLength()];
+            for (int i = 0; i < path.length; i++) {
+                path[i] = gridAStar.getPathIndex(i);
+            }
+        }
+        last = new Entry(start, goal, path, gridAStar.getPathCosts());
+        entries.put(key, last);
+        return path != null;
+    }
+
+    /**
+     * Shortest path from start to goal, both included.
+     * @param start
+     * @param goal
+     * @return null if there is none
+     */
+    public ArrayDeque<Field> getPath(Field start, Field goal) {
+        if (!search(start.getIndex(), goal.getIndex())) {
+            return null;
+        }
+        ArrayDeque<Field> path = new ArrayDeque<Field>(last.path.length);
+        for (int i = 0; i < last.path.length; i++) {
+            path.addLast(map.getField(last.path[i]));
+        }
+        return path;
+    }
+
+    /**
+     * Drops all entries.
+     */
+    public void clear() {
+        entries.clear();
+        last = null;
+    }
+
+    public void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        invalidations = 0;
+    }
+
+//******************Private*************************
+    private void onFieldBlocked(int index) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().corridor.get(index)) {
+                it.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    private void onFieldFreed(int index) {
+        int x = occupancy.getX(index);
+        int y = occupancy.getY(index);
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.path == null || entry.corridor.get(index)
+                    || distance(entry.start, x, y) + distance(entry.goal, x, y) < entry.costs) {
+                it.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    private int distance(int index, int x, int y) {
+        return Math.abs(occupancy.getX(index) - x) + Math.abs(occupancy.getY(index) - y);
+    }
+
+//***********InterFace MapListener*******************
+    @Override
+    public void onUnitEntersField(Field field) {
+        onFieldBlocked(field.getIndex());
+    }
+
+    @Override
+    public void onUnitLeavesField(Field field) {
+        onFieldFreed(field.getIndex());
+    }
+
+    @Override
+    public void onFieldRevealed(Field field) {
+    }
+
+    @Override
+    public void onDoorOpened(Door door) {
+        onFieldFreed(door.getField().getIndex());
+    }
+
+    @Override
+    public void onRoomRevealed(Room room) {
+    }
+
+    @Override
+    public void onFieldTextureChanges(Field field) {
+    }
+}
@@ -0,0 +1,141 @@
+package de.d2dev.heroquest.engine.ai;
+
+import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.Monster;
+import de.d2dev.heroquest.engine.game.Neighbourhood;
+import de.d2dev.heroquest.engine.game.OccupancyGrid;
+import de.d2dev.heroquest.engine.game.Unit;
+
+/**
+ * The fields a unit can reach with a given number of moves. Found by a breadth first
+ * search that stops at the budget, so it only touches the reachable fields instead of
+ * the whole map. The result is a bitset in the layout of the {@link OccupancyGrid}
+ * planes, the distances and the list of reached fields in order of distance.<br>
+ * All buffers are allocated once; a new query only resets the fields the last one
+ * reached. The result is valid until the next query.
+ *
+ * @author Simon + Toni
+ */
+public class ReachableFields {
+
+    private OccupancyGrid occupancy;
+    private Neighbourhood neighbourhood;
+    /** reached bit by field index */
+    private long[] reachable;
+    /** distance by field index, only valid for reached fields */
+    private int[] distance;
+    /** reached field indices in order of distance, also the queue */
+    private int[] reached;
+    private int size = 0;
+
+    public ReachableFields(Map map) {
+        this.occupancy = map.getOccupancy();
+        this.neighbourhood = map.getNeighbourhood();
+        int capacity = occupancy.getIndexCapacity();
+        this.reachable = new long[(capacity + 63) >>> 6];
+        this.distance = new int[capacity];
+        this.reached = new int[capacity];
+    }
+
+//*******************************Getter/Setter********************************
+    /**
+     * @param index field index
+     * @return
+     */
+    public boolean isReachable(int index) {
+        return (reachable[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Number of moves needed to reach a field.
+     * @param index field index
+     * @return -1 if the field can't be reached within the budget
+     */
+    public int getDistance(int index) {
+        return isReachable(index) ? distance[index] : -1;
+    }
+
+    /**
+     * Number of reachable fields, including the units own field.
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The i-th reachable field, in order of distance.
+     * @param i
+     * @return field index
+     */
+    public int getReachedIndex(int i) {
+        return reached[i];
+    }
+
+    /**
+     * Reachable bits of 64 fields, word w of an {@link OccupancyGrid} plane.
+     * @param w
+     * @return
+     */
+    public long getWord(int w) {
+        return reachable[w];
+    }
+
+//****************Public Methods************************
+    /**
+     * The fields the unit can reach with its remaining moves in this turn or, if it
+     * has none, with a monsters field tempo.
+     * @param unit
+     * @return this
+     */
+    public ReachableFields reachableWithin(Unit unit) {
+        int budget = unit.getRemainingMoves();
+        if (budget <= 0 && unit.isMonster()) {
+            budget = ((Monster) unit).getFieldTempo();
+        }
+        return reachableWithin(unit, budget);
+    }
+
+    /**
+     * The fields the unit can reach with at most budget moves. Blocked fields
+     * (e.g. by other units) can't be entered.
+     * @param unit
+     * @param budget number of moves
+     * @return this
+     */
+    public ReachableFields reachableWithin(Unit unit, int budget) {
+        clear();
+        int start = unit.getField().getIndex();
+        add(start, 0);
+        int head = 0;
+        while (head < size) {
+            int actual = reached[head++];
+            int next = distance[actual] + 1;
+            // everything behind is at least as far away
+            if (next > budget) {
+                break;
+            }
+            for (int k : Neighbourhood.getSlots(neighbourhood.getMask(actual) & Neighbourhood.DIRECT)) {
+                int neighbour = neighbourhood.getNeighbour(actual, k);
+                if (!isReachable(neighbour) && !occupancy.isBlocked(neighbour)) {
+                    add(neighbour, next);
+                }
+            }
+        }
+        return this;
+    }
+
+//******************Private*************************
+    private void add(int index, int d) {
+        reachable[index >>> 6] |= 1L << index;
+        distance[index] = d;
+        reached[size++] = index;
+    }
+
+    private void clear() {
+        for (int i = 0; i < size; i++) {
+            reachable[reached[i] >>> 6] = 0;
+        }
+        size = 0;
+    }
+}
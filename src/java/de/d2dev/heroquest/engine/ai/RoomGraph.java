@@ -0,0 +1,475 @@
+package de.d2dev.heroquest.engine.ai;
+
+import de.d2dev.heroquest.engine.ai.astar.GridAStar;
+import de.d2dev.heroquest.engine.ai.astar.GridCommunicator;
+import de.d2dev.heroquest.engine.ai.astar.IntHeap;
+import de.d2dev.heroquest.engine.game.Door;
+import de.d2dev.heroquest.engine.game.Field;
+import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.MapListener;
+import de.d2dev.heroquest.engine.game.Neighbourhood;
+import de.d2dev.heroquest.engine.game.OccupancyGrid;
+import de.d2dev.heroquest.engine.game.Room;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Abstract graph of a map for long distance searches (like HPA*). The fields that are
+ * neither walls nor doors fall apart into areas: the rooms and the passage segments
+ * between the doors. The doors are the nodes of the graph. Two doors at the same area
+ * are connected by an edge whose costs are their distance within the area; these
+ * distances are computed once, by one breadth first search per door and side, and
+ * kept per field so that a start or goal in an area is connected by a lookup.<br>
+ * A long distance query searches the door graph first and then only the first leg, to
+ * the first door, on field level. Same area queries are plain field level searches.<br>
+ * Walls and blocking objects are taken as they are when the graph is built, units are
+ * ignored (they move). Closed doors can't be passed; registered as {@link MapListener}
+ * the graph opens a door node when its door is opened, nothing else changes.<br>
+ * The search state is not thread safe; other threads search on their own copy, see
+ * {@link #RoomGraph(RoomGraph)}.
+ *
+ * @author Simon + Toni
+ */
+public class RoomGraph implements MapListener {
+
+    private Map map;
+    private OccupancyGrid occupancy;
+    private Neighbourhood neighbourhood;
+
+    /** area by field index, -1 for walls and doors */
+    private int[] areaOf;
+    /** door by field index, -1 for no doors */
+    private int[] doorOf;
+    private int areaCount = 0;
+
+    /*
+     * The doors
+     */
+    private int[] doorField;
+    private boolean[] doorOpen;
+    /** sides of the doors, a side is the way from a door into an area */
+    private int[][] doorSides;
+    /** edges of the doors: other door and costs */
+    private int[][] edgeTo;
+    private int[][] edgeCosts;
+
+    /*
+     * The sides
+     */
+    private int[] sideDoor;
+    private int[] sideArea;
+    /** field index of the first field of the area */
+    private int[] sideField;
+    /** distance from the door by field index, -1 outside the sides area */
+    private int[][] sideDistance;
+    /** sides by area */
+    private int[][] areaSides;
+
+    /*
+     * Search state
+     */
+    private IntHeap open;
+    private int[] distance;
+    private int[] parent;
+    private boolean[] closed;
+    private GridAStar gridAStar;
+    private int firstDoor = -1;
+    private int lastDistance = -1;
+    private int queries = 0;
+
+    public RoomGraph(Map map) {
+        this.map = map;
+        this.occupancy = map.getOccupancy();
+        this.neighbourhood = map.getNeighbourhood();
+        build();
+        initSearch();
+    }
+
+    /**
+     * Shares the areas, doors and distances of another graph, with an own search state
+     * for searching on another thread. Only the other graph has to listen to the map,
+     * the states of the doors are shared as well.
+     * @param graph
+     */
+    public RoomGraph(RoomGraph graph) {
+        this.map = graph.map;
+        this.occupancy = graph.occupancy;
+        this.neighbourhood = graph.neighbourhood;
+        this.areaOf = graph.areaOf;
+        this.doorOf = graph.doorOf;
+        this.areaCount = graph.areaCount;
+        this.doorField = graph.doorField;
+        this.doorOpen = graph.doorOpen;
+        this.doorSides = graph.doorSides;
+        this.edgeTo = graph.edgeTo;
+        this.edgeCosts = graph.edgeCosts;
+        this.sideDoor = graph.sideDoor;
+        this.sideArea = graph.sideArea;
+        this.sideField = graph.sideField;
+        this.sideDistance = graph.sideDistance;
+        this.areaSides = graph.areaSides;
+        initSearch();
+    }
+
+//*******************************Getter/Setter********************************
+    public int getAreaCount() {
+        return areaCount;
+    }
+
+    public int getDoorCount() {
+        return doorField.length;
+    }
+
+    /**
+     * The area of a field.
+     * @param index field index
+     * @return -1 for walls and doors
+     */
+    public int getArea(int index) {
+        return areaOf[index];
+    }
+
+    /**
+     * The first door of the route found by the last {@link #getDistance(int, int)}.
+     * @return its field index, -1 if there is none (no route or the same area)
+     */
+    public int getFirstDoorField() {
+        return firstDoor < 0 ? -1 : doorField[firstDoor];
+    }
+
+    /**
+     * The result of the last {@link #getDistance(int, int)}, also of the one
+     * of {@link #getFirstLeg(Field, Field, GridCommunicator)}.
+     * @return -1 if the goal can't be reached
+     */
+    public int getLastDistance() {
+        return lastDistance;
+    }
+
+    /**
+     * Number of queries answered on the door graph, for tuning.
+     * @return
+     */
+    public int getQueries() {
+        return queries;
+    }
+
+//****************Public Methods************************
+    /**
+     * Distance from start to goal, walls, blocking objects and closed doors
+     * considered, units ignored. The goal may be a closed door.
+     * @param start field index of the start
+     * @param goal field index of the goal
+     * @return -1 if the goal can't be reached
+     */
+    public int getDistance(int start, int goal) {
+        firstDoor = -1;
+        if (start == goal) {
+            lastDistance = 0;
+        } else if (areaOf[start] >= 0 && areaOf[start] == areaOf[goal]) {
+            lastDistance = searchFields(start, goal);
+        } else if (areaOf[start] < 0 && doorOf[start] < 0) {
+            lastDistance = -1;
+        } else {
+            queries++;
+            lastDistance = searchDoors(start, goal);
+        }
+        return lastDistance;
+    }
+
+    /**
+     * The way towards goal on field level, as far as the first door of the best route;
+     * the whole way if start and goal are in the same area.
+     * @param start
+     * @param goal
+     * @param communicator decides which fields may be entered, e.g. {@link FindPath}
+     * @return the path from start (included), null if there is none
+     */
+    public ArrayDeque<Field> getFirstLeg(Field start, Field goal, GridCommunicator communicator) {
+        if (getDistance(start.getIndex(), goal.getIndex()) < 0) {
+            return null;
+        }
+        int to = firstDoor >= 0 ? doorField[firstDoor] : goal.getIndex();
+        if (!gridAStar.search(start.getIndex(), to, communicator)) {
+            return null;
+        }
+        ArrayDeque<Field> path = new ArrayDeque<Field>(gridAStar.getPathLength());
+        for (int i = 0; i < gridAStar.getPathLength(); i++) {
+            path.addLast(map.getField(gridAStar.getPathIndex(i)));
+        }
+        return path;
+    }
+
+//******************Private*************************
+    private void build() {
+        int capacity = occupancy.getIndexCapacity();
+        areaOf = new int[capacity];
+        doorOf = new int[capacity];
+        Arrays.fill(areaOf, -1);
+        Arrays.fill(doorOf, -1);
+
+        // areas and doors
+        List<Integer> doors = new ArrayList<Integer>();
+        int[] queue = new int[capacity];
+        for (int y = 0; y < map.getHeight(); y++) {
+            for (int x = 0; x < map.getWidth(); x++) {
+                int index = occupancy.getIndex(x, y);
+                if (occupancy.isDoor(index)) {
+                    doorOf[index] = doors.size();
+                    doors.add(index);
+                } else if (areaOf[index] < 0 && !occupancy.isObstacle(index)) {
+                    fillArea(index, areaCount++, queue);
+                }
+            }
+        }
+
+        int doorCount = doors.size();
+        doorField = new int[doorCount];
+        doorOpen = new boolean[doorCount];
+        doorSides = new int[doorCount][];
+        for (int d = 0; d < doorCount; d++) {
+            doorField[d] = doors.get(d);
+            Door door = map.getField(doorField[d]).getDoor();
+            doorOpen[d] = door != null && door.isOpen();
+        }
+
+        // sides
+        List<int[]> sides = new ArrayList<int[]>();
+        for (int d = 0; d < doorCount; d++) {
+            List<Integer> own = new ArrayList<Integer>(2);
+            for (int k : Neighbourhood.getSlots(neighbourhood.getMask(doorField[d]) & Neighbourhood.DIRECT)) {
+                int next = neighbourhood.getNeighbour(doorField[d], k);
+                if (areaOf[next] >= 0) {
+                    own.add(sides.size());
+                    sides.add(new int[]{d, areaOf[next], next});
+                }
+            }
+            doorSides[d] = toArray(own);
+        }
+        int sideCount = sides.size();
+        sideDoor = new int[sideCount];
+        sideArea = new int[sideCount];
+        sideField = new int[sideCount];
+        sideDistance = new int[sideCount][];
+        List<List<Integer>> byArea = new ArrayList<List<Integer>>(areaCount);
+        for (int a = 0; a < areaCount; a++) {
+            byArea.add(new ArrayList<Integer>());
+        }
+        for (int s = 0; s < sideCount; s++) {
+            sideDoor[s] = sides.get(s)[0];
+            sideArea[s] = sides.get(s)[1];
+            sideField[s] = sides.get(s)[2];
+            sideDistance[s] = measureArea(s, queue);
+            byArea.get(sideArea[s]).add(s);
+        }
+        areaSides = new int[areaCount][];
+        for (int a = 0; a < areaCount; a++) {
+            areaSides[a] = toArray(byArea.get(a));
+        }
+
+        // edges between the doors of each area
+        edgeTo = new int[doorCount][];
+        edgeCosts = new int[doorCount][];
+        for (int d = 0; d < doorCount; d++) {
+            List<Integer> to = new ArrayList<Integer>();
+            List<Integer> costs = new ArrayList<Integer>();
+            for (int s : doorSides[d]) {
+                for (int t : areaSides[sideArea[s]]) {
+                    if (sideDoor[t] != d) {
+                        to.add(sideDoor[t]);
+                        costs.add(sideDistance[s][sideField[t]] + 1);
+                    }
+                }
+            }
+            edgeTo[d] = toArray(to);
+            edgeCosts[d] = toArray(costs);
+        }
+
+    }
+
+    private void initSearch() {
+        int nodes = doorField.length + 1;
+        gridAStar = new GridAStar(map);
+        open = new IntHeap(nodes);
+        distance = new int[nodes];
+        parent = new int[nodes];
+        closed = new boolean[nodes];
+    }
+
+    private void fillArea(int start, int area, int[] queue) {
+        int head = 0;
+        int tail = 0;
+        areaOf[start] = area;
+        queue[tail++] = start;
+        while (head < tail) {
+            int actual = queue[head++];
+            for (int k : Neighbourhood.getSlots(neighbourhood.getMask(actual) & Neighbourhood.DIRECT)) {
+                int next = neighbourhood.getNeighbour(actual, k);
+                if (areaOf[next] < 0 && !occupancy.isDoor(next) && !occupancy.isObstacle(next)) {
+                    areaOf[next] = area;
+                    queue[tail++] = next;
+                }
+            }
+        }
+    }
+
+    /**
+     * Distances from the door of a side to all fields of the sides area.
+     */
+    private int[] measureArea(int side, int[] queue) {
+        int[] result = new int[areaOf.length];
+        Arrays.fill(result, -1);
+        int area = sideArea[side];
+        int head = 0;
+        int tail = 0;
+        result[sideField[side]] = 1;
+        queue[tail++] = sideField[side];
+        while (head < tail) {
+            int actual = queue[head++];
+            for (int k : Neighbourhood.getSlots(neighbourhood.getMask(actual) & Neighbourhood.DIRECT)) {
+                int next = neighbourhood.getNeighbour(actual, k);
+                if (areaOf[next] == area && result[next] < 0) {
+                    result[next] = result[actual] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Dijkstra on the doors, the goal being an extra node.
+     */
+    private int searchDoors(int start, int goal) {
+        int goalNode = doorField.length;
+        int goalArea = areaOf[goal];
+        open.clear();
+        Arrays.fill(closed, false);
+        Arrays.fill(distance, -1);
+
+        if (doorOf[start] >= 0) {
+            // standing in a door - its edges are the first steps
+            expand(doorOf[start], 0, -1, goal, goalArea);
+        } else {
+            for (int t : areaSides[areaOf[start]]) {
+                int d = sideDoor[t];
+                if (doorField[d] == goal) {
+                    reach(goalNode, sideDistance[t][start], -1);
+                } else if (doorOpen[d]) {
+                    reach(d, sideDistance[t][start], -1);
+                }
+            }
+        }
+
+        while (!open.isEmpty()) {
+            int d = open.poll();
+            closed[d] = true;
+            if (d == goalNode) {
+                int door = parent[goalNode];
+                while (door >= 0 && parent[door] >= 0) {
+                    door = parent[door];
+                }
+                firstDoor = door;
+                return distance[goalNode];
+            }
+            expand(d, distance[d], d, goal, goalArea);
+        }
+        return -1;
+    }
+
+    /**
+     * Reaches the neighbours of door d, and the goal if it is at one of the doors areas.
+     */
+    private void expand(int d, int costs, int from, int goal, int goalArea) {
+        int goalNode = doorField.length;
+        for (int i = 0; i < edgeTo[d].length; i++) {
+            int e = edgeTo[d][i];
+            if (doorField[e] == goal) {
+                reach(goalNode, costs + edgeCosts[d][i], from);
+            } else if (doorOpen[e]) {
+                reach(e, costs + edgeCosts[d][i], from);
+            }
+        }
+        if (goalArea >= 0) {
+            for (int s : doorSides[d]) {
+                if (sideArea[s] == goalArea) {
+                    reach(goalNode, costs + sideDistance[s][goal], from);
+                }
+            }
+        }
+    }
+
+    private void reach(int node, int costs, int from) {
+        if (closed[node]) {
+            return;
+        }
+        if (distance[node] < 0) {
+            distance[node] = costs;
+            parent[node] = from;
+            open.insert(node, costs);
+        } else if (costs < distance[node]) {
+            distance[node] = costs;
+            parent[node] = from;
+            open.decreaseKey(node, costs);
+        }
+    }
+
+    /**
+     * Within one area, only static obstacles count.
+     */
+    private int searchFields(int start, int goal) {
+        GridCommunicator communicator = new GridCommunicator() {
+
+            @Override
+            public boolean canEnter(int index) {
+                if (occupancy.isObstacle(index)) {
+                    return false;
+                }
+                return doorOf[index] < 0 || doorOpen[doorOf[index]];
+            }
+        };
+        if (!gridAStar.search(start, goal, communicator)) {
+            return -1;
+        }
+        return gridAStar.getPathLength() - 1;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] result = new int[list.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = list.get(i);
+        }
+        return result;
+    }
+
+//***********InterFace MapListener*******************
+    @Override
+    public void onUnitEntersField(Field field) {
+    }
+
+    @Override
+    public void onUnitLeavesField(Field field) {
+    }
+
+    @Override
+    public void onFieldRevealed(Field field) {
+    }
+
+    @Override
+    public void onDoorOpened(Door door) {
+        int d = doorOf[door.getField().getIndex()];
+        if (d >= 0) {
+            doorOpen[d] = true;
+        }
+    }
+
+    @Override
+    public void onRoomRevealed(Room room) {
+    }
+
+    @Override
+    public void onFieldTextureChanges(Field field) {
+    }
+}
@@ -14,6 +14,11 @@ public class AStar<T extends Knot> {
     private PriorityQueue<Path<T>> agenda;
     private Map<T, Integer> closedList;
     private Path<T> next;
+    /** path whose end is closest to the goal (by heuristic) */
+    private Path<T> best;
+    /** 0 for no limit */
+    private int maxExpansions = 0;
+    private boolean budgetExhausted = false;
 
     /**
      * Constructs the Data with a start T
@@ -23,9 +28,35 @@ public class AStar<T extends Knot> {
         this.closedList = new HashMap<T, Integer>();
         this.agenda = new PriorityQueue<Path<T>>();
         this.next = new Path<T>(start);
+        this.best = next;
         agenda.add(next);
     }
 
+    /**
+     * Limits the number of expansions of each {@link #getNextPath()} call.
+     * @param maxExpansions 0 for no limit
+     */
+    public void setMaxExpansions(int maxExpansions) {
+        this.maxExpansions = maxExpansions;
+    }
+
+    /**
+     * Whether the last {@link #getNextPath()} returned null because it ran out of expansions.
+     * @return
+     */
+    public boolean isBudgetExhausted() {
+        return budgetExhausted;
+    }
+
+    /**
+     * The path seen so far whose end is closest to the goal, e.g. to move
+     * into the right direction when the budget ran out.
+     * @return
+     */
+    public Path<T> getBestPath() {
+        return best;
+    }
+
     /**
      * Tries if T is a Goal
      * @param a T to be tested
@@ -66,6 +97,9 @@ public class AStar<T extends Knot> {
             throw new NullPointerException("Expand: Path is null");
         }
         T top = a.getTop();
+        if (top.getHeuristic() < best.getTop().getHeuristic()) {
+            best = a;
+        }
         closedList.put(top, a.getCosts());
         for (T successor : (ArrayDeque<T>) top.getSuccessors()) {
             if (closedList.get(successor) == null || closedList.get(successor) > a.getCosts()) {
@@ -79,8 +113,13 @@ public class AStar<T extends Knot> {
     }
     public Path<T> getNextPath() {
 
-
+        budgetExhausted = false;
+        int expansions = 0;
         while (!agenda.isEmpty()) {
+            if (maxExpansions > 0 && expansions++ >= maxExpansions) {
+                budgetExhausted = true;
+                return null;
+            }
             T top = next.getTop();
             if (isGoal(top)) {
                 Path<T> goal = next;
@@ -13,11 +13,19 @@ import java.util.ArrayDeque;
  *
  * @author Simon + Toni
  */
-public abstract class AbstractCommunicator implements Communicator {
+public abstract class AbstractCommunicator implements Communicator, GridCommunicator {
 
     private Map map;
     private int goalX, goalY;
     private AStar<SearchKnot> astar;
+    /** start of the last getPath call, for getNextPath */
+    private Field start;
+    private GridAStar gridAStar;
+    private JumpPointSearch jumpPointSearch;
+    /** whether getPath uses the jump point search */
+    private boolean jumping = false;
+    private int maxExpansions = 0;
+    private SearchStatus status = SearchStatus.UNREACHABLE;
 
     public AbstractCommunicator (Map map) {
         this.map = map;
@@ -47,10 +55,23 @@ public abstract class AbstractCommunicator implements Communicator {
         return new SearchKnot(field, getHeuristic(field), this);
     }
 
+    /**
+     * The paths after the one returned by {@link #getPath(Field, Field)}, shortest first.
+     * Uses the generic knot based {@link AStar}, which is set up on the first call.
+     * @return null if there are no more paths
+     */
     public ArrayDeque<Field> getNextPath() {
-        if (astar == null) {
+        if (start == null) {
             throw new RuntimeException("getNextPath: Astar not initialized");
         }
+        if (astar == null) {
+            newStart(start);
+            //Skip the path getPath already returned
+            if (astar.getNextPath() == null) {
+                return null;
+            }
+        }
+        astar.setMaxExpansions(maxExpansions);
         Path<SearchKnot> result = astar.getNextPath();
         if (result == null) {
             return null;
@@ -58,24 +79,100 @@ public abstract class AbstractCommunicator implements Communicator {
         return transformPathInField(result);
     }
 
+    /**
+     * Shortest path from start to goal, both included. If a search budget has been
+     * set and runs out, the best partial path, see {@link #getSearchStatus()}.
+     * @param start
+     * @param goal
+     * @return null if there is none
+     */
     public ArrayDeque<Field> getPath(Field start, Field goal) {
 
         //Setting up the goal for heuristic
         this.goalX = goal.getX();
         this.goalY = goal.getY();
-        //Resetting Astar with new Startposition
-        newStart(start);
-        //Find first way
-
-        Path<SearchKnot> result = astar.getNextPath();
-        if (result == null) {
-            return null;
+        this.start = start;
+        this.astar = null;
+        //Find first way on the field indices
+        GridSearch grid = getGridSearch();
+        if (grid.search(start.getIndex(), goal.getIndex(), this)) {
+            status = SearchStatus.FOUND;
+        } else {
+            status = grid == gridAStar ? gridAStar.getStatus() : SearchStatus.UNREACHABLE;
+            if (status != SearchStatus.BUDGET_EXHAUSTED) {
+                return null;
+            }
+        }
+        ArrayDeque<Field> path = new ArrayDeque<Field>(grid.getPathLength());
+        for (int i = 0; i < grid.getPathLength(); i++) {
+            path.addLast(map.getField(grid.getPathIndex(i)));
         }
-        ArrayDeque<Field> path = transformPathInField(result);
         return path;
 
     }
 
+    /**
+     * Limits the searches of {@link #getPath(Field, Field)} (the A* search, the jump
+     * point search has no budget) and the expansions of each {@link #getNextPath()}.
+     * @param maxExpansions maximum number of expansions, 0 for no limit
+     * @param maxNanos maximum duration of getPath in nanoseconds, 0 for no limit
+     */
+    public void setSearchBudget(int maxExpansions, long maxNanos) {
+        getGridAStar().setBudget(maxExpansions, maxNanos);
+        this.maxExpansions = maxExpansions;
+    }
+
+    /**
+     * How the last {@link #getPath(Field, Field)} ended.
+     * @return
+     */
+    public SearchStatus getSearchStatus() {
+        return status;
+    }
+
+    /**
+     * Let {@link #getPath(Field, Field)} use the {@link JumpPointSearch} instead of
+     * the {@link GridAStar}. Finds paths of the same length, expanding less on open maps.
+     * @param jumping
+     */
+    public void setJumpPointSearch(boolean jumping) {
+        this.jumping = jumping;
+    }
+
+    public boolean isJumpPointSearch() {
+        return jumping;
+    }
+
+    /**
+     * The grid search used by getPath, depending on {@link #setJumpPointSearch(boolean)}.
+     * @return
+     */
+    public GridSearch getGridSearch() {
+        return jumping ? getJumpPointSearch() : getGridAStar();
+    }
+
+    /**
+     * The jump point search, reused between calls.
+     * @return
+     */
+    public JumpPointSearch getJumpPointSearch() {
+        if (jumpPointSearch == null) {
+            jumpPointSearch = new JumpPointSearch(map);
+        }
+        return jumpPointSearch;
+    }
+
+    /**
+     * The A* grid search, reused between calls.
+     * @return
+     */
+    public GridAStar getGridAStar() {
+        if (gridAStar == null) {
+            gridAStar = new GridAStar(map);
+        }
+        return gridAStar;
+    }
+
 //***********InterFace Communicator*******************
     @Override
     public abstract int getTransitionCosts(Knot a, Knot b);
@@ -83,6 +180,10 @@ public abstract class AbstractCommunicator implements Communicator {
     @Override
     public abstract ArrayDeque<Knot> getSuccessors(Knot actual);
 
+//***********InterFace GridCommunicator*******************
+    @Override
+    public abstract boolean canEnter(int index);
+
 
     //******************Private*************************   
     private void newStart(Field field) {
@@ -0,0 +1,209 @@
+package de.d2dev.heroquest.engine.ai.astar;
+
+import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.Neighbourhood;
+import java.util.Arrays;
+
+/**
+ * Windowed cooperative A* (WHCA*). Searches in space and time: a state is a field
+ * index at a time step, a unit may move to a direct neighbour or wait. Fields
+ * reserved by other units at a time step in a {@link ReservationTable} can't be
+ * entered at that time step. The search looks {@code window} steps ahead; a state at
+ * the end of the window counts as done with its heuristic as remaining costs.<br>
+ * After a search the found path can be reserved, so the next unit routes around it.
+ * Like {@link GridAStar} all arrays are reused between searches.
+ *
+ * @author Simon + Toni
+ */
+public class CooperativeAStar {
+
+    private final Neighbourhood neighbourhood;
+    private final int capacity;
+    private IntHeap open;
+    /** costs from start by state (= depth * capacity + field index) */
+    private int[] g;
+    private int[] parent;
+    private int[] seen;
+    private int[] closed;
+    private int generation = 0;
+    private int window = -1;
+    private int[] path = new int[16];
+    private int pathLength = 0;
+    private boolean reachedGoal = false;
+    private int expansions = 0;
+
+    public CooperativeAStar(Map map) {
+        this.neighbourhood = map.getNeighbourhood();
+        this.capacity = map.getOccupancy().getIndexCapacity();
+    }
+
+//*******************************Getter/Setter********************************
+    /**
+     * Number of time steps of the last path found, plus one. Waiting repeats a field index.
+     * @return 0 if the last search failed
+     */
+    public int getPathLength() {
+        return pathLength;
+    }
+
+    /**
+     * Field index at time step i of the last path found, 0 being the start.
+     * @param i
+     * @return
+     */
+    public int getPathIndex(int i) {
+        return path[i];
+    }
+
+    /**
+     * Whether the last path ends at the goal or just at the end of the window.
+     * @return
+     */
+    public boolean hasReachedGoal() {
+        return reachedGoal;
+    }
+
+    public int getExpansions() {
+        return expansions;
+    }
+
+//****************Public Methods************************
+    /**
+     * Searches the best path of at most {@code window} steps towards the goal.
+     * @param start field index of the start
+     * @param goal field index of the goal, always enterable
+     * @param startTime time step at which the unit is at start
+     * @param window number of steps to look ahead
+     * @param communicator decides which fields may be entered at all
+     * @param heuristic estimated costs to the goal
+     * @param reservations reservations of the other units
+     * @param owner id of the unit, see {@link ReservationTable}
+     * @return true if a path has been found, see {@link #getPathLength()} and {@link #getPathIndex(int)}
+     */
+    public boolean search(int start, int goal, int startTime, int window, GridCommunicator communicator,
+            GridHeuristic heuristic, ReservationTable reservations, int owner) {
+        setWindow(window);
+        nextGeneration();
+        open.clear();
+        pathLength = 0;
+        reachedGoal = false;
+        expansions = 0;
+
+        g[start] = 0;
+        parent[start] = -1;
+        seen[start] = generation;
+        open.insert(start, heuristic.estimate(start));
+
+        while (!open.isEmpty()) {
+            int state = open.poll();
+            closed[state] = generation;
+            expansions++;
+
+            int depth = state / capacity;
+            int index = state - depth * capacity;
+            if (index == goal || depth == window) {
+                reconstruct(state);
+                reachedGoal = index == goal;
+                return true;
+            }
+
+            int time = startTime + depth + 1;
+            int base = (depth + 1) * capacity;
+            int costs = g[state] + 1;
+            int mask = neighbourhood.getMask(index) & Neighbourhood.DIRECT;
+            // k == 4 means waiting
+            for (int k = 0; k <= 4; k++) {
+                int next;
+                if (k == 4) {
+                    next = index;
+                } else if ((mask & (1 << k)) != 0) {
+                    next = neighbourhood.getNeighbour(index, k);
+                    if (next != goal && !communicator.canEnter(next)) {
+                        continue;
+                    }
+                } else {
+                    continue;
+                }
+                if (reservations.isReserved(next, time, owner)) {
+                    continue;
+                }
+                int successor = base + next;
+                if (closed[successor] == generation) {
+                    continue;
+                }
+                int f = costs + heuristic.estimate(next);
+                if (seen[successor] != generation) {
+                    seen[successor] = generation;
+                    g[successor] = costs;
+                    parent[successor] = state;
+                    open.insert(successor, f);
+                } else if (costs < g[successor]) {
+                    g[successor] = costs;
+                    parent[successor] = state;
+                    open.decreaseKey(successor, f);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reserves the first time steps of the last path found, starting at startTime.
+     * The last reserved field is reserved for good as the unit stays there.
+     * @param reservations
+     * @param startTime
+     * @param length number of time steps to reserve, less than {@link #getPathLength()}
+     * if the unit stops early, e.g. in front of the goal
+     * @param owner
+     */
+    public void reservePath(ReservationTable reservations, int startTime, int length, int owner) {
+        length = Math.min(length, pathLength);
+        for (int i = 0; i < length; i++) {
+            reservations.reserve(path[i], startTime + i, owner);
+            // the next time step too - nobody may follow into a field just left or swap with us
+            reservations.reserve(path[i], startTime + i + 1, owner);
+        }
+        if (length > 0) {
+            reservations.reserveFrom(path[length - 1], startTime + length - 1, owner);
+        }
+    }
+
+//******************Private*************************
+    private void setWindow(int window) {
+        if (window < 0) {
+            throw new IllegalArgumentException("setWindow: window < 0");
+        }
+        if (window <= this.window) {
+            return;
+        }
+        int states = (window + 1) * capacity;
+        this.open = new IntHeap(states);
+        this.g = new int[states];
+        this.parent = new int[states];
+        this.seen = new int[states];
+        this.closed = new int[states];
+        this.generation = 0;
+        this.window = window;
+    }
+
+    private void nextGeneration() {
+        generation++;
+        if (generation == 0) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(closed, 0);
+            generation = 1;
+        }
+    }
+
+    private void reconstruct(int state) {
+        int length = state / capacity + 1;
+        if (path.length < length) {
+            path = new int[Math.max(length, path.length * 2)];
+        }
+        for (int i = length - 1; i >= 0; i--) {
+            path[i] = state % capacity;
+            state = parent[state];
+        }
+        pathLength = length;
+    }
+}
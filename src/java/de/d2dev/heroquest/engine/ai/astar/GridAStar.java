@@ -0,0 +1,231 @@
+package de.d2dev.heroquest.engine.ai.astar;
+
+import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.Neighbourhood;
+import de.d2dev.heroquest.engine.game.OccupancyGrid;
+import java.util.Arrays;
+
+/**
+ * A* specialised for the 4-connected grid of a {@link Map}. Works on field indices only:
+ * the open list is an {@link IntHeap} with decrease-key, g-scores and parents are int arrays.
+ * All arrays are allocated once and reused between searches by stamping them with a
+ * search generation, so a search allocates nothing. The path is reconstructed only
+ * once the goal has been reached.<br>
+ * A search can be given a budget of expansions and/or time. If it runs out, the search
+ * stops with {@link SearchStatus#BUDGET_EXHAUSTED} and the path leads to the expanded
+ * field closest to the goal (by heuristic), so the time per search is bounded no
+ * matter how large the map is.
+ *
+ * @author Simon
+ */
+public class GridAStar implements GridSearch {
+
+    private final OccupancyGrid occupancy;
+    private final Neighbourhood neighbourhood;
+    private final IntHeap open;
+    /** costs from start by field index */
+    private final int[] g;
+    /** predecessor on the best known path by field index */
+    private final int[] parent;
+    /** generation in which g/parent have been written */
+    private final int[] seen;
+    /** generation in which the field has been expanded */
+    private final int[] closed;
+    private int generation = 0;
+    /** the last path found, from start to goal */
+    private int[] path;
+    private int pathLength = 0;
+    private int expansions = 0;
+    private SearchStatus status = SearchStatus.UNREACHABLE;
+    /** 0 for no limit */
+    private int maxExpansions = 0;
+    /** 0 for no limit */
+    private long maxNanos = 0;
+
+    public GridAStar(Map map) {
+        this.occupancy = map.getOccupancy();
+        this.neighbourhood = map.getNeighbourhood();
+        int capacity = occupancy.getIndexCapacity();
+        this.open = new IntHeap(capacity);
+        this.g = new int[capacity];
+        this.parent = new int[capacity];
+        this.seen = new int[capacity];
+        this.closed = new int[capacity];
+        this.path = new int[16];
+    }
+
+//*******************************Getter/Setter********************************
+    /**
+     * Number of fields on the last path found, including start and goal.
+     * @return 0 if the last search failed
+     */
+    @Override
+    public int getPathLength() {
+        return pathLength;
+    }
+
+    /**
+     * Field index of the i-th field on the last path found, 0 being the start.
+     * @param i
+     * @return
+     */
+    @Override
+    public int getPathIndex(int i) {
+        return path[i];
+    }
+
+    /**
+     * Costs of the last path found, the number of steps unless fields are weighted.
+     * @return
+     */
+    public int getPathCosts() {
+        return pathLength == 0 ? 0 : g[path[pathLength - 1]];
+    }
+
+    /**
+     * Number of fields expanded by the last search.
+     * @return
+     */
+    @Override
+    public int getExpansions() {
+        return expansions;
+    }
+
+    /**
+     * How the last search ended.
+     * @return
+     */
+    public SearchStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Limits the following searches.
+     * @param maxExpansions maximum number of expanded fields, 0 for no limit
+     * @param maxNanos maximum duration in nanoseconds, 0 for no limit
+     */
+    public void setBudget(int maxExpansions, long maxNanos) {
+        if (maxExpansions < 0 || maxNanos < 0) {
+            throw new IllegalArgumentException("setBudget: negative budget");
+        }
+        this.maxExpansions = maxExpansions;
+        this.maxNanos = maxNanos;
+    }
+
+    public int getMaxExpansions() {
+        return maxExpansions;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+//****************Public Methods************************
+    /**
+     * Searches a shortest path from start to goal. If the communicator is a
+     * {@link GridCostCommunicator}, fields may cost more than one step to enter.
+     * @param start field index of the start
+     * @param goal field index of the goal
+     * @param communicator decides which fields may be entered
+     * @return true if a path has been found, see {@link #getPathLength()} and {@link #getPathIndex(int)}.
+     * If the budget ran out, false with the best partial path, see {@link #getStatus()}.
+     */
+    @Override
+    public boolean search(int start, int goal, GridCommunicator communicator) {
+        nextGeneration();
+        open.clear();
+        pathLength = 0;
+        expansions = 0;
+        long deadline = maxNanos > 0 ? System.nanoTime() + maxNanos : 0;
+        int best = start;
+        int bestHeuristic = heuristic(start, goal);
+
+        g[start] = 0;
+        parent[start] = -1;
+        seen[start] = generation;
+        open.insert(start, heuristic(start, goal));
+        GridCostCommunicator costCommunicator = communicator instanceof GridCostCommunicator
+                ? (GridCostCommunicator) communicator : null;
+
+        while (!open.isEmpty()) {
+            int actual = open.poll();
+            closed[actual] = generation;
+            expansions++;
+
+            if (actual == goal) {
+                reconstruct(goal);
+                status = SearchStatus.FOUND;
+                return true;
+            }
+            int h = heuristic(actual, goal);
+            if (h < bestHeuristic) {
+                best = actual;
+                bestHeuristic = h;
+            }
+            if ((maxExpansions > 0 && expansions >= maxExpansions)
+                    || (deadline != 0 && (expansions & 63) == 0 && System.nanoTime() - deadline > 0)) {
+                reconstruct(best);
+                status = SearchStatus.BUDGET_EXHAUSTED;
+                return false;
+            }
+
+            for (int k : Neighbourhood.getSlots(neighbourhood.getMask(actual) & Neighbourhood.DIRECT)) {
+                int successor = neighbourhood.getNeighbour(actual, k);
+                if (closed[successor] == generation) {
+                    continue;
+                }
+                if (successor != goal && !communicator.canEnter(successor)) {
+                    continue;
+                }
+                int costs = g[actual] + 1;
+                if (costCommunicator != null && successor != goal) {
+                    costs += costCommunicator.getExtraCosts(successor);
+                }
+                if (seen[successor] != generation) {
+                    seen[successor] = generation;
+                    g[successor] = costs;
+                    parent[successor] = actual;
+                    open.insert(successor, costs + heuristic(successor, goal));
+                } else if (costs < g[successor]) {
+                    g[successor] = costs;
+                    parent[successor] = actual;
+                    open.decreaseKey(successor, costs + heuristic(successor, goal));
+                }
+            }
+        }
+        status = SearchStatus.UNREACHABLE;
+        return false;
+    }
+
+//******************Private*************************
+    private int heuristic(int index, int goal) {
+        return Math.abs(occupancy.getX(goal) - occupancy.getX(index))
+                + Math.abs(occupancy.getY(goal) - occupancy.getY(index));
+    }
+
+    private void nextGeneration() {
+        generation++;
+        if (generation == 0) {
+            // wrapped around, old stamps could be mistaken for new ones
+            Arrays.fill(seen, 0);
+            Arrays.fill(closed, 0);
+            generation = 1;
+        }
+    }
+
+    private void reconstruct(int goal) {
+        int length = 0;
+        for (int index = goal; index >= 0; index = parent[index]) {
+            length++;
+        }
+        if (path.length < length) {
+            path = new int[Math.max(length, path.length * 2)];
+        }
+        int index = goal;
+        for (int i = length - 1; i >= 0; i--) {
+            path[i] = index;
+            index = parent[index];
+        }
+        pathLength = length;
+    }
+}
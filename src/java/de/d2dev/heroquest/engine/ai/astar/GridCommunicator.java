@@ -0,0 +1,17 @@
+package de.d2dev.heroquest.engine.ai.astar;
+
+/**
+ * Tells the {@link GridAStar} which fields of the map it may enter.
+ *
+ * @author Simon
+ */
+public interface GridCommunicator {
+
+    /**
+     * Whether the search may enter the field with the given field index.
+     * The goal field is always entered, no matter what this method says.
+     * @param index field index, see {@link de.d2dev.heroquest.engine.game.Map#getFieldIndex(int, int)}
+     * @return
+     */
+    public boolean canEnter(int index);
+}
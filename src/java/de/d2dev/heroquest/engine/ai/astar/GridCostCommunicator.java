@@ -0,0 +1,18 @@
+package de.d2dev.heroquest.engine.ai.astar;
+
+/**
+ * A {@link GridCommunicator} for weighted searches: entering a field costs one step
+ * plus some extra costs, e.g. for fields that first have to be cleared.
+ *
+ * @author Simon + Toni
+ */
+public interface GridCostCommunicator extends GridCommunicator {
+
+    /**
+     * Costs on top of the step for entering the field with the given field index.
+     * Never asked for the goal field.
+     * @param index field index of an enterable field
+     * @return at least 0
+     */
+    public int getExtraCosts(int index);
+}
@@ -0,0 +1,15 @@
+package de.d2dev.heroquest.engine.ai.astar;
+
+/**
+ * Estimated costs from a field to the goal of a grid search. Must never overestimate.
+ *
+ * @author Simon
+ */
+public interface GridHeuristic {
+
+    /**
+     * @param index field index
+     * @return estimated costs to the goal, never more than the real costs
+     */
+    public int estimate(int index);
+}
@@ -0,0 +1,38 @@
+package de.d2dev.heroquest.engine.ai.astar;
+
+/**
+ * A shortest path search on the field indices of a map, see {@link GridAStar}
+ * and {@link JumpPointSearch}.
+ *
+ * @author Simon + Toni
+ */
+public interface GridSearch {
+
+    /**
+     * Searches a shortest path from start to goal.
+     * @param start field index of the start
+     * @param goal field index of the goal
+     * @param communicator decides which fields may be entered
+     * @return true if a path has been found, see {@link #getPathLength()} and {@link #getPathIndex(int)}
+     */
+    public boolean search(int start, int goal, GridCommunicator communicator);
+
+    /**
+     * Number of fields on the last path found, including start and goal.
+     * @return 0 if the last search failed
+     */
+    public int getPathLength();
+
+    /**
+     * Field index of the i-th field on the last path found, 0 being the start.
+     * @param i
+     * @return
+     */
+    public int getPathIndex(int i);
+
+    /**
+     * Number of nodes expanded by the last search.
+     * @return
+     */
+    public int getExpansions();
+}
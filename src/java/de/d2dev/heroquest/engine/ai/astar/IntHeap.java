@@ -0,0 +1,135 @@
+package de.d2dev.heroquest.engine.ai.astar;
+
+/**
+ * Binary min heap of int elements from {@code [0, capacity)} with int keys. Supports
+ * decrease-key and never allocates after construction.
+ *
+ * @author Simon
+ */
+public final class IntHeap {
+
+    /** heap ordered elements */
+    private final int[] heap;
+    /** key by element */
+    private final int[] keys;
+    /** heap position by element, only valid for contained elements */
+    private final int[] pos;
+    private int size;
+
+    /**
+     * @param capacity upper bound (exclusive) for the elements
+     */
+    public IntHeap(int capacity) {
+        this.heap = new int[capacity];
+        this.keys = new int[capacity];
+        this.pos = new int[capacity];
+        this.size = 0;
+    }
+
+//*******************************Getter/Setter********************************
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int element) {
+        int p = pos[element];
+        return p < size && heap[p] == element;
+    }
+
+    public int getKey(int element) {
+        return keys[element];
+    }
+
+//****************Public Methods************************
+    /**
+     * Removes all elements in O(1)
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Adds an element that is not yet contained
+     * @param element
+     * @param key
+     */
+    public void insert(int element, int key) {
+        keys[element] = key;
+        heap[size] = element;
+        pos[element] = size;
+        siftUp(size++);
+    }
+
+    /**
+     * Lowers the key of a contained element
+     * @param element
+     * @param key must not be greater than the current key
+     */
+    public void decreaseKey(int element, int key) {
+        keys[element] = key;
+        siftUp(pos[element]);
+    }
+
+    /**
+     * Removes and returns the element with the smallest key
+     * @return
+     */
+    public int poll() {
+        if (size == 0) {
+            throw new IllegalStateException("poll: Heap is empty");
+        }
+        int top = heap[0];
+        int last = heap[--size];
+        if (size > 0) {
+            heap[0] = last;
+            pos[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+//******************Private*************************
+    private void siftUp(int i) {
+        int element = heap[i];
+        int key = keys[element];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            int p = heap[parent];
+            if (keys[p] <= key) {
+                break;
+            }
+            heap[i] = p;
+            pos[p] = i;
+            i = parent;
+        }
+        heap[i] = element;
+        pos[element] = i;
+    }
+
+    private void siftDown(int i) {
+        int element = heap[i];
+        int key = keys[element];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int c = heap[child];
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[c]) {
+                child = right;
+                c = heap[child];
+            }
+            if (key <= keys[c]) {
+                break;
+            }
+            heap[i] = c;
+            pos[c] = i;
+            i = child;
+        }
+        heap[i] = element;
+        pos[element] = i;
+    }
+}
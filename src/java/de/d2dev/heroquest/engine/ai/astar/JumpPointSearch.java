@@ -0,0 +1,261 @@
+package de.d2dev.heroquest.engine.ai.astar;
+
+import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.Neighbourhood;
+import de.d2dev.heroquest.engine.game.OccupancyGrid;
+import java.util.Arrays;
+
+/**
+ * Jump Point Search for the 4-connected grid of a {@link Map}. Finds paths as short as
+ * {@link GridAStar}, but instead of expanding every field of a corridor or room it jumps
+ * along straight lines and only puts jump points into the open list:<ul>
+ * <li>a horizontal jump stops at the goal and at fields with a forced neighbour, i.e. a
+ * free field above (below) whose predecessor has a blocked field above (below)</li>
+ * <li>a vertical jump stops at the goal, at fields with a forced neighbour to the left or
+ * right and at fields from where a horizontal jump finds a jump point</li></ul>
+ * A jump point reached horizontally continues horizontally and turns to its forced
+ * neighbours only; one reached vertically continues vertically or turns left or right.<br>
+ * All steps cost the same, {@link GridCostCommunicator} costs are ignored. Like the
+ * {@link GridAStar} all arrays are allocated once and reused.
+ *
+ * @author Simon + Toni
+ */
+public class JumpPointSearch implements GridSearch {
+
+    private static final byte ANY = -1;
+
+    private final OccupancyGrid occupancy;
+    private final Neighbourhood neighbourhood;
+    private final IntHeap open;
+    private final int[] g;
+    private final int[] parent;
+    /** direction in which a jump point has been reached, ANY for the start */
+    private final byte[] direction;
+    private final int[] seen;
+    private final int[] closed;
+    private int generation = 0;
+    private int[] path = new int[16];
+    private int pathLength = 0;
+    private int expansions = 0;
+    private int scanned = 0;
+
+    /** the running search */
+    private int goal;
+    private GridCommunicator communicator;
+
+    public JumpPointSearch(Map map) {
+        this.occupancy = map.getOccupancy();
+        this.neighbourhood = map.getNeighbourhood();
+        int capacity = occupancy.getIndexCapacity();
+        this.open = new IntHeap(capacity);
+        this.g = new int[capacity];
+        this.parent = new int[capacity];
+        this.direction = new byte[capacity];
+        this.seen = new int[capacity];
+        this.closed = new int[capacity];
+    }
+
+//*******************************Getter/Setter********************************
+    @Override
+    public int getPathLength() {
+        return pathLength;
+    }
+
+    @Override
+    public int getPathIndex(int i) {
+        return path[i];
+    }
+
+    /**
+     * Number of jump points expanded by the last search.
+     * @return
+     */
+    @Override
+    public int getExpansions() {
+        return expansions;
+    }
+
+    /**
+     * Number of fields looked at while jumping in the last search.
+     * @return
+     */
+    public int getScannedFields() {
+        return scanned;
+    }
+
+//****************Public Methods************************
+    @Override
+    public boolean search(int start, int goal, GridCommunicator communicator) {
+        this.goal = goal;
+        this.communicator = communicator;
+        nextGeneration();
+        open.clear();
+        pathLength = 0;
+        expansions = 0;
+        scanned = 0;
+
+        g[start] = 0;
+        parent[start] = -1;
+        direction[start] = ANY;
+        seen[start] = generation;
+        open.insert(start, heuristic(start));
+
+        try {
+            while (!open.isEmpty()) {
+                int actual = open.poll();
+                closed[actual] = generation;
+                expansions++;
+
+                if (actual == goal) {
+                    reconstruct(goal);
+                    return true;
+                }
+
+                int from = direction[actual];
+                if (from == ANY) {
+                    for (int k = 0; k < 4; k++) {
+                        jump(actual, k);
+                    }
+                } else if (isHorizontal(from)) {
+                    jump(actual, from);
+                    int previous = neighbourhood.getNeighbour(actual, Neighbourhood.getOpposite(from));
+                    if (isForced(previous, actual, Neighbourhood.UP)) {
+                        jump(actual, Neighbourhood.UP);
+                    }
+                    if (isForced(previous, actual, Neighbourhood.DOWN)) {
+                        jump(actual, Neighbourhood.DOWN);
+                    }
+                } else {
+                    jump(actual, from);
+                    jump(actual, Neighbourhood.LEFT);
+                    jump(actual, Neighbourhood.RIGHT);
+                }
+            }
+            return false;
+        } finally {
+            this.communicator = null;
+        }
+    }
+
+//******************Private*************************
+    /**
+     * Jumps from actual into direction k and adds the jump point found to the open list.
+     */
+    private void jump(int actual, int k) {
+        int next = isHorizontal(k) ? jumpHorizontal(actual, k) : jumpVertical(actual, k);
+        if (next < 0 || closed[next] == generation) {
+            return;
+        }
+        int costs = g[actual] + distance(actual, next);
+        if (seen[next] != generation) {
+            seen[next] = generation;
+            g[next] = costs;
+            parent[next] = actual;
+            direction[next] = (byte) k;
+            open.insert(next, costs + heuristic(next));
+        } else if (costs < g[next]) {
+            g[next] = costs;
+            parent[next] = actual;
+            direction[next] = (byte) k;
+            open.decreaseKey(next, costs + heuristic(next));
+        }
+    }
+
+    /**
+     * @return the next jump point to the left or right, -1 if there is none
+     */
+    private int jumpHorizontal(int index, int k) {
+        while (true) {
+            int previous = index;
+            index = neighbourhood.getNeighbour(index, k);
+            scanned++;
+            if (!isFree(index)) {
+                return -1;
+            }
+            if (index == goal) {
+                return index;
+            }
+            if (isForced(previous, index, Neighbourhood.UP) || isForced(previous, index, Neighbourhood.DOWN)) {
+                return index;
+            }
+        }
+    }
+
+    /**
+     * @return the next jump point upwards or downwards, -1 if there is none
+     */
+    private int jumpVertical(int index, int k) {
+        while (true) {
+            int previous = index;
+            index = neighbourhood.getNeighbour(index, k);
+            scanned++;
+            if (!isFree(index)) {
+                return -1;
+            }
+            if (index == goal) {
+                return index;
+            }
+            if (isForced(previous, index, Neighbourhood.LEFT) || isForced(previous, index, Neighbourhood.RIGHT)) {
+                return index;
+            }
+            if (jumpHorizontal(index, Neighbourhood.LEFT) >= 0 || jumpHorizontal(index, Neighbourhood.RIGHT) >= 0) {
+                return index;
+            }
+        }
+    }
+
+    /**
+     * Whether the side neighbour of index is free while the one of previous is not.
+     */
+    private boolean isForced(int previous, int index, int side) {
+        return isFree(neighbourhood.getNeighbour(index, side))
+                && !isFree(neighbourhood.getNeighbour(previous, side));
+    }
+
+    private boolean isFree(int index) {
+        return index >= 0 && (index == goal || communicator.canEnter(index));
+    }
+
+    private static boolean isHorizontal(int k) {
+        return k == Neighbourhood.LEFT || k == Neighbourhood.RIGHT;
+    }
+
+    private int distance(int a, int b) {
+        return Math.abs(occupancy.getX(a) - occupancy.getX(b)) + Math.abs(occupancy.getY(a) - occupancy.getY(b));
+    }
+
+    private int heuristic(int index) {
+        return distance(index, goal);
+    }
+
+    private void nextGeneration() {
+        generation++;
+        if (generation == 0) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(closed, 0);
+            generation = 1;
+        }
+    }
+
+    /**
+     * Walks back the jump points and fills in the fields between them.
+     */
+    private void reconstruct(int goal) {
+        int length = g[goal] + 1;
+        if (path.length < length) {
+            path = new int[Math.max(length, path.length * 2)];
+        }
+        int i = length - 1;
+        int index = goal;
+        path[i] = index;
+        while (parent[index] >= 0) {
+            int back = Neighbourhood.getOpposite(direction[index]);
+            int jumpPoint = parent[index];
+            while (index != jumpPoint) {
+                index = neighbourhood.getNeighbour(index, back);
+                path[--i] = index;
+            }
+        }
+        pathLength = length;
+    }
+}
@@ -0,0 +1,162 @@
+package de.d2dev.heroquest.engine.ai.astar;
+
+import java.util.Arrays;
+
+/**
+ * Space-time reservation table for cooperative pathfinding. A reservation says that a
+ * field (given by its field index) is occupied by a unit (given by an owner id) at a time
+ * step. Additionally a field can be reserved from a time step on, e.g. where a unit stops.<br>
+ * Timed reservations live in an open addressing hash table of primitive keys, so
+ * reserving and looking up allocate nothing. {@link #clear()} is O(1) thanks to
+ * generation stamps, so one table can be reused for a whole round.
+ *
+ * @author Simon + Toni
+ */
+public class ReservationTable {
+
+    private static final int NONE = -1;
+
+    /** hash table of (index, time) keys */
+    private long[] keys;
+    private int[] owners;
+    /** generation in which a slot has been written, older slots are empty */
+    private int[] stamps;
+    private int size = 0;
+    private int generation = 1;
+
+    /** time step from which a field index is reserved for good, by field index */
+    private int[] foreverFrom;
+    private int[] foreverOwner;
+    private int[] foreverStamps;
+
+    /**
+     * @param capacity upper bound (exclusive) for the field indices, see
+     * {@link de.d2dev.heroquest.engine.game.OccupancyGrid#getIndexCapacity()}
+     */
+    public ReservationTable(int capacity) {
+        this.keys = new long[256];
+        this.owners = new int[256];
+        this.stamps = new int[256];
+        this.foreverFrom = new int[capacity];
+        this.foreverOwner = new int[capacity];
+        this.foreverStamps = new int[capacity];
+    }
+
+//****************Public Methods************************
+    /**
+     * Removes all reservations.
+     */
+    public void clear() {
+        size = 0;
+        generation++;
+        if (generation == 0) {
+            Arrays.fill(stamps, 0);
+            Arrays.fill(foreverStamps, 0);
+            generation = 1;
+        }
+    }
+
+    /**
+     * Reserves a field at a time step.
+     * @param index field index
+     * @param time time step
+     * @param owner id of the reserving unit
+     */
+    public void reserve(int index, int time, int owner) {
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+        }
+        long key = key(index, time);
+        int slot = find(key);
+        if (stamps[slot] != generation) {
+            stamps[slot] = generation;
+            keys[slot] = key;
+            size++;
+        }
+        owners[slot] = owner;
+    }
+
+    /**
+     * Reserves a field from a time step on.
+     * @param index field index
+     * @param time first reserved time step
+     * @param owner id of the reserving unit
+     */
+    public void reserveFrom(int index, int time, int owner) {
+        foreverStamps[index] = generation;
+        foreverFrom[index] = time;
+        foreverOwner[index] = owner;
+    }
+
+    /**
+     * Whether a field is reserved by some other unit at the given time step.
+     * @param index field index
+     * @param time time step
+     * @param owner id of the asking unit, its own reservations don't count
+     * @return
+     */
+    public boolean isReserved(int index, int time, int owner) {
+        int other = getOwner(index, time);
+        return other != NONE && other != owner;
+    }
+
+    /**
+     * Who reserved a field at a time step.
+     * @param index
+     * @param time
+     * @return -1 if nobody did
+     */
+    public int getOwner(int index, int time) {
+        if (foreverStamps[index] == generation && foreverFrom[index] <= time) {
+            return foreverOwner[index];
+        }
+        int slot = find(key(index, time));
+        if (stamps[slot] != generation) {
+            return NONE;
+        }
+        return owners[slot];
+    }
+
+    /**
+     * Number of timed reservations.
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+//******************Private*************************
+    private static long key(int index, int time) {
+        return ((long) index << 32) | (time & 0xFFFFFFFFL);
+    }
+
+    /**
+     * The slot holding key or the empty slot where it belongs (linear probing).
+     */
+    private int find(long key) {
+        int mask = keys.length - 1;
+        long h = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (h >>> 32) & mask;
+        while (stamps[slot] == generation && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldOwners = owners;
+        int[] oldStamps = stamps;
+        keys = new long[oldKeys.length * 2];
+        owners = new int[oldKeys.length * 2];
+        stamps = new int[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldStamps[i] == generation) {
+                int slot = find(oldKeys[i]);
+                stamps[slot] = generation;
+                keys[slot] = oldKeys[i];
+                owners[slot] = oldOwners[i];
+            }
+        }
+    }
+}
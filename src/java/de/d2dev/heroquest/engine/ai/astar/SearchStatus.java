@@ -0,0 +1,16 @@
+package de.d2dev.heroquest.engine.ai.astar;
+
+/**
+ * How a budgeted search ended.
+ *
+ * @author Simon + Toni
+ */
+public enum SearchStatus {
+
+    /** the goal has been reached */
+    FOUND,
+    /** every reachable field has been expanded without reaching the goal */
+    UNREACHABLE,
+    /** the budget ran out first, the path is the best partial path */
+    BUDGET_EXHAUSTED
+}
@@ -0,0 +1,38 @@
+package de.d2dev.heroquest.engine.ai.astar.tests;
+
+import de.d2dev.heroquest.engine.ai.FindPath;
+import de.d2dev.heroquest.engine.ai.astar.GridAStar;
+import de.d2dev.heroquest.engine.game.Field;
+import de.d2dev.heroquest.engine.game.Map;
+import java.util.ArrayDeque;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Simon + Toni
+ */
+public class GridAStarTest {
+
+    @Test
+    public void gridAStar() throws Exception {
+        Map map = new Map(10, 10);
+        // wall with a gap at the bottom
+        for (int y = 0; y < 9; y++) {
+            map.getField(5, y).setWall(true);
+        }
+
+        FindPath findPath = new FindPath(map);
+        ArrayDeque<Field> path = findPath.getPath(map.getField(0, 0), map.getField(9, 0));
+        assertNotNull(path);
+        assertEquals(28, path.size());
+        assertSame(map.getField(0, 0), path.getFirst());
+        assertSame(map.getField(9, 0), path.getLast());
+
+        // the search is reused
+        GridAStar grid = findPath.getGridAStar();
+        map.getField(5, 9).setWall(true);
+        assertNull(findPath.getPath(map.getField(0, 0), map.getField(9, 0)));
+        assertEquals(0, grid.getPathLength());
+    }
+}
@@ -0,0 +1,48 @@
+package de.d2dev.heroquest.engine.ai.astar.tests;
+
+import de.d2dev.heroquest.engine.ai.FindPath;
+import de.d2dev.heroquest.engine.ai.astar.GridAStar;
+import de.d2dev.heroquest.engine.ai.astar.JumpPointSearch;
+import de.d2dev.heroquest.engine.game.Field;
+import de.d2dev.heroquest.engine.game.Map;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Simon + Toni
+ */
+public class JumpPointSearchTest {
+
+    @Test
+    public void jumpPointSearch() throws Exception {
+        Random random = new Random(42);
+        Map map = new Map(24, 16);
+        for (int x = 0; x < 24; x++) {
+            for (int y = 0; y < 16; y++) {
+                map.getField(x, y).setWall(random.nextInt(4) == 0);
+            }
+        }
+        FindPath findPath = new FindPath(map);
+        GridAStar grid = findPath.getGridAStar();
+        JumpPointSearch jps = findPath.getJumpPointSearch();
+
+        for (int i = 0; i < 500; i++) {
+            int start = map.getFieldIndex(random.nextInt(24), random.nextInt(16));
+            int goal = map.getFieldIndex(random.nextInt(24), random.nextInt(16));
+            assertEquals(grid.search(start, goal, findPath), jps.search(start, goal, findPath));
+            assertEquals(grid.getPathLength(), jps.getPathLength());
+            // the path is connected
+            for (int j = 1; j < jps.getPathLength(); j++) {
+                Field a = map.getField(jps.getPathIndex(j - 1));
+                Field b = map.getField(jps.getPathIndex(j));
+                assertEquals(1, Math.abs(a.getX() - b.getX()) + Math.abs(a.getY() - b.getY()));
+            }
+        }
+
+        // selectable for getPath
+        findPath.setJumpPointSearch(true);
+        assertSame(jps, findPath.getGridSearch());
+    }
+}
@@ -0,0 +1,36 @@
+package de.d2dev.heroquest.engine.ai.astar.tests;
+
+import de.d2dev.heroquest.engine.ai.ReachableFields;
+import de.d2dev.heroquest.engine.game.Hero;
+import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.UnitFactory;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Simon + Toni
+ */
+public class ReachableFieldsTest {
+
+    @Test
+    public void reachableWithin() throws Exception {
+        Map map = new Map(10, 10);
+        UnitFactory factory = new UnitFactory();
+        Hero barbarian = factory.createBarbarian(map.getField(0, 0));
+        factory.createOrc(map.getField(1, 0));
+
+        ReachableFields reachable = new ReachableFields(map);
+        reachable.reachableWithin(barbarian, 2);
+        assertEquals(4, reachable.size());
+        assertEquals(0, reachable.getDistance(map.getFieldIndex(0, 0)));
+        assertEquals(2, reachable.getDistance(map.getFieldIndex(1, 1)));
+        assertEquals(-1, reachable.getDistance(map.getFieldIndex(1, 0)));
+        assertFalse(reachable.isReachable(map.getFieldIndex(2, 1)));
+
+        // the buffers are reused
+        reachable.reachableWithin(barbarian, 1);
+        assertEquals(2, reachable.size());
+        assertFalse(reachable.isReachable(map.getFieldIndex(1, 1)));
+    }
+}
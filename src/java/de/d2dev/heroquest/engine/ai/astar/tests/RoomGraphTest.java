@@ -0,0 +1,77 @@
+package de.d2dev.heroquest.engine.ai.astar.tests;
+
+import de.d2dev.heroquest.engine.ai.AIUtility;
+import de.d2dev.heroquest.engine.ai.FindPath;
+import de.d2dev.heroquest.engine.ai.RoomGraph;
+import de.d2dev.heroquest.engine.ai.Target;
+import de.d2dev.heroquest.engine.game.Field;
+import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.Monster;
+import de.d2dev.heroquest.engine.game.UnitFactory;
+import java.util.ArrayDeque;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Simon + Toni
+ */
+public class RoomGraphTest {
+
+    @Test
+    public void roomGraph() throws Exception {
+        // two halves, separated by a wall with a door in the middle
+        Map map = new Map(13, 5);
+        for (int y = 0; y < 5; y++) {
+            map.getField(6, y).setWall(true);
+        }
+        Field door = map.getField(6, 2);
+        door.setDoor(true);
+        RoomGraph graph = new RoomGraph(map);
+        map.addListener(graph);
+        assertEquals(2, graph.getAreaCount());
+        assertEquals(1, graph.getDoorCount());
+
+        int start = map.getFieldIndex(0, 0);
+        int goal = map.getFieldIndex(12, 4);
+        assertEquals(-1, graph.getDistance(start, goal));
+        assertEquals(8, graph.getDistance(start, door.getIndex()));
+
+        door.getDoor().open();
+        assertEquals(16, graph.getDistance(start, goal));
+        assertEquals(door.getIndex(), graph.getFirstDoorField());
+
+        ArrayDeque<Field> leg = graph.getFirstLeg(map.getField(0, 0), map.getField(12, 4), new FindPath(map));
+        assertEquals(9, leg.size());
+        assertSame(door, leg.getLast());
+    }
+
+    @Test
+    public void findWayEndsAtTheFirstDoor() throws Exception {
+        // two halves, separated by a wall with an open door in the middle
+        Map map = new Map(13, 5);
+        for (int y = 0; y < 5; y++) {
+            map.getField(6, y).setWall(true);
+        }
+        Field door = map.getField(6, 2);
+        door.setDoor(true);
+        door.getDoor().open();
+        UnitFactory factory = new UnitFactory();
+        Monster monster = factory.createGoblin(map.getField(0, 0));
+        factory.createBarbarian(map.getField(12, 4));
+        RoomGraph graph = new RoomGraph(map);
+        map.addListener(graph);
+
+        AIUtility utility = new AIUtility(map);
+        Target whole = utility.findWay(monster, map.getHeroes().get(0));
+        assertEquals(17, whole.getPathToMonster().size());
+
+        // a copy for another thread finds the same
+        utility.setRoomGraph(new RoomGraph(graph));
+        Target leg = utility.findWay(monster, map.getHeroes().get(0));
+        assertSame(door, leg.getPathToMonster().getLast());
+        assertEquals(9, leg.getPathToMonster().size());
+        assertEquals(whole.getEstimateCost(), leg.getEstimateCost());
+        assertSame(map.getHeroes().get(0), leg.getUnit());
+    }
+}
@@ -0,0 +1,45 @@
+package de.d2dev.heroquest.engine.ai.astar.tests;
+
+import de.d2dev.heroquest.engine.ai.FindPath;
+import de.d2dev.heroquest.engine.ai.astar.SearchStatus;
+import de.d2dev.heroquest.engine.game.Field;
+import de.d2dev.heroquest.engine.game.Map;
+import java.util.ArrayDeque;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Simon + Toni
+ */
+public class SearchBudgetTest {
+
+    @Test
+    public void searchBudget() throws Exception {
+        // a large open map with a walled in goal - without a budget the whole map is searched
+        Map map = new Map(60, 40);
+        Field start = map.getField(0, 20);
+        Field goal = map.getField(50, 20);
+        for (Field neighbour : goal.getNeighbours()) {
+            neighbour.setWall(true);
+        }
+        FindPath findPath = new FindPath(map);
+        assertNull(findPath.getPath(start, goal));
+        assertEquals(SearchStatus.UNREACHABLE, findPath.getSearchStatus());
+        assertTrue(findPath.getGridAStar().getExpansions() > 2000);
+
+        findPath.setSearchBudget(100, 0);
+        ArrayDeque<Field> path = findPath.getPath(start, goal);
+        assertEquals(SearchStatus.BUDGET_EXHAUSTED, findPath.getSearchStatus());
+        assertEquals(100, findPath.getGridAStar().getExpansions());
+        // the best partial path heads for the goal
+        assertNotNull(path);
+        assertSame(start, path.getFirst());
+        assertTrue(path.getLast().getX() > 40);
+
+        findPath.setSearchBudget(0, 0);
+        goal.getNeighbours().get(0).setWall(false);
+        assertNotNull(findPath.getPath(start, goal));
+        assertEquals(SearchStatus.FOUND, findPath.getSearchStatus());
+    }
+}
@@ -0,0 +1,44 @@
+package de.d2dev.heroquest.engine.ai.mcts;
+
+/**
+ * One move+attack sequence the acting monster can choose: walk along a path, then
+ * attack a hero next to the destination or not.
+ *
+ * @author Simon + Toni
+ */
+public final class Candidate {
+
+    /** field indices from the start to the destination */
+    private final int[] path;
+    /** unit number of the hero to attack, -1 for none */
+    private final int target;
+
+    Candidate(int[] path, int target) {
+        this.path = path;
+        this.target = target;
+    }
+
+//*******************************Getter/Setter********************************
+    public int getPathLength() {
+        return path.length;
+    }
+
+    /**
+     * @param i
+     * @return field index of the i-th field of the path, 0 being the start
+     */
+    public int getPathIndex(int i) {
+        return path[i];
+    }
+
+    public int getDestination() {
+        return path[path.length - 1];
+    }
+
+    /**
+     * @return unit number (see {@link CombatState}) of the hero to attack, -1 for none
+     */
+    public int getTarget() {
+        return target;
+    }
+}
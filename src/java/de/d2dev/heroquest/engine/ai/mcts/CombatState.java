@@ -0,0 +1,263 @@
+package de.d2dev.heroquest.engine.ai.mcts;
+
+import de.d2dev.heroquest.engine.game.DiceSource;
+import de.d2dev.heroquest.engine.game.Hero;
+import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.Monster;
+import de.d2dev.heroquest.engine.game.Neighbourhood;
+import de.d2dev.heroquest.engine.game.OccupancyGrid;
+import de.d2dev.heroquest.engine.game.Unit;
+import java.util.List;
+
+/**
+ * A compact copy of the fight on a {@link Map}: the fields blocked by walls, objects and
+ * closed doors, and for every unit its field, body force and dice. Only positions and
+ * body forces change, they are held in a few small arrays, so a state is copied with
+ * a handful of array copies. The blocked fields and the unit values are shared by all
+ * copies.<br>
+ * Fights follow the classical rules: attack dice show a skull on 3 of 6 sites, heroes
+ * defend on 2, monsters on 1.
+ *
+ * @author Simon + Toni
+ */
+public final class CombatState {
+
+    private final Neighbourhood neighbourhood;
+    /** fields blocked by walls, objects and closed doors - not by units */
+    private final long[] blocked;
+    private final Unit[] units;
+    private final boolean[] hero;
+    private final int[] attackDice;
+    private final int[] defenseDice;
+    /** field tempo of monsters, number of movement dice of heroes */
+    private final int[] tempo;
+    /** field index by unit, -1 for dead units */
+    private final int[] field;
+    private final int[] body;
+    /** fields with a living unit */
+    private final long[] occupied;
+
+    /**
+     * A state of the given map as it is now.
+     * @param map
+     */
+    public CombatState(Map map) {
+        OccupancyGrid occupancy = map.getOccupancy();
+        this.neighbourhood = map.getNeighbourhood();
+        int capacity = occupancy.getIndexCapacity();
+        this.blocked = new long[(capacity + 63) >>> 6];
+        this.occupied = new long[blocked.length];
+        for (int index = 0; index < capacity; index++) {
+            if (map.getField(index) != null && occupancy.isBlocked(index) && !occupancy.hasUnit(index)) {
+                blocked[index >>> 6] |= 1L << index;
+            }
+        }
+
+        List<Unit> living = map.getUnits();
+        int n = living.size();
+        this.units = living.toArray(new Unit[n]);
+        this.hero = new boolean[n];
+        this.attackDice = new int[n];
+        this.defenseDice = new int[n];
+        this.tempo = new int[n];
+        this.field = new int[n];
+        this.body = new int[n];
+        for (int u = 0; u < n; u++) {
+            Unit unit = units[u];
+            hero[u] = unit.isHero();
+            attackDice[u] = unit.getNumAttackDices();
+            defenseDice[u] = unit.getNumDefenseDices();
+            if (unit.isHero()) {
+                tempo[u] = ((Hero) unit).getDiceTempo();
+            } else if (unit.isMonster()) {
+                tempo[u] = ((Monster) unit).getFieldTempo();
+            }
+            field[u] = unit.getField().getIndex();
+            body[u] = unit.getBodyForce();
+            occupied[field[u] >>> 6] |= 1L << field[u];
+        }
+    }
+
+    private CombatState(CombatState other) {
+        this.neighbourhood = other.neighbourhood;
+        this.blocked = other.blocked;
+        this.units = other.units;
+        this.hero = other.hero;
+        this.attackDice = other.attackDice;
+        this.defenseDice = other.defenseDice;
+        this.tempo = other.tempo;
+        this.field = other.field.clone();
+        this.body = other.body.clone();
+        this.occupied = other.occupied.clone();
+    }
+
+//*******************************Getter/Setter********************************
+    public Neighbourhood getNeighbourhood() {
+        return neighbourhood;
+    }
+
+    public int getNumUnits() {
+        return units.length;
+    }
+
+    /**
+     * The unit on the map.
+     * @param u unit number
+     * @return
+     */
+    public Unit getUnit(int u) {
+        return units[u];
+    }
+
+    /**
+     * @param unit
+     * @return the number of the unit, -1 if it is not part of the state
+     */
+    public int getUnitNumber(Unit unit) {
+        for (int u = 0; u < units.length; u++) {
+            if (units[u] == unit) {
+                return u;
+            }
+        }
+        return -1;
+    }
+
+    public boolean isHero(int u) {
+        return hero[u];
+    }
+
+    public boolean isAlive(int u) {
+        return field[u] >= 0;
+    }
+
+    /**
+     * @param u
+     * @return field index, -1 if the unit is dead
+     */
+    public int getField(int u) {
+        return field[u];
+    }
+
+    public int getBody(int u) {
+        return body[u];
+    }
+
+    public int getTempo(int u) {
+        return tempo[u];
+    }
+
+    /**
+     * Sum of the body forces of the living heroes or monsters.
+     * @param heroes
+     * @return
+     */
+    public int getBodyTotal(boolean heroes) {
+        int total = 0;
+        for (int u = 0; u < units.length; u++) {
+            if (hero[u] == heroes && field[u] >= 0) {
+                total += body[u];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * The fight is over once all heroes or all monsters are dead.
+     * @return
+     */
+    public boolean isOver() {
+        return getBodyTotal(true) == 0 || getBodyTotal(false) == 0;
+    }
+
+    /**
+     * Can a unit step onto the field?
+     * @param index field index, may be -1
+     * @return
+     */
+    public boolean isFree(int index) {
+        return index >= 0 && ((blocked[index >>> 6] | occupied[index >>> 6]) & (1L << index)) == 0;
+    }
+
+    /**
+     * Could a unit step onto the field if the units made room?
+     * @param index field index, may be -1
+     * @return
+     */
+    public boolean isPassable(int index) {
+        return index >= 0 && (blocked[index >>> 6] & (1L << index)) == 0;
+    }
+
+    /**
+     * @param index
+     * @return the living unit on the field, -1 if there is none
+     */
+    public int getUnitAt(int index) {
+        if ((occupied[index >>> 6] & (1L << index)) == 0) {
+            return -1;
+        }
+        for (int u = 0; u < units.length; u++) {
+            if (field[u] == index) {
+                return u;
+            }
+        }
+        return -1;
+    }
+
+//****************Public Methods************************
+    /**
+     * An independent copy.
+     * @return
+     */
+    public CombatState copy() {
+        return new CombatState(this);
+    }
+
+    /**
+     * Overwrite this state with another copy of the same original, without allocating.
+     * @param other
+     */
+    public void copyFrom(CombatState other) {
+        if (other.units != units) {
+            throw new IllegalArgumentException("copyFrom: states of different maps");
+        }
+        System.arraycopy(other.field, 0, field, 0, field.length);
+        System.arraycopy(other.body, 0, body, 0, body.length);
+        System.arraycopy(other.occupied, 0, occupied, 0, occupied.length);
+    }
+
+    /**
+     * Puts a unit on another field.
+     * @param u
+     * @param index
+     */
+    public void move(int u, int index) {
+        int from = field[u];
+        occupied[from >>> 6] &= ~(1L << from);
+        occupied[index >>> 6] |= 1L << index;
+        field[u] = index;
+    }
+
+    /**
+     * One attack with the classical dice.
+     * @param attacker
+     * @param defender
+     * @param dice
+     * @return the damage dealt
+     */
+    public int attack(int attacker, int defender, DiceSource dice) {
+        int skulls = dice.rollSuccesses(attackDice[attacker], 3);
+        int shields = dice.rollSuccesses(defenseDice[defender], hero[defender] ? 2 : 1);
+        if (shields >= skulls) {
+            return 0;
+        }
+        int damage = skulls - shields;
+        body[defender] -= damage;
+        if (body[defender] <= 0) {
+            body[defender] = 0;
+            int index = field[defender];
+            occupied[index >>> 6] &= ~(1L << index);
+            field[defender] = -1;
+        }
+        return damage;
+    }
+}
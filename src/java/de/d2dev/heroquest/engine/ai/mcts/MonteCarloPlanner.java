@@ -0,0 +1,296 @@
+package de.d2dev.heroquest.engine.ai.mcts;
+
+import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.Neighbourhood;
+import de.d2dev.heroquest.engine.game.SplittableDice;
+import de.d2dev.heroquest.engine.game.Unit;
+import de.d2dev.heroquest.engine.game.action.ActionBuilder;
+import de.d2dev.heroquest.engine.game.action.GameAction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Plans the turn of a monster by Monte Carlo tree search within a time budget. The
+ * root of the tree is the monster on its field, its children are the move+attack
+ * sequences worth trying ({@link Candidate}). Each thread copies the map into a
+ * {@link CombatState}, picks candidates by UCB1 and rates them by greedy rollouts with
+ * the classical dice until the budget is used up. The statistics of all threads are
+ * added up and the most visited candidate wins.<br>
+ * The search reads the map only while setting up, so the map may be changed as soon as
+ * {@link #getActions(Unit)} returns. One planner can be shared by all monsters of a map.
+ *
+ * @author Simon + Toni
+ */
+public class MonteCarloPlanner {
+
+    public static final long DEFAULT_BUDGET_NANOS = 50000000L;
+    public static final int DEFAULT_ROLLOUT_ROUNDS = 2;
+    /** number of plain moves (without attack) tried */
+    public static final int DEFAULT_MOVE_CANDIDATES = 6;
+    public static final double DEFAULT_EXPLORATION = 0.7;
+
+    private final Map map;
+    private long budgetNanos = DEFAULT_BUDGET_NANOS;
+    private int rolloutRounds = DEFAULT_ROLLOUT_ROUNDS;
+    private int moveCandidates = DEFAULT_MOVE_CANDIDATES;
+    private double exploration = DEFAULT_EXPLORATION;
+    /** rollouts per thread and plan, 0 for no limit */
+    private int rolloutLimit = 0;
+    private final int threads;
+    /** null to search on the calling thread only */
+    private ExecutorService workers;
+    /** seeds the dice of the rollouts */
+    private final SplittableDice seeds;
+
+    /*
+     * Statistics of the last plan
+     */
+    private long rollouts = 0;
+    private long planNanos = 0;
+    private int candidates = 0;
+
+    /**
+     * @param map
+     * @param budgetNanos time per plan in nanoseconds
+     * @param threads number of search threads, 0 for one per processor
+     */
+    public MonteCarloPlanner(Map map, long budgetNanos, int threads) {
+        this(map, budgetNanos, threads, new SplittableDice());
+    }
+
+    /**
+     * @param map
+     * @param budgetNanos time per plan in nanoseconds
+     * @param threads number of search threads, 0 for one per processor
+     * @param seeds source of the rollout dice, seeded for reproducible rollouts
+     */
+    public MonteCarloPlanner(Map map, long budgetNanos, int threads, SplittableDice seeds) {
+        if (threads < 0) {
+            throw new IllegalArgumentException("MonteCarloPlanner: negative number of threads");
+        }
+        this.map = map;
+        this.threads = threads == 0 ? Runtime.getRuntime().availableProcessors() : threads;
+        this.seeds = seeds;
+        setBudgetNanos(budgetNanos);
+        if (this.threads > 1) {
+            // the calling thread searches too
+            workers = Executors.newFixedThreadPool(this.threads - 1, new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "monte carlo planner");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+    }
+
+//*******************************Getter/Setter********************************
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    /**
+     * Time per plan, e.g. by difficulty level.
+     * @param budgetNanos
+     */
+    public void setBudgetNanos(long budgetNanos) {
+        if (budgetNanos <= 0) {
+            throw new IllegalArgumentException("setBudgetNanos: budget must be positive");
+        }
+        this.budgetNanos = budgetNanos;
+    }
+
+    public int getRolloutRounds() {
+        return rolloutRounds;
+    }
+
+    /**
+     * How many rounds of both sides a rollout plays after the candidate.
+     * @param rolloutRounds
+     */
+    public void setRolloutRounds(int rolloutRounds) {
+        if (rolloutRounds < 0) {
+            throw new IllegalArgumentException("setRolloutRounds: negative number of rounds");
+        }
+        this.rolloutRounds = rolloutRounds;
+    }
+
+    public int getMoveCandidates() {
+        return moveCandidates;
+    }
+
+    public void setMoveCandidates(int moveCandidates) {
+        this.moveCandidates = moveCandidates;
+    }
+
+    public double getExploration() {
+        return exploration;
+    }
+
+    /**
+     * Weight of the exploration term of UCB1.
+     * @param exploration
+     */
+    public void setExploration(double exploration) {
+        this.exploration = exploration;
+    }
+
+    public int getRolloutLimit() {
+        return rolloutLimit;
+    }
+
+    /**
+     * Ends the search of each thread after this many rollouts, even if there is time
+     * left. With a single thread and seeded dice the plans are reproducible.
+     * @param rolloutLimit 0 to search until the budget is used up
+     */
+    public void setRolloutLimit(int rolloutLimit) {
+        if (rolloutLimit < 0) {
+            throw new IllegalArgumentException("setRolloutLimit: negative number of rollouts");
+        }
+        this.rolloutLimit = rolloutLimit;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Number of rollouts of the last plan, over all threads.
+     * @return
+     */
+    public long getRollouts() {
+        return rollouts;
+    }
+
+    /**
+     * Duration of the last plan.
+     * @return nanoseconds
+     */
+    public long getPlanNanos() {
+        return planNanos;
+    }
+
+    /**
+     * Rollouts per second of the last plan, over all threads.
+     * @return
+     */
+    public double getRolloutsPerSecond() {
+        return planNanos == 0 ? 0.0 : rollouts * 1e9 / planNanos;
+    }
+
+    /**
+     * Number of candidates searched by the last plan.
+     * @return
+     */
+    public int getCandidates() {
+        return candidates;
+    }
+
+//****************Public Methods************************
+    /**
+     * Searches the best move+attack sequence for the unit. Plans are made one at a time.
+     * @param unit a monster on the map
+     * @return the actions of the best sequence, empty if there is nothing to do
+     */
+    public synchronized List<GameAction> getActions(Unit unit) {
+        long start = System.nanoTime();
+        final long deadline = start + budgetNanos;
+        final CombatState state = new CombatState(map);
+        final int acting = state.getUnitNumber(unit);
+        if (acting < 0) {
+            throw new IllegalArgumentException("getActions: unit is not on the map");
+        }
+        int capacity = map.getOccupancy().getIndexCapacity();
+        RolloutWorker local = new RolloutWorker(state, seeds.split(), rolloutRounds, exploration, capacity);
+        final List<Candidate> options = local.createCandidates(acting, moveCandidates);
+        final int limit = rolloutLimit;
+
+        List<RolloutWorker> team = new ArrayList<RolloutWorker>();
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        team.add(local);
+        if (workers != null && options.size() > 1) {
+            for (int t = 1; t < threads; t++) {
+                final RolloutWorker worker = new RolloutWorker(state, seeds.split(), rolloutRounds, exploration, capacity);
+                team.add(worker);
+                futures.add(workers.submit(new Callable<Object>() {
+
+                    @Override
+                    public Object call() {
+                        worker.search(acting, options, deadline, limit);
+                        return null;
+                    }
+                }));
+            }
+        }
+        local.search(acting, options, deadline, limit);
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("getActions: interrupted", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("getActions: search failed", e.getCause());
+            }
+        }
+
+        // most visited over all threads
+        int best = -1;
+        long bestVisits = -1;
+        rollouts = 0;
+        for (int c = 0; c < options.size(); c++) {
+            long visits = 0;
+            for (RolloutWorker worker : team) {
+                visits += worker.getVisits(c);
+            }
+            if (visits > bestVisits) {
+                best = c;
+                bestVisits = visits;
+            }
+        }
+        for (RolloutWorker worker : team) {
+            rollouts += worker.getRollouts();
+        }
+        candidates = options.size();
+        planNanos = System.nanoTime() - start;
+
+        ActionBuilder actionBuilder = new ActionBuilder(unit);
+        if (best >= 0) {
+            Candidate candidate = options.get(best);
+            Neighbourhood neighbourhood = map.getNeighbourhood();
+            for (int i = 1; i < candidate.getPathLength(); i++) {
+                int from = candidate.getPathIndex(i - 1);
+                int to = candidate.getPathIndex(i);
+                for (int k = 0; k < 4; k++) {
+                    if (neighbourhood.getNeighbour(from, k) == to) {
+                        actionBuilder.addMove(Neighbourhood.getDirection(k));
+                        break;
+                    }
+                }
+            }
+            if (candidate.getTarget() >= 0) {
+                actionBuilder.addAttack(state.getUnit(candidate.getTarget()));
+            }
+        }
+        return actionBuilder.getActions();
+    }
+
+    /**
+     * Stops the search threads.
+     */
+    public void shutdown() {
+        if (workers != null) {
+            workers.shutdown();
+            workers = null;
+        }
+    }
+}
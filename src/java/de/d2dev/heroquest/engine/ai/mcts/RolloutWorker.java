@@ -0,0 +1,339 @@
+package de.d2dev.heroquest.engine.ai.mcts;
+
+import de.d2dev.heroquest.engine.game.DiceSource;
+import de.d2dev.heroquest.engine.game.Neighbourhood;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Searches the candidates of one monster on one thread. Selects the candidate to try
+ * next by UCB1, plays it on a copy of the state and continues the game by a fast greedy
+ * rollout: every unit attacks the weakest enemy next to it, otherwise walks as close to
+ * the nearest enemy as its moves allow and attacks from there. The outcome is rated by
+ * the share of the heroes body force lost minus the share of the monsters body force
+ * lost. All buffers are allocated once, a rollout allocates nothing.
+ *
+ * @author Simon + Toni
+ */
+final class RolloutWorker {
+
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final CombatState base;
+    private final CombatState scratch;
+    private final Neighbourhood neighbourhood;
+    private final DiceSource dice;
+    private final int rolloutRounds;
+    private final double exploration;
+
+    /** breadth first search of a units moves */
+    private final int[] reached;
+    private final int[] distance;
+    private final int[] parent;
+    private final int[] seen;
+    private int generation = 0;
+    private int size = 0;
+
+    /** distance of every field to the nearest enemy */
+    private final int[] enemyDistance;
+    private final int[] enemySeen;
+    private int enemyGeneration = 0;
+
+    /** statistics per candidate */
+    private List<Candidate> candidates;
+    private int[] visits;
+    private double[] values;
+    private int rollouts = 0;
+
+    RolloutWorker(CombatState base, DiceSource dice, int rolloutRounds, double exploration, int capacity) {
+        this.base = base;
+        this.scratch = base.copy();
+        this.neighbourhood = base.getNeighbourhood();
+        this.dice = dice;
+        this.rolloutRounds = rolloutRounds;
+        this.exploration = exploration;
+        this.reached = new int[capacity];
+        this.distance = new int[capacity];
+        this.parent = new int[capacity];
+        this.seen = new int[capacity];
+        this.enemyDistance = new int[capacity];
+        this.enemySeen = new int[capacity];
+    }
+
+//*******************************Getter/Setter********************************
+    int getRollouts() {
+        return rollouts;
+    }
+
+    int getVisits(int c) {
+        return visits[c];
+    }
+
+    double getValue(int c) {
+        return values[c];
+    }
+
+//****************Candidates************************
+    /**
+     * The move+attack sequences of the acting unit worth trying: attacking every hero
+     * it can reach and walking to the fields closest to the heroes.
+     * @param acting unit number
+     * @param maxMoves number of the fields closest to the heroes to walk to
+     * @return
+     */
+    List<Candidate> createCandidates(int acting, int maxMoves) {
+        List<Candidate> result = new ArrayList<Candidate>();
+        // before reach(), both use the same queue
+        computeEnemyDistances(base, !base.isHero(acting));
+        reach(base, acting, base.getTempo(acting));
+        for (int i = 0; i < size; i++) {
+            int index = reached[i];
+            for (int k : Neighbourhood.getSlots(neighbourhood.getMask(index) & Neighbourhood.DIRECT)) {
+                int target = base.getUnitAt(neighbourhood.getNeighbour(index, k));
+                if (target >= 0 && base.isHero(target) != base.isHero(acting)) {
+                    result.add(new Candidate(getPath(index), target));
+                }
+            }
+        }
+
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        // breadth first order is kept for equal distances to the enemy
+        Arrays.sort(order, new Comparator<Integer>() {
+
+            @Override
+            public int compare(Integer a, Integer b) {
+                int da = enemyDistance(reached[a]);
+                int db = enemyDistance(reached[b]);
+                if (da != db) {
+                    return da < db ? -1 : 1;
+                }
+                return a - b;
+            }
+        });
+        for (int i = 0; i < order.length && i < maxMoves; i++) {
+            result.add(new Candidate(getPath(reached[order[i]]), -1));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+//****************Search************************
+    /**
+     * Runs rollouts until the deadline or the limit.
+     * @param acting unit number of the acting unit
+     * @param candidates
+     * @param deadline in {@link System#nanoTime()}
+     * @param limit maximum number of rollouts, 0 for no limit
+     */
+    void search(int acting, List<Candidate> candidates, long deadline, int limit) {
+        this.candidates = candidates;
+        this.visits = new int[candidates.size()];
+        this.values = new double[candidates.size()];
+        this.rollouts = 0;
+        if (candidates.isEmpty()) {
+            return;
+        }
+        do {
+            int c = select();
+            values[c] += rollout(acting, candidates.get(c));
+            visits[c]++;
+            rollouts++;
+        } while (rollouts != limit && System.nanoTime() - deadline < 0);
+    }
+
+    /**
+     * UCB1, untried candidates first.
+     */
+    private int select() {
+        double logRollouts = Math.log(rollouts + 1);
+        int best = 0;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < visits.length; c++) {
+            if (visits[c] == 0) {
+                return c;
+            }
+            double score = values[c] / visits[c] + exploration * Math.sqrt(logRollouts / visits[c]);
+            if (score > bestScore) {
+                best = c;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Plays the candidate and some rounds after it.
+     * @return 0 (bad for the acting side) to 1 (good for the acting side)
+     */
+    private double rollout(int acting, Candidate candidate) {
+        scratch.copyFrom(base);
+        scratch.move(acting, candidate.getDestination());
+        if (candidate.getTarget() >= 0) {
+            scratch.attack(acting, candidate.getTarget(), dice);
+        }
+        boolean heroActs = scratch.isHero(acting);
+        // the other units of the acting side, then both sides in turns
+        playSide(heroActs, acting);
+        for (int round = 0; round < rolloutRounds && !scratch.isOver(); round++) {
+            playSide(!heroActs, -1);
+            if (scratch.isOver()) {
+                break;
+            }
+            playSide(heroActs, -1);
+        }
+        double heroLoss = lossShare(true);
+        double monsterLoss = lossShare(false);
+        double value = 0.5 + 0.5 * (heroLoss - monsterLoss);
+        return heroActs ? 1.0 - value : value;
+    }
+
+    private double lossShare(boolean heroes) {
+        int before = base.getBodyTotal(heroes);
+        return before == 0 ? 0.0 : 1.0 - (double) scratch.getBodyTotal(heroes) / before;
+    }
+
+    private void playSide(boolean heroes, int skip) {
+        computeEnemyDistances(scratch, !heroes);
+        for (int u = 0; u < scratch.getNumUnits(); u++) {
+            if (u == skip || scratch.isHero(u) != heroes || !scratch.isAlive(u)) {
+                continue;
+            }
+            int moves = scratch.getTempo(u);
+            if (heroes) {
+                // heroes roll their moves
+                moves = 0;
+                for (int i = 0; i < scratch.getTempo(u); i++) {
+                    moves += dice.rollW6() + 1;
+                }
+            }
+            playUnit(u, moves);
+        }
+    }
+
+    private void playUnit(int u, int moves) {
+        int target = weakestEnemyNextTo(scratch, u, scratch.getField(u));
+        if (target < 0) {
+            reach(scratch, u, moves);
+            int best = scratch.getField(u);
+            int bestDistance = enemyDistance(best);
+            for (int i = 1; i < size; i++) {
+                int d = enemyDistance(reached[i]);
+                if (d < bestDistance) {
+                    best = reached[i];
+                    bestDistance = d;
+                }
+            }
+            if (best != scratch.getField(u)) {
+                scratch.move(u, best);
+            }
+            target = weakestEnemyNextTo(scratch, u, best);
+        }
+        if (target >= 0) {
+            scratch.attack(u, target, dice);
+        }
+    }
+
+//******************Private*************************
+    private int weakestEnemyNextTo(CombatState state, int u, int index) {
+        int weakest = -1;
+        for (int k : Neighbourhood.getSlots(neighbourhood.getMask(index) & Neighbourhood.DIRECT)) {
+            int other = state.getUnitAt(neighbourhood.getNeighbour(index, k));
+            if (other >= 0 && state.isHero(other) != state.isHero(u)
+                    && (weakest < 0 || state.getBody(other) < state.getBody(weakest))) {
+                weakest = other;
+            }
+        }
+        return weakest;
+    }
+
+    /**
+     * Breadth first search of the fields the unit can walk to, units block.
+     */
+    private void reach(CombatState state, int u, int budget) {
+        nextGeneration();
+        size = 0;
+        int start = state.getField(u);
+        add(start, 0, -1);
+        int head = 0;
+        while (head < size) {
+            int actual = reached[head++];
+            int next = distance[actual] + 1;
+            if (next > budget) {
+                break;
+            }
+            for (int k : Neighbourhood.getSlots(neighbourhood.getMask(actual) & Neighbourhood.DIRECT)) {
+                int neighbour = neighbourhood.getNeighbour(actual, k);
+                if (seen[neighbour] != generation && state.isFree(neighbour)) {
+                    add(neighbour, next, actual);
+                }
+            }
+        }
+    }
+
+    private void add(int index, int d, int from) {
+        seen[index] = generation;
+        distance[index] = d;
+        parent[index] = from;
+        reached[size++] = index;
+    }
+
+    private int[] getPath(int index) {
+        int[] path = new int[distance[index] + 1];
+        for (int i = path.length - 1; i >= 0; i--) {
+            path[i] = index;
+            index = parent[index];
+        }
+        return path;
+    }
+
+    /**
+     * Multi-source breadth first search from the heroes or monsters, units are passable.
+     */
+    private void computeEnemyDistances(CombatState state, boolean heroes) {
+        enemyGeneration++;
+        if (enemyGeneration == 0) {
+            Arrays.fill(enemySeen, 0);
+            enemyGeneration = 1;
+        }
+        // the queue of the other search is free meanwhile
+        int head = 0;
+        int tail = 0;
+        for (int u = 0; u < state.getNumUnits(); u++) {
+            if (state.isHero(u) == heroes && state.isAlive(u)) {
+                int index = state.getField(u);
+                enemySeen[index] = enemyGeneration;
+                enemyDistance[index] = 0;
+                reached[tail++] = index;
+            }
+        }
+        while (head < tail) {
+            int actual = reached[head++];
+            for (int k : Neighbourhood.getSlots(neighbourhood.getMask(actual) & Neighbourhood.DIRECT)) {
+                int neighbour = neighbourhood.getNeighbour(actual, k);
+                if (enemySeen[neighbour] != enemyGeneration && state.isPassable(neighbour)) {
+                    enemySeen[neighbour] = enemyGeneration;
+                    enemyDistance[neighbour] = enemyDistance[actual] + 1;
+                    reached[tail++] = neighbour;
+                }
+            }
+        }
+        size = 0;
+    }
+
+    private int enemyDistance(int index) {
+        return enemySeen[index] == enemyGeneration ? enemyDistance[index] : UNREACHABLE;
+    }
+
+    private void nextGeneration() {
+        generation++;
+        if (generation == 0) {
+            Arrays.fill(seen, 0);
+            generation = 1;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package de.d2dev.heroquest.engine.ai.tests;
+
+import de.d2dev.heroquest.engine.ai.AIController;
+import de.d2dev.heroquest.engine.ai.AISystem;
+import de.d2dev.heroquest.engine.game.Hero;
+import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.Monster;
+import de.d2dev.heroquest.engine.game.Monster.MonsterType;
+import de.d2dev.heroquest.engine.game.SplittableDice;
+import de.d2dev.heroquest.engine.game.UnitFactory;
+import de.d2dev.heroquest.engine.game.action.ActionBuilder;
+import de.d2dev.heroquest.engine.game.action.AttackAction;
+import de.d2dev.heroquest.engine.game.action.GameAction;
+import de.d2dev.heroquest.engine.game.action.MoveAction;
+import de.d2dev.heroquest.engine.game.classical.ClassicalGameContext;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Simon + Toni
+ */
+public class AISystemTest {
+
+    @Test
+    public void cooperativeRoundOfEqualMonsters() throws Exception {
+        // a corridor at y = 1 with a niche above and below its left end
+        Map map = new Map(12, 3);
+        for (int x = 1; x < 12; x++) {
+            map.getField(x, 0).setWall(true);
+            map.getField(x, 2).setWall(true);
+        }
+        ClassicalGameContext game = new ClassicalGameContext(map, new SplittableDice(1));
+        map.setContext(game);
+
+        AISystem ai = new AISystem(map);
+        ai.setCooperativePlanning(true);
+        UnitFactory factory = new UnitFactory();
+        factory.createBarbarian(map.getField(11, 1));
+        // equally far, fast and strong - both have to pass (0, 1)
+        Monster first = factory.createMonster(map.getField(0, 0), MonsterType.ORC, ai);
+        Monster second = factory.createMonster(map.getField(0, 2), MonsterType.ORC, ai);
+
+        ai.startMonstersRound();
+        // executed in the order they have been planned, so the way of each is free
+        assertSame(first, ai.getNextMonster());
+        for (GameAction action : ai.getActions(first)) {
+            game.execute(action);
+        }
+        assertSame(second, ai.getNextMonster());
+        for (GameAction action : ai.getActions(second)) {
+            game.execute(action);
+        }
+        assertNull(ai.getNextMonster());
+        ai.endMonstersRound();
+
+        assertEquals(1, first.getField().getY());
+        assertEquals(1, second.getField().getY());
+        assertTrue(first.getField().getX() > second.getField().getX());
+    }
+
+    @Test
+    public void blockedMonsterWalksUpToTheUnitInTheWay() throws Exception {
+        // a corridor at y = 1
+        Map map = new Map(12, 3);
+        for (int x = 0; x < 12; x++) {
+            map.getField(x, 0).setWall(true);
+            map.getField(x, 2).setWall(true);
+        }
+        ClassicalGameContext game = new ClassicalGameContext(map, new SplittableDice(1));
+        map.setContext(game);
+
+        AISystem ai = new AISystem(map);
+        UnitFactory factory = new UnitFactory();
+        factory.createBarbarian(map.getField(11, 1));
+        Monster orc = factory.createMonster(map.getField(0, 1), MonsterType.ORC, ai);
+        factory.createMonster(map.getField(4, 1), MonsterType.GOBLIN, ai);
+
+        for (GameAction action : ai.creatAIController(orc).getActions()) {
+            game.execute(action);
+        }
+        // stopped in front of the goblin, found by the cached weighted search
+        assertSame(map.getField(3, 1), orc.getField());
+        assertEquals(1, ai.getPathfinding().getPathCache(false).getMisses());
+    }
+
+    @Test
+    public void replanWhenTheTargetIsKilled() throws Exception {
+        Map map = new Map(5, 5);
+        AISystem ai = new AISystem(map);
+        UnitFactory factory = new UnitFactory();
+        Hero barbarian = factory.createBarbarian(map.getField(2, 2));
+        Hero dwarf = factory.createDwarf(map.getField(4, 4));
+        Monster first = factory.createMonster(map.getField(1, 2), MonsterType.ORC, ai);
+        Monster second = factory.createMonster(map.getField(3, 2), MonsterType.ORC, ai);
+        first.setAiController(new Attacker(first));
+        second.setAiController(new Attacker(second));
+
+        ai.startMonstersRound();
+        assertSame(first, ai.getNextMonster());
+        ai.getActions(first);
+        // the first one kills the barbarian
+        map.removeUnit(barbarian);
+        assertSame(second, ai.getNextMonster());
+        List<GameAction> actions = ai.getActions(second);
+        assertSame(dwarf, ((AttackAction) actions.get(0)).getUnitToAttack());
+        assertEquals(1, ai.getReplannedMonsters());
+        ai.endMonstersRound();
+    }
+
+    @Test
+    public void parallelPlanningPlansTheSame() throws Exception {
+        // three corridors, joined at the right end where the barbarian waits
+        Map map = new Map(24, 9);
+        for (int x = 0; x < 23; x++) {
+            for (int y = 0; y < 9; y++) {
+                map.getField(x, y).setWall(y % 3 != 1);
+            }
+        }
+        AISystem ai = new AISystem(map);
+        UnitFactory factory = new UnitFactory();
+        factory.createBarbarian(map.getField(23, 4));
+        // a queue in each corridor, all but the first ones blocked by the monster in front
+        MonsterType[] types = MonsterType.values();
+        for (int i = 0; i < 24; i++) {
+            factory.createMonster(map.getField(i / 3 * 2, 1 + i % 3 * 3), types[i % types.length], ai);
+        }
+
+        List<String> serial = planRound(ai, map);
+        ai.enableParallelPlanning(4);
+        try {
+            assertEquals(serial, planRound(ai, map));
+            // again, with the caches of the planning threads filled
+            assertEquals(serial, planRound(ai, map));
+        } finally {
+            ai.disableParallelPlanning();
+        }
+        assertEquals(24, ai.getPlannedMonsters());
+    }
+
+    /**
+     * The monsters and their actions in the order the ai system hands them out,
+     * the map is not changed.
+     */
+    private static List<String> planRound(AISystem ai, Map map) {
+        List<String> round = new ArrayList<String>();
+        ai.startMonstersRound();
+        for (Monster monster = ai.getNextMonster(); monster != null; monster = ai.getNextMonster()) {
+            StringBuilder plan = new StringBuilder("monster " + map.getMonsters().indexOf(monster) + ":");
+            for (GameAction action : ai.getActions(monster)) {
+                if (action instanceof MoveAction) {
+                    plan.append(" ").append(((MoveAction) action).getDirection());
+                } else {
+                    plan.append(" ").append(action.getClass().getSimpleName());
+                }
+            }
+            round.add(plan.toString());
+        }
+        ai.endMonstersRound();
+        return round;
+    }
+
+    /**
+     * Attacks the first hero of the map, wherever it is.
+     */
+    private static class Attacker implements AIController {
+
+        private final Monster monster;
+
+        private Attacker(Monster monster) {
+            this.monster = monster;
+        }
+
+        @Override
+        public List<GameAction> getActions() {
+            ActionBuilder actionBuilder = new ActionBuilder(monster);
+            actionBuilder.addAttack(monster.getMap().getHeroes().get(0));
+            return actionBuilder.getActions();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package de.d2dev.heroquest.engine.ai.tests;
+
+import de.d2dev.heroquest.engine.ai.HeroDistanceField;
+import de.d2dev.heroquest.engine.game.Direction2D;
+import de.d2dev.heroquest.engine.game.Field;
+import de.d2dev.heroquest.engine.game.Hero;
+import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.Monster;
+import de.d2dev.heroquest.engine.game.SplittableDice;
+import de.d2dev.heroquest.engine.game.UnitFactory;
+import de.d2dev.heroquest.engine.game.action.MoveAction;
+import de.d2dev.heroquest.engine.game.classical.ClassicalGameContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Simon + Toni
+ */
+public class HeroDistanceFieldTest {
+
+    @Test
+    public void distances() throws Exception {
+        Map map = new Map(10, 10);
+        // wall with a gap at the bottom
+        for (int y = 0; y < 9; y++) {
+            map.getField(5, y).setWall(true);
+        }
+        UnitFactory factory = new UnitFactory();
+        factory.createBarbarian(map.getField(9, 0));
+        Monster orc = factory.createOrc(map.getField(0, 0));
+        // in the gap
+        factory.createGoblin(map.getField(5, 9));
+
+        HeroDistanceField field = new HeroDistanceField(map);
+        assertEquals(27, field.getDistance(orc, false));
+        assertEquals(-1, field.getDistance(orc, true));
+        assertSame(map.getHeroes().get(0), field.getNearestHero(map.getFieldIndex(4, 9), false));
+        assertEquals(28, field.descend(orc, false).size());
+    }
+
+    @Test
+    public void repairAfterMonsterMoves() throws Exception {
+        Random random = new Random(7);
+        Map map = new Map(20, 14);
+        for (int x = 0; x < 20; x++) {
+            for (int y = 0; y < 14; y++) {
+                map.getField(x, y).setWall(random.nextInt(5) == 0);
+            }
+        }
+        UnitFactory factory = new UnitFactory();
+        factory.createBarbarian(freeField(map, random));
+        factory.createDwarf(freeField(map, random));
+        List<Monster> monsters = new ArrayList<Monster>();
+        for (int i = 0; i < 12; i++) {
+            monsters.add(factory.createOrc(freeField(map, random)));
+        }
+
+        HeroDistanceField field = new HeroDistanceField(map);
+        map.addListener(field);
+        field.prepare();
+        int computations = field.getComputations();
+
+        for (int step = 0; step < 300; step++) {
+            // walk a monster to a free neighbour, sometimes several before asking
+            for (int i = random.nextInt(3); i >= 0; i--) {
+                Monster monster = monsters.get(random.nextInt(monsters.size()));
+                Field next = monster.getField().getNeighbours().get(0);
+                for (Field neighbour : monster.getField().getNeighbours()) {
+                    if (!neighbour.isBlocked() && random.nextBoolean()) {
+                        next = neighbour;
+                    }
+                }
+                if (!next.isBlocked()) {
+                    monster.moveTo(next);
+                }
+            }
+
+            HeroDistanceField fresh = new HeroDistanceField(map);
+            for (int x = 0; x < 20; x++) {
+                for (int y = 0; y < 14; y++) {
+                    int index = map.getFieldIndex(x, y);
+                    assertEquals(fresh.getDistance(index, true), field.getDistance(index, true));
+                    assertEquals(fresh.getDistance(index, false), field.getDistance(index, false));
+                    // the flow leads one step closer
+                    int k = field.getFlow(index, true);
+                    if (k >= 0) {
+                        int next = map.getNeighbourhood().getNeighbour(index, k);
+                        assertEquals(field.getDistance(index, true) - 1, field.getDistance(next, true));
+                    }
+                }
+            }
+        }
+        // no monster move made the field start from scratch
+        assertEquals(computations, field.getComputations());
+        assertTrue(field.getRepairs() > 0);
+    }
+
+    @Test
+    public void followsSimulatedMoves() throws Exception {
+        Map map = new Map(10, 3);
+        ClassicalGameContext game = new ClassicalGameContext(map, new SplittableDice(1));
+        map.setContext(game);
+        UnitFactory factory = new UnitFactory();
+        Hero barbarian = factory.createBarbarian(map.getField(9, 1));
+        Monster orc = factory.createOrc(map.getField(0, 1));
+
+        HeroDistanceField field = new HeroDistanceField(map);
+        map.addListener(field);
+        assertEquals(9, field.getDistance(orc, false));
+
+        // the ai looks ahead
+        game.setSimulationMode(true);
+        game.make(new MoveAction(barbarian, Direction2D.LEFT));
+        assertEquals(8, field.getDistance(orc, false));
+        game.unmake();
+        game.setSimulationMode(false);
+        assertEquals(9, field.getDistance(orc, false));
+    }
+
+    private static Field freeField(Map map, Random random) {
+        while (true) {
+            Field field = map.getField(random.nextInt(map.getWidth()), random.nextInt(map.getHeight()));
+            if (!field.isBlocked()) {
+                return field;
+            }
+        }
+    }
+}
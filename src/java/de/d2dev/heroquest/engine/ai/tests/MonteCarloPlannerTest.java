@@ -0,0 +1,42 @@
+package de.d2dev.heroquest.engine.ai.tests;
+
+import de.d2dev.heroquest.engine.ai.mcts.MonteCarloPlanner;
+import de.d2dev.heroquest.engine.game.Hero;
+import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.Monster;
+import de.d2dev.heroquest.engine.game.SplittableDice;
+import de.d2dev.heroquest.engine.game.UnitFactory;
+import de.d2dev.heroquest.engine.game.action.AttackAction;
+import de.d2dev.heroquest.engine.game.action.GameAction;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Simon + Toni
+ */
+public class MonteCarloPlannerTest {
+
+    @Test
+    public void monteCarloPlanner() throws Exception {
+        Map map = new Map(10, 10);
+        UnitFactory factory = new UnitFactory();
+        Hero barbarian = factory.createBarbarian(map.getField(0, 0));
+        Monster orc = factory.createOrc(map.getField(5, 0));
+
+        // seeded and bounded by rollouts instead of time, so the plan is always the same
+        MonteCarloPlanner planner = new MonteCarloPlanner(map, 10000000000L, 1, new SplittableDice(1));
+        planner.setRolloutLimit(200);
+        List<GameAction> actions = planner.getActions(orc);
+        // walk next to the barbarian and attack him
+        GameAction last = actions.get(actions.size() - 1);
+        assertTrue(last instanceof AttackAction);
+        assertSame(barbarian, ((AttackAction) last).getUnitToAttack());
+        assertEquals(200, planner.getRollouts());
+        assertTrue(planner.getRolloutsPerSecond() > 0);
+        // the map is left as it was
+        assertSame(orc, map.getField(5, 0).getUnit());
+        planner.shutdown();
+    }
+}
@@ -0,0 +1,82 @@
+package de.d2dev.heroquest.engine.ai.tests;
+
+import de.d2dev.heroquest.engine.ai.AISystem;
+import de.d2dev.heroquest.engine.ai.FindPath;
+import de.d2dev.heroquest.engine.ai.PathCache;
+import de.d2dev.heroquest.engine.game.Field;
+import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.Monster;
+import de.d2dev.heroquest.engine.game.Monster.MonsterType;
+import de.d2dev.heroquest.engine.game.UnitFactory;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Simon + Toni
+ */
+public class PathCacheTest {
+
+    @Test
+    public void pathCache() throws Exception {
+        Map map = new Map(10, 12);
+        for (int y = 0; y < 12; y++) {
+            // the only gap is at y = 9
+            map.getField(5, y).setWall(y != 9);
+        }
+        PathCache cache = new PathCache(map, new FindPath(map));
+        int start = map.getFieldIndex(0, 0);
+        int goal = map.getFieldIndex(9, 0);
+
+        assertTrue(cache.search(start, goal));
+        assertTrue(cache.search(start, goal));
+        assertEquals(28, cache.getPathLength());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // a field below the gap, off any shortest path, gets blocked
+        Field corner = map.getField(9, 11);
+        corner.setWall(true);
+        cache.onUnitEntersField(corner);
+        assertTrue(cache.search(start, goal));
+        assertEquals(2, cache.getHits());
+
+        // the gap gets blocked
+        Field gap = map.getField(5, 9);
+        gap.setWall(true);
+        cache.onUnitEntersField(gap);
+        assertFalse(cache.search(start, goal));
+        assertEquals(2, cache.getMisses());
+
+        // a shortcut opens
+        gap.setWall(false);
+        cache.onUnitLeavesField(gap);
+        map.getField(5, 0).setWall(false);
+        cache.onUnitLeavesField(map.getField(5, 0));
+        assertTrue(cache.search(start, goal));
+        assertEquals(10, cache.getPathLength());
+        assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    public void controllersShareTheCache() throws Exception {
+        // a corridor at y = 1, blocked by a goblin
+        Map map = new Map(12, 3);
+        for (int x = 0; x < 12; x++) {
+            map.getField(x, 0).setWall(true);
+            map.getField(x, 2).setWall(true);
+        }
+        AISystem ai = new AISystem(map);
+        UnitFactory factory = new UnitFactory();
+        factory.createBarbarian(map.getField(11, 1));
+        Monster orc = factory.createMonster(map.getField(0, 1), MonsterType.ORC, ai);
+        factory.createMonster(map.getField(4, 1), MonsterType.GOBLIN, ai);
+
+        // two controllers plan the same way, the second one from the cache
+        ai.creatAIController(orc).getActions();
+        ai.creatAIController(orc).getActions();
+        PathCache cache = ai.getPathfinding().getPathCache(false);
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+    }
+}
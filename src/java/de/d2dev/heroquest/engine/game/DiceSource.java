@@ -0,0 +1,37 @@
+package de.d2dev.heroquest.engine.game;
+
+/**
+ * The source of all dice rolls of a {@link GameContext}. Replace it to make games
+ * reproducible or to run many games at once, each with its own source.
+ * @author Sebastian Bordt
+ *
+ */
+public interface DiceSource {
+	
+	/**
+	 * 64 random bits.
+	 * @return
+	 */
+	public long nextLong();
+	
+	/**
+	 * Roll a dice with 6 sites.
+	 * @return 0 to 5
+	 */
+	public int rollW6();
+	
+	/**
+	 * Roll a number of dice with 6 sites at once.
+	 * @param number the number of dice
+	 * @param successSites how many of the 6 sites count, 0 to 6
+	 * @return the number of dice showing one of the sites that count
+	 */
+	public int rollSuccesses(int number, int successSites);
+	
+	/**
+	 * A new, independent source derived from this one. Splitting a seeded source
+	 * always yields the same sources.
+	 * @return
+	 */
+	public DiceSource split();
+}
@@ -3,6 +3,8 @@ package de.d2dev.heroquest.engine.game;
 import java.util.ArrayList;
 import java.util.List;
 
+import de.d2dev.heroquest.engine.game.event.GameEventBus;
+
 public class Door {
 	
 	private Field field;
@@ -95,12 +97,22 @@ public class Door {
 		if ( !this.isOpen ) {
 			// open the door and fire the event
 			this.isOpen = true;
+			this.field.getMap().getOccupancy().setDoor( this.field.getIndex(), true, false );
+			this.field.getMap().getZobrist().toggleOpenDoor( this.field.getIndex() );
 			
-			this.field.getMap().fireOnDoorOpened( this );
+			// the door and the rooms behind it are one batch of events
+			GameEventBus eventBus = this.field.getMap().getEventBus();
+			eventBus.beginBatch();
 			
-			// reveal all rooms that belong to the door!
-			for (Room room : this.getRooms()) {
-				room.reveal();
+			try {
+				this.field.getMap().fireOnDoorOpened( this );
+				
+				// reveal all rooms that belong to the door!
+				for (Room room : this.getRooms()) {
+					room.reveal();
+				}
+			} finally {
+				eventBus.endBatch();
 			}
 		}
 	}
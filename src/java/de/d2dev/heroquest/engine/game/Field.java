@@ -65,6 +65,24 @@ public final class Field {
 		
 	}
 	
+	/**
+	 * The wall type for each of the 256 possible wall masks (see {@link Neighbourhood} for the bit order).
+	 */
+	private static final WallType[] WALL_TYPES = new WallType[256];
+	
+	static {
+		for (int mask=0; mask<256; mask++) {
+			WALL_TYPES[mask] = getWallTypeBySurroundingFields( (mask & (1 << Neighbourhood.UP)) != 0,
+															   (mask & (1 << Neighbourhood.UPPER_LEFT)) != 0,
+															   (mask & (1 << Neighbourhood.UPPER_RIGHT)) != 0,
+															   (mask & (1 << Neighbourhood.DOWN)) != 0,
+															   (mask & (1 << Neighbourhood.LOWER_LEFT)) != 0,
+															   (mask & (1 << Neighbourhood.LOWER_RIGHT)) != 0,
+															   (mask & (1 << Neighbourhood.LEFT)) != 0,
+															   (mask & (1 << Neighbourhood.RIGHT)) != 0 );
+		}
+	}
+	
 	private static final String FIELD = "field";
 	private static final String X = "x";
 	private static final String Y = "y";
@@ -88,6 +106,11 @@ public final class Field {
 	 */
 	private int y;
 	
+	/**
+	 * The fields index on its map (see {@link Map#getFieldIndex(int, int)}).
+	 */
+	private int index;
+	
 	/**
 	 * Whether the field has been revealed. In game this value is initially usually
 	 * false, then changes to true and can't be changed from thereon.
@@ -99,6 +122,17 @@ public final class Field {
 	 */
 	private boolean isWall;
 	
+	/**
+	 * Which of the surrounding fields are walls, one bit per neighbour (see {@link Neighbourhood}).
+	 * Kept up to date by the neighbours themselves.
+	 */
+	private byte wallMask = 0;
+	
+	/**
+	 * Which of the surrounding fields are revealed walls. Kept up to date by the neighbours themselves.
+	 */
+	private byte revealedWallMask = 0;
+	
 	/**
 	 * A door that might be on the field. {@code null} if there is none.
 	 */
@@ -132,6 +166,7 @@ public final class Field {
 		
 		this.x = x;
 		this.y = y;
+		this.index = map.getFieldIndex( x, y );
 		
 		this.revealed = false;
 		
@@ -152,6 +187,7 @@ public final class Field {
 		
 		this.x = FileUtil.readIntAttribute( xml, X );
 		this.y = FileUtil.readIntAttribute( xml, Y );
+		this.index = map.getFieldIndex( this.x, this.y );
 		this.revealed = FileUtil.readBoleanAttribute( xml, REVEALED );
 		this.isWall = FileUtil.readBoleanAttribute( xml, IS_WALL);
 		//this.isDoor = FileUtil.readBoleanAttribute( xml, IS_DOOR);
@@ -188,16 +224,20 @@ public final class Field {
 		return y;
 	}
 	
+	/**
+	 * Getter for the fields index on its map.
+	 * @return
+	 */
+	public int getIndex() {
+		return index;
+	}
+	
 	/**
 	 * Get the field on top of the given field.
 	 * @return {@code null} in case there is none - field is in upper row.
 	 */
 	public Field getUpperField() {
-		// there is no upper field if we are in the upper row
-		if ( this.y == 0 )
-			return null;
-		
-		return this.map.getField( this.x, this.y -1 );
+		return this.getNeighbour( Neighbourhood.UP );
 	}
 	
 	/**
@@ -205,11 +245,7 @@ public final class Field {
 	 * @return {@code null} in case there is none - field is in left column.
 	 */
 	public Field getLeftField() {
-		// there is no left field if we are in the left column
-		if ( this.x == 0 )
-			return null;
-		
-		return this.map.getField( this.x -1, this.y );
+		return this.getNeighbour( Neighbourhood.LEFT );
 	}
 	
 	/**
@@ -217,11 +253,7 @@ public final class Field {
 	 * @return {@code null} in case there is none - field is in lower row.
 	 */
 	public Field getLowerField() {
-		// there is no lower field if we are in the lower row
-		if ( this.y == this.map.getHeight()-1 )
-			return null;
-		
-		return this.map.getField( this.x, this.y +1 );
+		return this.getNeighbour( Neighbourhood.DOWN );
 	}
 	
 	/**
@@ -229,56 +261,82 @@ public final class Field {
 	 * @return {@code null} in case there is none - field is in right column.
 	 */
 	public Field getRightField() {
-		// there is no right field if we are in the right column
-		if ( this.x == this.map.getWidth()-1 )
-			return null;		
-			
-		return this.map.getField( this.x +1, this.y );
+		return this.getNeighbour( Neighbourhood.RIGHT );
+	}
+	
+	/**
+	 * Get one of the (at most) 8 surrounding fields.
+	 * @param k one of {@link Neighbourhood#UP}, {@link Neighbourhood#LEFT}, ... {@link Neighbourhood#LOWER_RIGHT}
+	 * @return {@code null} in case there is none - the field lies at the maps border.
+	 */
+	public Field getNeighbour(int k) {
+		int neighbour = this.map.getNeighbourhood().getNeighbour( this.index, k );
+		
+		if ( neighbour < 0 )
+			return null;
+		
+		return this.map.getField( neighbour );
 	}
 	
 	/**
 	 * Get a {@code List} containing the fields direct neighbours,
 	 * that are the (at most) 4 fields directly next to the field.
 	 * There might be fewer than 4 direct neighbours, e.g. in case of the 
-	 * maps upper left corner.
+	 * maps upper left corner.<br>
+	 * Allocates a new list, prefer {@link #forEachNeighbour(FieldVisitor)} in inner loops.
 	 * @return
 	 */
 	public List<Field> getNeighbours() {
-		List<Field> neighbours = new ArrayList<Field>();
-		
-		Field field;
-		
-		if ( ( field = this.getUpperField() ) != null )
-			neighbours.add( field );
-		if ( ( field = this.getLeftField() ) != null )
-			neighbours.add( field );
-		if ( ( field = this.getLowerField() ) != null )
-			neighbours.add( field );
-		if ( ( field = this.getRightField() ) != null )
-			neighbours.add( field );
-		
-		return neighbours;
+		return this.collect( Neighbourhood.DIRECT );
 	}
 	
 	/**
 	 * Get a {@code List} containing the fields surrounding fields,
 	 * that are the (at most) 8 fields surrounding the field.
 	 * There might be fewer than 8, e.g. in case of the 
-	 * maps upper left corner.
+	 * maps upper left corner.<br>
+	 * Allocates a new list, prefer {@link #forEachSurrounding(FieldVisitor)} in inner loops.
 	 * @return
 	 */
 	public List<Field> getSurroundingFields() {
-		List<Field> surrounders = new ArrayList<Field>();
+		return this.collect( Neighbourhood.SURROUNDING );
+	}
+	
+	/**
+	 * Visit the fields (at most) 4 direct neighbours, without allocating anything.
+	 * @param visitor
+	 */
+	public void forEachNeighbour(FieldVisitor visitor) {
+		this.forEach( Neighbourhood.DIRECT, visitor );
+	}
+	
+	/**
+	 * Visit the fields (at most) 8 surrounding fields, without allocating anything.
+	 * @param visitor
+	 */
+	public void forEachSurrounding(FieldVisitor visitor) {
+		this.forEach( Neighbourhood.SURROUNDING, visitor );
+	}
+	
+	private void forEach(int which, FieldVisitor visitor) {
+		Neighbourhood neighbourhood = this.map.getNeighbourhood();
 		
-		for (int i=-1; i<=1; i++) {
-			for (int j=-1; j<=1; j++) {
-				if ( (i != 0 || j != 0) && map.fieldExists( x-i, y-j ) ) {	// do not add the field itself and only add existing fields
-					surrounders.add( map.getField( x-i, y-j ) );
-				}
-			}
-		}	
+		for (int k : Neighbourhood.getSlots( neighbourhood.getMask( this.index ) & which )) {
+			visitor.visit( this.map.getField( neighbourhood.getNeighbour( this.index, k ) ) );
+		}
+	}
+	
+	private List<Field> collect(int which) {
+		Neighbourhood neighbourhood = this.map.getNeighbourhood();
+		int[] slots = Neighbourhood.getSlots( neighbourhood.getMask( this.index ) & which );
 		
-		return surrounders;
+		List<Field> fields = new ArrayList<Field>( slots.length );
+		
+		for (int k : slots) {
+			fields.add( this.map.getField( neighbourhood.getNeighbour( this.index, k ) ) );
+		}
+		
+		return fields;
 	}
 	
 	/**
@@ -304,14 +362,7 @@ public final class Field {
 	public WallType getWallType() {
 		Preconditions.checkArgument( isWall );
 		
-		return getWallTypeBySurroundingFields( map.fieldExists(x, y-1) ? map.getField(x, y-1).isWall() : false, 
-											   map.fieldExists(x-1, y-1) ? map.getField(x-1, y-1).isWall() : false, 
-											   map.fieldExists(x+1, y-1) ? map.getField(x+1, y-1).isWall() : false, 
-											   map.fieldExists(x, y+1) ? map.getField(x, y+1).isWall() : false,
-											   map.fieldExists(x-1, y+1) ? map.getField(x-1, y+1).isWall() : false, 
-											   map.fieldExists(x+1, y+1) ? map.getField(x+1, y+1).isWall() : false,
-											   map.fieldExists(x-1, y) ? map.getField(x-1, y).isWall() : false,															   
-											   map.fieldExists(x+1, y) ? map.getField(x+1, y).isWall() : false );																		  
+		return WALL_TYPES[this.wallMask & 0xFF];
 	}
 	
 	/**
@@ -323,14 +374,7 @@ public final class Field {
 	public WallType getRevealedWallType() {
 		Preconditions.checkArgument( isWall );
 		
-		return getWallTypeBySurroundingFields( map.fieldExists(x, y-1) ? map.getField(x, y-1).isWall() && map.getField(x, y-1).isRevealed() : false, 
-				   map.fieldExists(x-1, y-1) ? map.getField(x-1, y-1).isWall() && map.getField(x-1, y-1).isRevealed()  : false, 
-				   map.fieldExists(x+1, y-1) ? map.getField(x+1, y-1).isWall() && map.getField(x+1, y-1).isRevealed()  : false, 
-				   map.fieldExists(x, y+1) ? map.getField(x, y+1).isWall() && map.getField(x, y+1).isRevealed()  : false,
-				   map.fieldExists(x-1, y+1) ? map.getField(x-1, y+1).isWall() && map.getField(x-1, y+1).isRevealed()  : false, 
-				   map.fieldExists(x+1, y+1) ? map.getField(x+1, y+1).isWall() && map.getField(x+1, y+1).isRevealed()  : false,
-				   map.fieldExists(x-1, y) ? map.getField(x-1, y).isWall() && map.getField(x-1, y).isRevealed()  : false,															   
-				   map.fieldExists(x+1, y) ? map.getField(x+1, y).isWall() && map.getField(x+1, y).isRevealed()  : false );
+		return WALL_TYPES[this.revealedWallMask & 0xFF];
 	}
 	
 	/**
@@ -346,7 +390,7 @@ public final class Field {
 	 * @param rightIsWall
 	 * @return
 	 */
-	private WallType getWallTypeBySurroundingFields(boolean upperIsWall, boolean upperLeftIsWall, boolean upperRightIsWall,
+	private static WallType getWallTypeBySurroundingFields(boolean upperIsWall, boolean upperLeftIsWall, boolean upperRightIsWall,
 			boolean lowerIsWall, boolean lowerLeftIsWall, boolean lowerRightIsWall, boolean leftIsWall, boolean rightIsWall) {
 		
 		// horizontal wall
@@ -423,6 +467,9 @@ public final class Field {
 				
 			this.isWall = false;
 		}
+		
+		this.map.getOccupancy().setWall( this.index, this.isWall );
+		this.updateNeighbourWallMasks();
 	}
 	
 	/**
@@ -457,8 +504,14 @@ public final class Field {
 			
 			this.door = new Door( this );
 		} else {	// attempt to remove a door
+			if ( this.door.isOpen() ) {
+				this.map.getZobrist().toggleOpenDoor( this.index );
+			}
+			
 			this.door = null;
 		}
+		
+		this.map.getOccupancy().setDoor( this.index, door, true );
 	}	
 
 	
@@ -514,25 +567,9 @@ public final class Field {
 	 * @return
 	 */
 	public boolean isBlocked() {
-		if ( this.unit != null )	// units block the field
-			return true;
-		
-		// walls block fields - but OPEN door let u pass!
-		if ( this.isWall ) {
-			if ( !this.isDoor() || this.door.isClosed() ) {
-				return true;
-			}
-		}
-		
-		// does any map object block the field?
-		for (MapObject object : this.objects) {
-			if ( object.blocksField( this.x, this.y ) ) {
-				return true;
-			}
-		}
-		
-		// finally a free field!
-		return false;
+		// units, walls - but OPEN doors - and blocking map objects block the field.
+		// The maps occupancy grid keeps track of all of them.
+		return this.map.getOccupancy().isBlocked( this.index );
 	}
 	
 	/**
@@ -584,18 +621,36 @@ public final class Field {
 		
 		// reveal the field an fire event
 		this.revealed = true;
+		this.map.getOccupancy().setRevealed( this.index );
+		this.map.getZobrist().toggleRevealed( this.index );
+		
+		if ( this.isWall ) {
+			this.updateNeighbourWallMasks();
+		}
 		
 		this.map.fireOnFieldRevealed( this );
 		
 		// reveal surrounding wall fields
-		for (Field f : this.getSurroundingFields()) {
-			if ( f.isWall ) {
+		this.forEachSurrounding( REVEAL_WALL );
+	}
+	
+	/*
+	 * Reveals wall fields. Walls revealed before are left alone, the listeners already know them.
+	 */
+	private static final FieldVisitor REVEAL_WALL = new FieldVisitor() {
+		
+		@Override
+		public void visit(Field f) {
+			if ( f.isWall && !f.revealed ) {
 				f.revealed = true;
+				f.map.getOccupancy().setRevealed( f.index );
+				f.map.getZobrist().toggleRevealed( f.index );
+				f.updateNeighbourWallMasks();
 				
-				this.map.fireOnFieldRevealed( f );
+				f.map.fireOnFieldRevealed( f );
 			}
 		}
-	}
+	};
 	
 	/**************************************************************************************
 	 * 
@@ -603,6 +658,67 @@ public final class Field {
 	 * 
 	 **************************************************************************************/
 	
+	/**
+	 * Write the fields wall/door/revealed state to the maps occupancy grid and hash. Used by the
+	 * {@link Map} after the field has been read from xml.
+	 */
+	void updateOccupancy() {
+		OccupancyGrid occupancy = this.map.getOccupancy();
+		
+		occupancy.setWall( this.index, this.isWall );
+		occupancy.setDoor( this.index, this.door != null, this.door == null || this.door.isClosed() );
+		
+		if ( this.door != null && this.door.isOpen() ) {
+			this.map.getZobrist().toggleOpenDoor( this.index );
+		}
+		
+		if ( this.revealed ) {
+			occupancy.setRevealed( this.index );
+			this.map.getZobrist().toggleRevealed( this.index );
+		}
+	}
+	
+	/**
+	 * Compute the fields wall masks from scratch. Used by the {@link Map} after all
+	 * fields have been read from xml.
+	 */
+	void initWallMasks() {
+		Neighbourhood neighbourhood = this.map.getNeighbourhood();
+		int walls = 0;
+		int revealedWalls = 0;
+		
+		for (int k : Neighbourhood.getSlots( neighbourhood.getMask( this.index ) )) {
+			Field f = this.map.getField( neighbourhood.getNeighbour( this.index, k ) );
+			
+			if ( f.isWall ) {
+				walls |= 1 << k;
+				
+				if ( f.revealed ) {
+					revealedWalls |= 1 << k;
+				}
+			}
+		}
+		
+		this.wallMask = (byte) walls;
+		this.revealedWallMask = (byte) revealedWalls;
+	}
+	
+	/**
+	 * Tell the surrounding fields whether this field is a (revealed) wall. To be called whenever
+	 * the fields wall or revealed state changes.
+	 */
+	private void updateNeighbourWallMasks() {
+		Neighbourhood neighbourhood = this.map.getNeighbourhood();
+		
+		for (int k : Neighbourhood.getSlots( neighbourhood.getMask( this.index ) )) {
+			Field f = this.map.getField( neighbourhood.getNeighbour( this.index, k ) );
+			int bit = 1 << Neighbourhood.getOpposite( k );	// we are f's opposite neighbour
+			
+			f.wallMask = (byte) ( this.isWall ? f.wallMask | bit : f.wallMask & ~bit );
+			f.revealedWallMask = (byte) ( this.isWall && this.revealed ? f.revealedWallMask | bit : f.revealedWallMask & ~bit );
+		}
+	}
+	
 	public Element toXML() {
 		Element xml = new Element( FIELD );
 		
@@ -0,0 +1,13 @@
+package de.d2dev.heroquest.engine.game;
+
+/**
+ * Callback for allocation-free iteration over fields, see e.g. {@link Field#forEachNeighbour(FieldVisitor)}.
+ * Implementations are meant to be created once and reused.
+ * @author Sebastian Bordt
+ *
+ */
+public interface FieldVisitor {
+
+	public void visit(Field field);
+
+}
@@ -1,10 +1,15 @@
 package de.d2dev.heroquest.engine.game;
 
+import com.google.common.base.Preconditions;
+
 import de.d2dev.fourseasons.gamestate.GameStateException;
 import de.d2dev.fourseasons.util.ListenerUtil;
 import de.d2dev.fourseasons.util.Observable;
 import de.d2dev.heroquest.engine.game.action.GameAction;
 import de.d2dev.heroquest.engine.game.action.MoveAction;
+import de.d2dev.heroquest.engine.game.action.UndoStack;
+import de.d2dev.heroquest.engine.game.event.GameEvent;
+import de.d2dev.heroquest.engine.game.journal.ActionJournal;
 
 public abstract class GameContext implements Observable<GameListener> {
 	
@@ -12,20 +17,164 @@ public abstract class GameContext implements Observable<GameListener> {
 	
 	public final Map map;
 	
+	protected DiceSource dice;
+	
+	/*
+	 * Actions that can be unmade
+	 */
+	protected final UndoStack undoStack = new UndoStack();
+	
+	protected boolean simulationMode = false;
+	
+	/*
+	 * number of actions made before the simulation mode has been entered
+	 */
+	private int simulationStart;
+	
+	/*
+	 * Records the executed actions, null if the game is not journaled
+	 */
+	private ActionJournal journal;
+	
 	protected GameContext(Map map) {
+		this( map, new SplittableDice() );
+	}
+	
+	protected GameContext(Map map, DiceSource dice) {
 		super();
 		this.map = map;
+		this.dice = dice;
+	}
+	
+	public ActionJournal getJournal() {
+		return this.journal;
+	}
+	
+	/**
+	 * Record all further executed actions, see {@link ActionJournal}. Actions made
+	 * by {@link #make(GameAction)} are not recorded.
+	 * @param journal {@code null} to stop recording
+	 */
+	public void setJournal(ActionJournal journal) {
+		this.journal = journal;
+	}
+	
+	/**
+	 * The Zobrist hash of the game state, see {@link Map#getHash()}. Equal after an action has
+	 * been made and unmade, e.g. to look up positions in a transposition table or to check that
+	 * a replayed game matches the original.
+	 * @return
+	 */
+	public long getHash() {
+		return this.map.getHash();
+	}
+	
+	public DiceSource getDice() {
+		return this.dice;
+	}
+	
+	/**
+	 * Replace the source of all further dice rolls, e.g. with a seeded one to replay a game.
+	 * @param dice
+	 */
+	public void setDice(DiceSource dice) {
+		this.dice = dice;
 	}
 	
 	
 	public void execute(GameAction action) throws GameStateException {
-		action.excecute();
+		// all events of the action make up one batch
+		this.map.getEventBus().beginBatch();
+		
+		try {
+			action.excecute();
+			
+			if ( this.journal != null ) {
+				this.journal.record( action );
+			}
+			
+			if ( action instanceof MoveAction ) {
+				this.fireOnMoveAction( (MoveAction) action );
+			}
+		} finally {
+			this.map.getEventBus().endBatch();
+		}
+	}
+	
+	/**************************************************************************************
+	 * 
+	 * 										MAKE/UNMAKE
+	 * 
+	 **************************************************************************************/
+	
+	/**
+	 * Execute an action such that it can be taken back by {@link #unmake()}, e.g. to look
+	 * ahead without copying the map. Dice rolled are not taken back.
+	 * @param action
+	 * @throws GameStateException
+	 */
+	public void make(GameAction action) throws GameStateException {
+		action.make( this.undoStack );
+		this.undoStack.pushAction( action );
 		
 		if ( action instanceof MoveAction ) {
 			this.fireOnMoveAction( (MoveAction) action );
 		}
 	}
 	
+	/**
+	 * Take back the last action made.
+	 * @throws GameStateException
+	 */
+	public void unmake() throws GameStateException {
+		Preconditions.checkState( !this.undoStack.isEmpty(), "No action to unmake." );
+		
+		this.undoStack.popAction().unmake( this.undoStack );
+	}
+	
+	/**
+	 * Number of actions that can be unmade.
+	 * @return
+	 */
+	public int getUndoDepth() {
+		return this.undoStack.size();
+	}
+	
+	/**
+	 * Forget the actions made so far, e.g. at the end of a turn.
+	 */
+	public void clearUndo() {
+		Preconditions.checkState( !this.simulationMode, "Can't forget actions while simulating." );
+		
+		this.undoStack.clear();
+	}
+	
+	public boolean isSimulationMode() {
+		return this.simulationMode;
+	}
+	
+	/**
+	 * In simulation mode neither the game listeners (e.g. sound) nor the handlers of the
+	 * event bus (e.g. rendering) are notified and nothing is logged. The map listeners
+	 * keep following the map, see {@link Map#setListenersSuppressed(boolean)}. All
+	 * actions made in simulation mode have to be unmade before it is left, so the
+	 * listeners find the map as they left it.
+	 * @param simulationMode
+	 */
+	public void setSimulationMode(boolean simulationMode) {
+		if ( simulationMode == this.simulationMode )
+			return;
+		
+		if ( simulationMode ) {
+			this.simulationStart = this.undoStack.size();
+		} else {
+			Preconditions.checkState( this.undoStack.size() == this.simulationStart, "Actions made in simulation mode have not been unmade." );
+		}
+		
+		this.simulationMode = simulationMode;
+		this.map.setListenersSuppressed( simulationMode );
+	}
+	
 	/**************************************************************************************
 	 * 
 	 * 						           GAME METHODS
@@ -46,15 +195,25 @@ public abstract class GameContext implements Observable<GameListener> {
 	 **************************************************************************************/
 	
 	protected void fireOnMoveAction(MoveAction action) {
+		if ( this.simulationMode )
+			return;
+		
 		for (GameListener l : listeners) {
 			l.onMoveAction( action );
 		}
+		
+		this.map.getEventBus().publish( GameEvent.Type.MOVE_ACTION, action );
 	}
 	
 	protected void fireOnMonsterDies(Monster monster) {
+		if ( this.simulationMode )
+			return;
+		
 		for (GameListener l : listeners) {
 			l.onMonsterDies( monster );
 		}
+		
+		this.map.getEventBus().publish( GameEvent.Type.MONSTER_DIES, monster );
 	}
 
 	@Override
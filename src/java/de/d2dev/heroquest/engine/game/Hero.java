@@ -65,6 +65,9 @@ public class Hero extends Unit {
 			this.intelligence = 6;
 			break;
 		}
+		
+		// fully set up - the map may now know about us
+		this.map.registerUnit( this );
 	}
 
 	public HeroType getHeroType() {
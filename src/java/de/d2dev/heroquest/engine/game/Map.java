@@ -3,8 +3,11 @@ package de.d2dev.heroquest.engine.game;
 import de.d2dev.fourseasons.files.FileUtil;
 import de.d2dev.fourseasons.gamestate.GameStateException;
 import de.d2dev.fourseasons.util.Observable;
-import de.d2dev.fourseasons.util.ListenerUtil;
 import de.d2dev.heroquest.engine.game.Hero.HeroType;
+import de.d2dev.heroquest.engine.game.Monster.MonsterType;
+import de.d2dev.heroquest.engine.game.event.GameEvent;
+import de.d2dev.heroquest.engine.game.event.GameEventBus;
+import de.d2dev.heroquest.engine.game.event.ListenerEventHandler;
 
 import java.util.*;
 
@@ -28,16 +31,56 @@ public final class Map implements Observable<MapListener> {
 	private static final String HEIGHT = "height";
 	private static final String FIELDS = "fields";
 	
-	private ListenerUtil<MapListener> listeners = new ListenerUtil<MapListener>();
+	/*
+	 * The subscriptions of the map listeners to the event bus
+	 */
+	private IdentityHashMap<MapListener, GameEventBus.Subscription> listeners = new IdentityHashMap<MapListener, GameEventBus.Subscription>();
 	
 	private int width;
 	private int height;
 	
 	private Field[][] fields;
+	
+	/**
+	 * Bit planes mirroring the fields blocking state. Kept up to date by the game state mutators.
+	 */
+	private OccupancyGrid occupancy;
+	
+	/**
+	 * The fields by field index.
+	 */
+	private Field[] fieldsByIndex;
+	
+	/**
+	 * Precomputed neighbour indices of all fields.
+	 */
+	private Neighbourhood neighbourhood;
+	
+	/**
+	 * Zobrist hash of the game state. Kept up to date by the game state mutators.
+	 */
+	private ZobristHash zobrist = new ZobristHash();
 
-//	private List<Unit> units = new ArrayList<Unit>();
-//	private List<Unit> heroes = new ArrayList<Unit>();
-//	private List<Unit> monsters = new ArrayList<Unit>();
+	/*
+	 * Unit registry - all units currently standing on the map in the order they have been
+	 * placed. Maintained by the units themselves and by removeUnit(), so we never have to
+	 * scan the fields to find them.
+	 */
+	private List<Unit> units = new ArrayList<Unit>();
+	private List<Hero> heroes = new ArrayList<Hero>();
+	private List<Monster> monsters = new ArrayList<Monster>();
+	
+	private EnumMap<HeroType, List<Hero>> heroesByType = new EnumMap<HeroType, List<Hero>>( HeroType.class );
+	private EnumMap<MonsterType, List<Monster>> monstersByType = new EnumMap<MonsterType, List<Monster>>( MonsterType.class );
+	
+	/*
+	 * Read only views on the registry, created once.
+	 */
+	private List<Unit> unitsView = Collections.unmodifiableList( units );
+	private List<Hero> heroesView = Collections.unmodifiableList( heroes );
+	private List<Monster> monstersView = Collections.unmodifiableList( monsters );
+	private EnumMap<MonsterType, List<Monster>> monstersByTypeViews = new EnumMap<MonsterType, List<Monster>>( MonsterType.class );
+	
 	private List<Room> rooms = new ArrayList<Room>();
 	
 	private List<MapObject> objects = new ArrayList<MapObject>();
@@ -48,6 +91,12 @@ public final class Map implements Observable<MapListener> {
 	
 	private GameContext context;
 	
+	/*
+	 * All map and game events go over the bus. The map listeners are synchronous handlers of it,
+	 * see addListener.
+	 */
+	private final GameEventBus eventBus = new GameEventBus();
+	
 	/**************************************************************************************
 	 * 
 	 * 										CONSTRUCTORS
@@ -66,11 +115,15 @@ public final class Map implements Observable<MapListener> {
 		this.width = width;
 		this.height = height;
 		
+		this.occupancy = new OccupancyGrid( width, height );
+		this.neighbourhood = new Neighbourhood( width, height, this.occupancy );
 		this.fields = new Field[width][height];
+		this.fieldsByIndex = new Field[this.occupancy.getIndexCapacity()];
 		
 		for (int x=0; x<this.width; x++) {
 			for (int y=0; y<this.height; y++) {
 				this.fields[x][y] = new Field( this, x, y );
+				this.fieldsByIndex[this.fields[x][y].getIndex()] = this.fields[x][y];
 			}
 		}
 	}
@@ -87,7 +140,10 @@ public final class Map implements Observable<MapListener> {
 		this.height = FileUtil.readIntAttribute( element, HEIGHT );
 		
 		// parse the fields
+		this.occupancy = new OccupancyGrid( this.width, this.height );
+		this.neighbourhood = new Neighbourhood( this.width, this.height, this.occupancy );
 		this.fields = new Field[this.width][this.height];
+		this.fieldsByIndex = new Field[this.occupancy.getIndexCapacity()];
 		
 		Elements field_elements = element.getChildElements( FIELDS ).get(0).getChildElements();
 		
@@ -96,6 +152,8 @@ public final class Map implements Observable<MapListener> {
 			
 			if ( this.fields[field.getX()][field.getY()] == null ) {
 				this.fields[field.getX()][field.getY()] = field;
+				this.fieldsByIndex[field.getIndex()] = field;
+				field.updateOccupancy();
 			} else {
 				throw new IllegalArgumentException("Field appears twice in xml");
 			}	
@@ -109,6 +167,13 @@ public final class Map implements Observable<MapListener> {
 				}
 			}
 		}
+		
+		// now that all fields are known, compute the wall masks
+		for (Field[] fields : this.fields) {
+			for(Field field : fields) {
+				field.initWallMasks();
+			}
+		}
 	}
 	
 	/**************************************************************************************
@@ -136,7 +201,9 @@ public final class Map implements Observable<MapListener> {
 	 * @return
 	 */
 	public Field getField(int x, int y) {
-		Preconditions.checkArgument( this.fieldExists(x, y), "Field at " + x + "/" +  y + " does not exist" );
+		// no Preconditions here - don't build the message unless we have to
+		if ( !this.fieldExists(x, y) )
+			throw new IllegalArgumentException( "Field at " + x + "/" +  y + " does not exist" );
 		
 		return this.fields[x][y];
 	}
@@ -145,6 +212,100 @@ public final class Map implements Observable<MapListener> {
 		return fields;
 	}
 	
+	/**
+	 * The field index of the field at x/y. Field indices are used for fast, primitive
+	 * per-field data (see {@link OccupancyGrid}).
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public int getFieldIndex(int x, int y) {
+		return this.occupancy.getIndex( x, y );
+	}
+	
+	/**
+	 * Get the field with the given field index.
+	 * @param index
+	 * @return
+	 */
+	public Field getField(int index) {
+		return this.fieldsByIndex[index];
+	}
+	
+	/**
+	 * The maps precomputed neighbour table.
+	 * @return
+	 */
+	public Neighbourhood getNeighbourhood() {
+		return neighbourhood;
+	}
+	
+	/**
+	 * The maps occupancy bit planes.
+	 * @return
+	 */
+	public OccupancyGrid getOccupancy() {
+		return occupancy;
+	}
+	
+	/**
+	 * The Zobrist hash of the game state (units, body forces, open doors and revealed fields),
+	 * see {@link ZobristHash}. Maintained incrementally, so this is O(1).
+	 * @return
+	 */
+	public long getHash() {
+		return this.zobrist.get();
+	}
+	
+	/**
+	 * Compute the Zobrist hash of the game state from scratch. Equals {@link #getHash()} unless
+	 * the game state has been corrupted.
+	 * @return
+	 */
+	public long computeHash() {
+		long hash = 0;
+		
+		for (Unit unit : this.units) {
+			hash ^= ZobristHash.unitKey( unit, unit.getField().getIndex(), unit.getBodyForce() );
+		}
+		
+		for (Field field : this.fieldsByIndex) {
+			if ( field == null )
+				continue;
+			
+			if ( field.isDoor() && field.getDoor().isOpen() )
+				hash ^= ZobristHash.openDoorKey( field.getIndex() );
+			
+			if ( field.isRevealed() )
+				hash ^= ZobristHash.revealedKey( field.getIndex() );
+		}
+		
+		return hash;
+	}
+	
+	ZobristHash getZobrist() {
+		return this.zobrist;
+	}
+	
+	/**
+	 * Take a read only snapshot of the maps blocking state and unit positions.
+	 * @return
+	 */
+	public MapSnapshot createSnapshot() {
+		return new MapSnapshot( this, this.occupancy.copyBlocked(), this.occupancy.copyClosedDoors() );
+	}
+	
+	/**
+	 * Is the field at x/y blocked? Same as {@code getField(x, y).isBlocked()} but a
+	 * single word operation.
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public boolean isBlocked(int x, int y) {
+		return this.occupancy.isBlocked( this.occupancy.getIndex( x, y ) );
+	}
+	
 	/**
 	 * Add a new room to the map.
 	 * @return The newly created room.
@@ -174,6 +335,10 @@ public final class Map implements Observable<MapListener> {
 		for (int x=object.getX(); x<object.getX() + object.getWidth(); x++ ){
 			for ( int y=object.getY(); y<object.getY() + object.getHeight(); y++) {
 				this.getField( x, y ).objects.add( object );
+				
+				if ( object.blocksField(x, y) ) {
+					this.occupancy.setObjectBlocked( this.occupancy.getIndex( x, y ) );
+				}
 			}
 		}		
 		
@@ -216,41 +381,21 @@ public final class Map implements Observable<MapListener> {
 	}
 
 	/**
-	 * Get all units.
+	 * Get all units, in the order they have been placed on the map. The returned list is a
+	 * read only view that reflects later changes.
 	 * @return
 	 */
 	public List<Unit> getUnits() {
-        // TODO more efficient
-    	ArrayList<Unit> units = new ArrayList<Unit>();
-    	
-    	for (Field[] fields : this.fields) {
-			for(Field field : fields) {
-				if ( field.hasUnit() ) {
-					units.add( field.getUnit() );
-				}
-			}
-		}
-    	
-    	return units;
+		return this.unitsView;
 	}
         
 	/**
-	 * Get all heroes.
+	 * Get all heroes, in the order they have been placed on the map. The returned list is a
+	 * read only view that reflects later changes.
 	 * @return
 	 */
     public List<Hero> getHeroes() {
-        // TODO more efficient
-    	ArrayList<Hero> heroes = new ArrayList<Hero>();
-    	
-    	for (Field[] fields : this.fields) {
-			for(Field field : fields) {
-				if ( field.hasUnit() && field.getUnit().isHero()) {
-					heroes.add( (Hero) field.getUnit() );
-				}
-			}
-		}
-    	
-    	return heroes;
+    	return this.heroesView;
     }
     
     /**
@@ -259,33 +404,34 @@ public final class Map implements Observable<MapListener> {
      * @return {@code null} in case there is none.
      */
     public Hero getHero(HeroType type) {
-    	List<Hero> heroes = this.getHeroes();
-    	
-    	for (Hero hero : heroes) {
-    		if ( hero.getHeroType() == type ){
-    			return hero;
-    		}
-    	}
+    	List<Hero> heroes = this.heroesByType.get( type );
     	
     	// not found
-    	return null;
+    	if ( heroes == null || heroes.isEmpty() )
+    		return null;
+    	
+    	return heroes.get( 0 );
     }
     
     /**
-     * Get all monsters.
+     * Get all monsters, in the order they have been placed on the map. The returned list is a
+	 * read only view that reflects later changes.
      * @return
      */
     public List<Monster> getMonsters() {
-        // TODO better
-    	ArrayList<Monster> monsters = new ArrayList<Monster>();
+    	return this.monstersView;
+    }
+    
+    /**
+     * Get all monsters of the given type.
+     * @param type
+     * @return A read only view that reflects later changes, empty in case there is none.
+     */
+    public List<Monster> getMonsters(MonsterType type) {
+    	List<Monster> monsters = this.monstersByTypeViews.get( type );
     	
-    	for (Field[] fields : this.fields) {
-			for(Field field : fields) {
-				if ( field.hasUnit() && field.getUnit().isMonster() ) {
-					monsters.add( (Monster) field.getUnit() );
-				}
-			}
-		}
+    	if ( monsters == null )
+    		return Collections.emptyList();
     	
     	return monsters;
     }
@@ -297,6 +443,9 @@ public final class Map implements Observable<MapListener> {
     	
     	field.unit = null;
     	unit.field = null;
+    	this.occupancy.setUnit( field.getIndex(), false );
+    	this.zobrist.toggleUnit( unit, field.getIndex(), unit.getBodyForce() );
+    	this.unregisterUnit( unit );
     	
     	this.fireOnUnitLeavesField( field );
     }
@@ -307,6 +456,90 @@ public final class Map implements Observable<MapListener> {
 	 * 
 	 **************************************************************************************/
     
+    /**
+     * Add a unit to the unit registry. Called once the unit is fully constructed and
+     * standing on the map. A unit that has been removed before returns to its old place
+     * in the registry, so undoing a kill keeps the order of the units.
+     * @param unit
+     */
+    void registerUnit(Unit unit) {
+    	int[] indices = unit.registryIndices != null ? unit.registryIndices : new int[] { -1, -1, -1 };
+    	unit.registryIndices = null;
+    	
+    	insert( this.units, unit, indices[0] );
+    	this.zobrist.toggleUnit( unit, unit.getField().getIndex(), unit.getBodyForce() );
+    	
+    	if ( unit.isHero() ) {
+    		Hero hero = (Hero) unit;
+    		insert( this.heroes, hero, indices[1] );
+    		
+    		List<Hero> ofType = this.heroesByType.get( hero.getHeroType() );
+    		
+    		if ( ofType == null ) {
+    			ofType = new ArrayList<Hero>();
+    			this.heroesByType.put( hero.getHeroType(), ofType );
+    		}
+    		
+    		insert( ofType, hero, indices[2] );
+    	} else if ( unit.isMonster() ) {
+    		Monster monster = (Monster) unit;
+    		insert( this.monsters, monster, indices[1] );
+    		
+    		List<Monster> ofType = this.monstersByType.get( monster.getMonsterType() );
+    		
+    		if ( ofType == null ) {
+    			ofType = new ArrayList<Monster>();
+    			this.monstersByType.put( monster.getMonsterType(), ofType );
+    			this.monstersByTypeViews.put( monster.getMonsterType(), Collections.unmodifiableList( ofType ) );
+    		}
+    		
+    		insert( ofType, monster, indices[2] );
+    	}
+    }
+    
+    /**
+     * Remove a unit from the unit registry. The unit remembers where it has been.
+     * @param unit
+     */
+    private void unregisterUnit(Unit unit) {
+    	int[] indices = new int[3];
+    	indices[0] = remove( this.units, unit );
+    	
+    	if ( unit.isHero() ) {
+    		Hero hero = (Hero) unit;
+    		indices[1] = remove( this.heroes, hero );
+    		indices[2] = remove( this.heroesByType.get( hero.getHeroType() ), hero );
+    	} else if ( unit.isMonster() ) {
+    		Monster monster = (Monster) unit;
+    		indices[1] = remove( this.monsters, monster );
+    		indices[2] = remove( this.monstersByType.get( monster.getMonsterType() ), monster );
+    	}
+    	
+    	unit.registryIndices = indices;
+    }
+    
+    /**
+     * Insert at the given index, or at the end if the list has become shorter meanwhile.
+     */
+    private static <T> void insert(List<T> list, T element, int index) {
+    	if ( index < 0 || index > list.size() )
+    		list.add( element );
+    	else
+    		list.add( index, element );
+    }
+    
+    /**
+     * @return the index the element had
+     */
+    private static <T> int remove(List<T> list, T element) {
+    	int index = list.indexOf( element );
+    	
+    	if ( index >= 0 )
+    		list.remove( index );
+    	
+    	return index;
+    }
+    
     
 	/**************************************************************************************
 	 * 
@@ -322,51 +555,73 @@ public final class Map implements Observable<MapListener> {
 		this.context = context;
 	}    
     
+	/**
+	 * The bus all map and game events are published on. The {@link MapListener}s are
+	 * subscribed to it synchronously, the {@link GameListener}s are still notified by
+	 * the {@link GameContext} in addition.
+	 * @return
+	 */
+	public GameEventBus getEventBus() {
+		return this.eventBus;
+	}
+	
+	public boolean isListenersSuppressed() {
+		return this.eventBus.isSuspended();
+	}
+
+	/**
+	 * Stop or resume notifying the batched and asynchronous handlers of the event bus, e.g.
+	 * rendering and sound, see {@link GameEventBus#setSuspended(boolean)}. The
+	 * {@link MapListener}s keep the state derived from the map (e.g. the caches of the
+	 * ai) and are notified anyway, so they are up to date when the simulation ends.
+	 * @param listenersSuppressed
+	 */
+	public void setListenersSuppressed(boolean listenersSuppressed) {
+		this.eventBus.setSuspended( listenersSuppressed );
+	}
+	
+	/**
+	 * Subscribe the listener to the event bus, it is notified synchronously.
+	 */
 	@Override
 	public void addListener(MapListener l) {
-		this.listeners.addListener(l);
+		if ( this.listeners.containsKey( l ) )
+			return;
+		
+		this.listeners.put( l, this.eventBus.subscribe( new ListenerEventHandler( l ), GameEventBus.Mode.SYNCHRONOUS ) );
 	}
 
 
 	@Override
 	public void removeListener(MapListener l) {
-		this.listeners.removeListener(l);
+		GameEventBus.Subscription subscription = this.listeners.remove( l );
+		
+		if ( subscription != null )
+			subscription.cancel();
 	}
 	
 	void fireOnUnitEntersField(Field field) {
-		for (MapListener l : this.listeners) {
-			l.onUnitEntersField(field);
-		}
+		this.eventBus.publish( GameEvent.Type.UNIT_ENTERS_FIELD, field );
 	}
 	
 	void fireOnUnitLeavesField(Field field) {
-		for (MapListener l : this.listeners) {
-			l.onUnitLeavesField(field);
-		}
+		this.eventBus.publish( GameEvent.Type.UNIT_LEAVES_FIELD, field );
 	}
 	
 	void fireOnFieldRevealed(Field field) {
-		for (MapListener l : this.listeners) {
-			l.onFieldRevealed(field);
-		}
+		this.eventBus.publish( GameEvent.Type.FIELD_REVEALED, field );
 	}
 	
 	void fireOnDoorOpened(Door door) {
-		for (MapListener l : this.listeners) {
-			l.onDoorOpened(door);
-		}
+		this.eventBus.publish( GameEvent.Type.DOOR_OPENED, door );
 	}
 	
 	void fireOnRoomRevealed(Room room) {
-		for (MapListener l : this.listeners) {
-			l.onRoomRevealed(room);
-		}
+		this.eventBus.publish( GameEvent.Type.ROOM_REVEALED, room );
 	}
 	
 	void fireOnFieldTextureChanges(Field field) {
-		for (MapListener l : this.listeners) {
-			l.onFieldTextureChanges(field);
-		}
+		this.eventBus.publish( GameEvent.Type.FIELD_TEXTURE_CHANGES, field );
 	}
 	
 	/**
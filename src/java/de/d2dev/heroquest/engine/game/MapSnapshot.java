@@ -0,0 +1,70 @@
+package de.d2dev.heroquest.engine.game;
+
+/**
+ * Read only copy of the state of a {@link Map} that matters for planning: which fields are
+ * blocked, where the units stand and which doors are closed. Cheap to take (a few word
+ * arrays are copied) and safe to read from several threads while the map itself must
+ * not be touched, e.g. for parallel ai planning.<br>
+ * Fields are addressed by field index, see {@link Map#getFieldIndex(int, int)}.
+ * @author Sebastian Bordt
+ *
+ */
+public final class MapSnapshot {
+
+	private final Map map;
+
+	private final long[] blocked;
+	private final long[] closedDoors;
+
+	/**
+	 * The units by field index.
+	 */
+	private final Unit[] units;
+
+	/**
+	 * Only visible to the package as snapshots are taken by {@link Map#createSnapshot()}.
+	 * @param map
+	 * @param blocked
+	 * @param closedDoors
+	 */
+	MapSnapshot(Map map, long[] blocked, long[] closedDoors) {
+		this.map = map;
+		this.blocked = blocked;
+		this.closedDoors = closedDoors;
+		this.units = new Unit[map.getOccupancy().getIndexCapacity()];
+
+		for (Unit unit : map.getUnits()) {
+			this.units[unit.getField().getIndex()] = unit;
+		}
+	}
+
+	/**
+	 * The map the snapshot has been taken of. Its fields and neighbourhood can be
+	 * used to interpret the snapshot, but its game state may have changed since.
+	 * @return
+	 */
+	public Map getMap() {
+		return map;
+	}
+
+	public boolean isBlocked(int index) {
+		return (this.blocked[index >>> 6] & (1L << index)) != 0;
+	}
+
+	public boolean isClosedDoor(int index) {
+		return (this.closedDoors[index >>> 6] & (1L << index)) != 0;
+	}
+
+	public boolean hasUnit(int index) {
+		return this.units[index] != null;
+	}
+
+	/**
+	 * The unit standing on the field at the time the snapshot was taken.
+	 * @param index
+	 * @return {@code null} in case there was none.
+	 */
+	public Unit getUnit(int index) {
+		return this.units[index];
+	}
+}
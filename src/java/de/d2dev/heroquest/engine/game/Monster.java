@@ -107,6 +107,9 @@ public class Monster extends Unit {
 			this.intelligence = 0;
 			break;
 		}
+		
+		// fully set up - the map may now know about us
+		this.map.registerUnit( this );
 	}
 
 	public MonsterType getMonsterType() {
@@ -0,0 +1,208 @@
+package de.d2dev.heroquest.engine.game;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed neighbour table of a {@link Map}. For each field index it holds the field indices
+ * of the (at most) 8 surrounding fields together with a border mask that tells which of them
+ * exist. Built once per map, so walking the neighbours of a field needs neither range checks
+ * nor allocations.<br>
+ * <br>
+ * The surrounding fields are numbered as follows. The first four are the direct neighbours,
+ * i.e. bits 0-3 of a mask ({@link #DIRECT}) describe the direct neighbours.
+ * <pre>
+ *   4 0 5
+ *   1 . 3
+ *   6 2 7
+ * </pre>
+ * @author Sebastian Bordt
+ *
+ */
+public final class Neighbourhood {
+
+	public static final int UP = 0;
+	public static final int LEFT = 1;
+	public static final int DOWN = 2;
+	public static final int RIGHT = 3;
+	public static final int UPPER_LEFT = 4;
+	public static final int UPPER_RIGHT = 5;
+	public static final int LOWER_LEFT = 6;
+	public static final int LOWER_RIGHT = 7;
+
+	/**
+	 * Mask of the direct neighbours.
+	 */
+	public static final int DIRECT = 0x0F;
+
+	/**
+	 * Mask of all surrounding fields.
+	 */
+	public static final int SURROUNDING = 0xFF;
+
+	private static final int[] DX = {  0, -1, 0, 1, -1, 1, -1, 1 };
+	private static final int[] DY = { -1,  0, 1, 0, -1, -1, 1, 1 };
+
+	/**
+	 * The slots set in each of the 256 masks, see {@link #getSlots(int)}.
+	 */
+	private static final int[][] SLOTS = new int[256][];
+
+	static {
+		for (int mask=0; mask<256; mask++) {
+			SLOTS[mask] = new int[Integer.bitCount( mask )];
+			int n = 0;
+
+			for (int k=0; k<8; k++) {
+				if ( (mask & (1 << k)) != 0 ) {
+					SLOTS[mask][n++] = k;
+				}
+			}
+		}
+	}
+
+	/**
+	 * 8 entries per field index, -1 for fields that do not exist.
+	 */
+	private final int[] neighbours;
+
+	/**
+	 * Which of the 8 surrounding fields exist, one byte per field index.
+	 */
+	private final byte[] masks;
+
+	/**
+	 * Only visible to the package as the table is created by the {@link Map}.
+	 * @param width
+	 * @param height
+	 * @param occupancy to get the field indices from
+	 */
+	Neighbourhood(int width, int height, OccupancyGrid occupancy) {
+		int capacity = occupancy.getIndexCapacity();
+
+		this.neighbours = new int[capacity << 3];
+		this.masks = new byte[capacity];
+
+		Arrays.fill( this.neighbours, -1 );
+
+		for (int x=0; x<width; x++) {
+			for (int y=0; y<height; y++) {
+				int index = occupancy.getIndex( x, y );
+				int mask = 0;
+
+				for (int k=0; k<8; k++) {
+					int nx = x + DX[k];
+					int ny = y + DY[k];
+
+					if ( nx >= 0 && nx < width && ny >= 0 && ny < height ) {
+						this.neighbours[(index << 3) + k] = occupancy.getIndex( nx, ny );
+						mask |= 1 << k;
+					}
+				}
+
+				this.masks[index] = (byte) mask;
+			}
+		}
+	}
+
+	/**
+	 * Which of the fields surrounding fields exist. Bit k is set if neighbour k exists.
+	 * @param index
+	 * @return
+	 */
+	public int getMask(int index) {
+		return this.masks[index] & 0xFF;
+	}
+
+	/**
+	 * The neighbour slots set in a mask in ascending order, e.g. {@link #UP} and {@link #DOWN} for 0x05.
+	 * This is how the neighbours of a field are walked:
+	 * <pre>
+	 * for (int k : Neighbourhood.getSlots( neighbourhood.getMask( index ) & Neighbourhood.DIRECT )) {
+	 *     int neighbour = neighbourhood.getNeighbour( index, k );
+	 *     ...
+	 * }
+	 * </pre>
+	 * The arrays are precomputed and shared, they must not be modified.
+	 * @param mask 8 bits, e.g. {@link #getMask(int)} masked with {@link #DIRECT}
+	 * @return
+	 */
+	public static int[] getSlots(int mask) {
+		return SLOTS[mask];
+	}
+
+	/**
+	 * The field index of the fields k-th neighbour.
+	 * @param index
+	 * @param k one of {@link #UP}, {@link #LEFT}, ... {@link #LOWER_RIGHT}
+	 * @return -1 in case the neighbour does not exist
+	 */
+	public int getNeighbour(int index, int k) {
+		return this.neighbours[(index << 3) + k];
+	}
+
+	/**
+	 * The neighbour a unit walking into the given direction enters.
+	 * @param direction
+	 * @return one of {@link #UP}, {@link #LEFT}, {@link #DOWN}, {@link #RIGHT}
+	 */
+	public static int getNeighbour(Direction2D direction) {
+		switch ( direction ) {
+		case LEFT:
+			return LEFT;
+		case DOWN:
+			return DOWN;
+		case RIGHT:
+			return RIGHT;
+		default:	// UP
+			return UP;
+		}
+	}
+
+	/**
+	 * The direction a unit walks to enter its k-th neighbour. Inverse of {@link #getNeighbour(Direction2D)}.
+	 * @param k one of {@link #UP}, {@link #LEFT}, {@link #DOWN}, {@link #RIGHT}
+	 * @return
+	 */
+	public static Direction2D getDirection(int k) {
+		switch ( k ) {
+		case LEFT:
+			return Direction2D.LEFT;
+		case DOWN:
+			return Direction2D.DOWN;
+		case RIGHT:
+			return Direction2D.RIGHT;
+		case UP:
+			return Direction2D.UP;
+		default:
+			throw new IllegalArgumentException( "getDirection: no direct neighbour" );
+		}
+	}
+
+	/**
+	 * The opposite direction of k, e.g. {@link #DOWN} for {@link #UP}
+	 * and {@link #LOWER_RIGHT} for {@link #UPPER_LEFT}.
+	 * @param k
+	 * @return
+	 */
+	public static int getOpposite(int k) {
+		return k < 4 ? k ^ 2 : 11 - k;
+	}
+	
+	/**
+	 * The x-offset of the k-th neighbour.
+	 * @param k
+	 * @return
+	 */
+	public static int getDX(int k) {
+		return DX[k];
+	}
+
+	/**
+	 * The y-offset of the k-th neighbour.
+	 * @param k
+	 * @return
+	 */
+	public static int getDY(int k) {
+		return DY[k];
+	}
+}
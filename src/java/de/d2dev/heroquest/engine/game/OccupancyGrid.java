@@ -0,0 +1,284 @@
+package de.d2dev.heroquest.engine.game;
+
+/**
+ * Primitive bit planes that mirror the blocking relevant state of a {@link Map}'s fields.
+ * There is one plane for walls, doors, closed doors, units, blocking {@link MapObject}s and
+ * revealed fields. Each plane holds one bit per field, packed into {@code long} words.<br>
+ * <br>
+ * Fields are addressed by their field index (see {@link Map#getFieldIndex(int, int)}).
+ * Rows are padded to a power of two of at least 64 fields, so a field index is simply
+ * {@code (y << rowShift) | x} and every row starts at a word boundary. Thus a blocking query is
+ * a single word operation and up to 64 fields of a row can be scanned at once.<br>
+ * <br>
+ * The planes are updated incrementally by the game state mutators
+ * ({@link Unit#moveTo(Field)}, {@link Door#open()}, {@link Field#setWall(boolean)},
+ * {@link Map#addMapObject(MapObject)}, {@link Map#removeUnit(Unit)} ...) and must
+ * not be modified by anyone else.
+ * @author Sebastian Bordt
+ *
+ */
+public final class OccupancyGrid {
+
+	/**
+	 * log2 of the number of fields per row (including padding).
+	 */
+	private final int rowShift;
+
+	/**
+	 * log2 of the number of words per row.
+	 */
+	private final int rowWordShift;
+
+	private final int width;
+	private final int height;
+
+	/*
+	 * The bit planes
+	 */
+	private final long[] walls;
+	private final long[] doors;
+	private final long[] closedDoors;
+	private final long[] units;
+	private final long[] objects;
+	private final long[] revealed;
+
+	/**
+	 * Only visible to the package as the grid is created by the {@link Map}.
+	 * @param width
+	 * @param height
+	 */
+	OccupancyGrid(int width, int height) {
+		this.width = width;
+		this.height = height;
+
+		// at least one word per row
+		int shift = 6;
+
+		while ( (1 << shift) < width ) {
+			shift++;
+		}
+
+		this.rowShift = shift;
+		this.rowWordShift = shift - 6;
+
+		int numWords = height << this.rowWordShift;
+
+		this.walls = new long[numWords];
+		this.doors = new long[numWords];
+		this.closedDoors = new long[numWords];
+		this.units = new long[numWords];
+		this.objects = new long[numWords];
+		this.revealed = new long[numWords];
+	}
+
+	/**************************************************************************************
+	 *
+	 * 										INDEXING
+	 *
+	 **************************************************************************************/
+
+	/**
+	 * The field index of the field at x/y. Not range checked.
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public int getIndex(int x, int y) {
+		return (y << this.rowShift) | x;
+	}
+
+	/**
+	 * The x-coordinate of a field index.
+	 * @param index
+	 * @return
+	 */
+	public int getX(int index) {
+		return index & ((1 << this.rowShift) - 1);
+	}
+
+	/**
+	 * The y-coordinate of a field index.
+	 * @param index
+	 * @return
+	 */
+	public int getY(int index) {
+		return index >>> this.rowShift;
+	}
+
+	/**
+	 * Distance between the indices of two vertically adjacent fields.
+	 * @return
+	 */
+	public int getRowStride() {
+		return 1 << this.rowShift;
+	}
+
+	/**
+	 * The upper bound (exclusive) of all field indices. Use this to size arrays
+	 * that hold one entry per field index.
+	 * @return
+	 */
+	public int getIndexCapacity() {
+		return this.height << this.rowShift;
+	}
+
+	/**
+	 * The number of words each row occupies in a plane.
+	 * @return
+	 */
+	public int getWordsPerRow() {
+		return 1 << this.rowWordShift;
+	}
+
+	/**************************************************************************************
+	 *
+	 * 										QUERIES
+	 *
+	 **************************************************************************************/
+
+	/**
+	 * Whether the field with the given index is blocked. Same semantics as {@link Field#isBlocked()}.
+	 * @param index
+	 * @return
+	 */
+	public boolean isBlocked(int index) {
+		return (this.getBlockedWord( index >>> 6 ) & (1L << index)) != 0;
+	}
+
+	public boolean isWall(int index) {
+		return (this.walls[index >>> 6] & (1L << index)) != 0;
+	}
+
+	public boolean isDoor(int index) {
+		return (this.doors[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Whether the field is blocked for good: a wall that is no door or a blocking {@link MapObject}.
+	 * @param index
+	 * @return
+	 */
+	public boolean isObstacle(int index) {
+		int w = index >>> 6;
+		
+		return ((this.objects[w] | (this.walls[w] & ~this.doors[w])) & (1L << index)) != 0;
+	}
+
+	public boolean hasUnit(int index) {
+		return (this.units[index >>> 6] & (1L << index)) != 0;
+	}
+
+	public boolean isRevealed(int index) {
+		return (this.revealed[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Blocked bits for 64 fields of one row. Bit i stands for the field at x = 64 * {@code word} + i.
+	 * Padding bits are never set.
+	 * @param y
+	 * @param word
+	 * @return
+	 */
+	public long getBlockedRowWord(int y, int word) {
+		return this.getBlockedWord( (y << this.rowWordShift) + word );
+	}
+
+	/**
+	 * Are all fields from {@code fromX} to {@code toX} (both inclusive) in row y free?
+	 * @param y
+	 * @param fromX
+	 * @param toX
+	 * @return
+	 */
+	public boolean isRowSegmentFree(int y, int fromX, int toX) {
+		if ( fromX > toX )
+			return true;
+
+		int first = this.getIndex( fromX, y );
+		int last = this.getIndex( toX, y );
+
+		for (int w = first >>> 6; w <= last >>> 6; w++) {
+			long mask = -1L;
+
+			if ( w == first >>> 6 )
+				mask &= -1L << first;
+			if ( w == last >>> 6 )
+				mask &= -1L >>> (63 - (last & 63));
+
+			if ( (this.getBlockedWord( w ) & mask) != 0 )
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * A copy of the blocked bits of all fields, for {@link MapSnapshot}s.
+	 * @return
+	 */
+	long[] copyBlocked() {
+		long[] copy = new long[this.walls.length];
+		
+		for (int w=0; w<copy.length; w++) {
+			copy[w] = this.getBlockedWord( w );
+		}
+		
+		return copy;
+	}
+	
+	/**
+	 * A copy of the closed door plane, for {@link MapSnapshot}s.
+	 * @return
+	 */
+	long[] copyClosedDoors() {
+		return this.closedDoors.clone();
+	}
+	
+	/**
+	 * Units, blocking objects and walls - but open doors - block a field.
+	 * @param w
+	 * @return
+	 */
+	private long getBlockedWord(int w) {
+		return this.units[w] | this.objects[w] | this.closedDoors[w] | (this.walls[w] & ~this.doors[w]);
+	}
+
+	/**************************************************************************************
+	 *
+	 * 							      		UPDATES
+	 *
+	 **************************************************************************************/
+
+	void setWall(int index, boolean value) {
+		set( this.walls, index, value );
+	}
+
+	void setDoor(int index, boolean isDoor, boolean isClosed) {
+		set( this.doors, index, isDoor );
+		set( this.closedDoors, index, isDoor && isClosed );
+	}
+
+	void setUnit(int index, boolean value) {
+		set( this.units, index, value );
+	}
+
+	void setObjectBlocked(int index) {
+		set( this.objects, index, true );
+	}
+
+	void setRevealed(int index) {
+		set( this.revealed, index, true );
+	}
+
+	private static void set(long[] plane, int index, boolean value) {
+		if ( value )
+			plane[index >>> 6] |= 1L << index;
+		else
+			plane[index >>> 6] &= ~(1L << index);
+	}
+
+	@Override
+	public String toString() {
+		return "OccupancyGrid [width=" + width + ", height=" + height + ", rowShift=" + rowShift + "]";
+	}
+}
@@ -5,6 +5,7 @@ import java.util.List;
 
 import de.d2dev.fourseasons.gamestate.GameStateException;
 import de.d2dev.fourseasons.gamestate.Gamestate;
+import de.d2dev.heroquest.engine.game.event.GameEventBus;
 
 /**
  * A room is essentially an abstraction for a number of fields that should be revealed when a
@@ -96,15 +97,23 @@ public class Room {
 		if ( this.revealed )
 			return;
 		
-		// reveal each field that belongs to the room
-		for (Field field : this.fields) {
-			field.reveal();
-		}
-		
-		// the room has been revealed - fire room revealed event
-		this.revealed = true;
+		// the fields and the room are one batch of events
+		GameEventBus eventBus = this.map.getEventBus();
+		eventBus.beginBatch();
 		
-		this.map.fireOnRoomRevealed( this );	
+		try {
+			// reveal each field that belongs to the room
+			for (Field field : this.fields) {
+				field.reveal();
+			}
+			
+			// the room has been revealed - fire room revealed event
+			this.revealed = true;
+			
+			this.map.fireOnRoomRevealed( this );
+		} finally {
+			eventBus.endBatch();
+		}
 	}
 
 }
@@ -0,0 +1,148 @@
+package de.d2dev.heroquest.engine.game;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A fast, seedable {@link DiceSource} based on the SplitMix64 generator. It allocates
+ * nothing while rolling: a 64 bit draw is cut into 8 lanes of 8 bits, each lane
+ * below 252 is one fair W6 (lanes from 252 on are dropped). Dice with 3 of 6 sites
+ * counting only need a single bit each, so up to 64 of them are counted from one
+ * draw.<br>
+ * <br>
+ * Two sources with the same seed roll the same dice. Not thread safe, use
+ * {@link #split()} to give each thread its own source.
+ * @author Sebastian Bordt
+ *
+ */
+public final class SplittableDice implements DiceSource {
+	
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	
+	/*
+	 * seeds the sources that are created without a seed
+	 */
+	private static final AtomicLong SEEDER = new AtomicLong( System.nanoTime() );
+	
+	/*
+	 * lanes of 8 bits that are 6 * 42 or more are rejected
+	 */
+	private static final int LANE_LIMIT = 252;
+	private static final int LANE_PER_SITE = 42;
+	
+	private final long seed;
+	private long state;
+	
+	/*
+	 * unused lanes of the last draw
+	 */
+	private long lanes;
+	private int numLanes = 0;
+	
+	public SplittableDice() {
+		this( mix( SEEDER.getAndAdd( GOLDEN_GAMMA ) ) ^ System.nanoTime() );
+	}
+	
+	public SplittableDice(long seed) {
+		this.seed = seed;
+		this.state = seed;
+	}
+	
+	/**
+	 * The seed this source has been created with.
+	 * @return
+	 */
+	public long getSeed() {
+		return this.seed;
+	}
+	
+	/**************************************************************************************
+	 * 
+	 * 										DICE SOURCE
+	 * 
+	 **************************************************************************************/
+
+	@Override
+	public long nextLong() {
+		this.state += GOLDEN_GAMMA;
+		
+		return mix( this.state );
+	}
+
+	@Override
+	public int rollW6() {
+		return this.nextLane() / LANE_PER_SITE;
+	}
+
+	@Override
+	public int rollSuccesses(int number, int successSites) {
+		Preconditions.checkArgument( number >= 0 );
+		Preconditions.checkArgument( successSites >= 0 && successSites <= 6 );
+		
+		int successes = 0;
+		
+		// one bit per dice
+		if ( successSites == 3 ) {
+			for (; number >= 64; number -= 64) {
+				successes += Long.bitCount( this.nextLong() );
+			}
+			
+			if ( number > 0 ) {
+				successes += Long.bitCount( this.nextLong() & ( ( 1L << number ) - 1 ) );
+			}
+			
+			return successes;
+		}
+		
+		// one lane per dice
+		int limit = successSites * LANE_PER_SITE;
+		
+		for (int i=0; i<number; i++) {
+			if ( this.nextLane() < limit ) {
+				successes++;
+			}
+		}
+		
+		return successes;
+	}
+
+	@Override
+	public DiceSource split() {
+		return new SplittableDice( this.nextLong() );
+	}
+	
+	/**************************************************************************************
+	 * 
+	 * 										PRIVATE
+	 * 
+	 **************************************************************************************/
+	
+	/**
+	 * @return a lane below {@link #LANE_LIMIT}
+	 */
+	private int nextLane() {
+		while ( true ) {
+			if ( this.numLanes == 0 ) {
+				this.lanes = this.nextLong();
+				this.numLanes = 8;
+			}
+			
+			int lane = (int) ( this.lanes & 0xFF );
+			
+			this.lanes >>>= 8;
+			this.numLanes--;
+			
+			if ( lane < LANE_LIMIT ) {
+				return lane;
+			}
+		}
+	}
+	
+	private static long mix(long z) {
+		z = ( z ^ ( z >>> 30 ) ) * 0xbf58476d1ce4e5b9L;
+		z = ( z ^ ( z >>> 27 ) ) * 0x94d049bb133111ebL;
+		
+		return z ^ ( z >>> 31 );
+	}
+}
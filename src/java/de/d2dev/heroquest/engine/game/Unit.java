@@ -41,6 +41,12 @@ public abstract class Unit {
 	
 	protected Field field;
 	
+	/**
+	 * Where the unit stood in the registry of the map before it has been removed, so it
+	 * returns to the same place. {@code null} while the unit is on the map.
+	 */
+	int[] registryIndices;
+	
 	protected Direction2D viewDir = Direction2D.UP;
 	
 	/*
@@ -122,13 +128,30 @@ public abstract class Unit {
 	public void moveTo(Field field) throws GameStateException {
 		Gamestate.checkState( !field.isBlocked() , "Attempt to place a unit on a blocked field." );
 		
+		OccupancyGrid occupancy = field.getMap().getOccupancy();
+		
 		if ( this.field != null ) {	// this is not the case when the unit is first placed on the map
-			this.field.getMap().fireOnUnitLeavesField(field);
-			this.field.unit = null;
+			Field previous = this.field;
+			
+			previous.unit = null;
+			occupancy.setUnit( previous.getIndex(), false );
+			previous.getMap().getZobrist().toggleUnit( this, previous.getIndex(), this.bodyForce );
+			
+			previous.getMap().fireOnUnitLeavesField(previous);
 		}
 		
+		// a unit that has been removed from the map comes back
+		boolean returns = this.field == null && this.type != null;
+		
 		this.field = field;
 		field.unit = this;
+		occupancy.setUnit( field.getIndex(), true );
+		
+		if ( returns ) {
+			this.map.registerUnit( this );	// hashes the unit
+		} else if ( this.type != null ) {	// units under construction are hashed once registered
+			this.map.getZobrist().toggleUnit( this, field.getIndex(), this.bodyForce );
+		}
 		
 		this.field.getMap().fireOnUnitEntersField(field);
 	}
@@ -283,6 +306,12 @@ public abstract class Unit {
 	}
 
 	public void setBodyForce(int bodyForce) {
+		if ( this.field != null ) {	// the unit is on the map - update the hash
+			ZobristHash zobrist = this.map.getZobrist();
+			zobrist.toggleUnit( this, this.field.getIndex(), this.bodyForce );
+			zobrist.toggleUnit( this, this.field.getIndex(), bodyForce );
+		}
+		
 		this.bodyForce = bodyForce;
 	}
 
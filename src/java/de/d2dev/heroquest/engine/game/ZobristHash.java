@@ -0,0 +1,127 @@
+package de.d2dev.heroquest.engine.game;
+
+/**
+ * 64 bit Zobrist hash of a {@link Map}'s game state: the units on the map (by type, field and
+ * body force), the open doors and the revealed fields. The map layout (walls, doors, objects)
+ * is not part of the hash, it doesn't change during a game.<br>
+ * <br>
+ * Every piece of state has a pseudo random key, the hash is the xor of the keys of the state
+ * present. The hash is kept up to date by the game state mutators ({@link Unit#moveTo(Field)},
+ * {@link Unit#setBodyForce(int)}, {@link Door#open()}, {@link Field#reveal()},
+ * {@link Map#removeUnit(Unit)}) with one or two xors each, so equal game states - reached
+ * in whatever order, or taken back by {@link GameContext#unmake()} - have equal hashes.
+ * The keys are computed from the state rather than stored, they are the same on every
+ * machine and in every run. Thus the hash can be used for transposition tables as well as
+ * for comparing a replayed or loaded game against a recorded hash.
+ * @author Sebastian Bordt
+ *
+ */
+public final class ZobristHash {
+
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private static final long SEED = 0x48657230517565L;
+
+	/*
+	 * Kinds of state
+	 */
+	private static final int UNIT = 1;
+	private static final int OPEN_DOOR = 2;
+	private static final int REVEALED = 3;
+
+	private long hash = 0;
+
+	ZobristHash() {
+	}
+
+	/**************************************************************************************
+	 *
+	 * 										QUERIES
+	 *
+	 **************************************************************************************/
+
+	public long get() {
+		return this.hash;
+	}
+
+	/**
+	 * The key of a unit of the given type standing on the field with the given body force.
+	 * @param unit
+	 * @param index
+	 * @param bodyForce
+	 * @return
+	 */
+	public static long unitKey(Unit unit, int index, int bodyForce) {
+		return key( UNIT, index, ( getUnitKind( unit ) << 16 ) | ( bodyForce & 0xFFFF ) );
+	}
+
+	public static long openDoorKey(int index) {
+		return key( OPEN_DOOR, index, 0 );
+	}
+
+	public static long revealedKey(int index) {
+		return key( REVEALED, index, 0 );
+	}
+
+	/**************************************************************************************
+	 *
+	 * 										UPDATES
+	 *
+	 **************************************************************************************/
+
+	/**
+	 * Add or remove a unit. Adding and removing is the same operation.
+	 * @param unit
+	 * @param index
+	 * @param bodyForce
+	 */
+	void toggleUnit(Unit unit, int index, int bodyForce) {
+		this.hash ^= unitKey( unit, index, bodyForce );
+	}
+
+	void toggleOpenDoor(int index) {
+		this.hash ^= openDoorKey( index );
+	}
+
+	void toggleRevealed(int index) {
+		this.hash ^= revealedKey( index );
+	}
+
+	/**************************************************************************************
+	 *
+	 * 										KEYS
+	 *
+	 **************************************************************************************/
+
+	/*
+	 * Heroes and monsters each have their own type range
+	 */
+	private static int getUnitKind(Unit unit) {
+		if ( unit.isHero() )
+			return 1 + ( (Hero) unit ).getHeroType().ordinal();
+
+		if ( unit.isMonster() )
+			return 64 + ( (Monster) unit ).getMonsterType().ordinal();
+
+		return 0;
+	}
+
+	/**
+	 * Different (kind, index, value) give different inputs to the mixing function, which is
+	 * a bijection. So no two keys are equal.
+	 */
+	private static long key(int kind, int index, int value) {
+		long input = ( (long) kind << 56 ) ^ ( (long) value << 24 ) ^ ( index & 0xFFFFFFL );
+
+		return mix( SEED + input * GOLDEN_GAMMA );
+	}
+
+	/*
+	 * SplitMix64 finaliser, see SplittableDice
+	 */
+	private static long mix(long z) {
+		z = ( z ^ ( z >>> 30 ) ) * 0xbf58476d1ce4e5b9L;
+		z = ( z ^ ( z >>> 27 ) ) * 0x94d049bb133111ebL;
+		return z ^ ( z >>> 31 );
+	}
+}
@@ -0,0 +1,17 @@
+package de.d2dev.heroquest.engine.game.action;
+
+/**
+ * Notified by an {@link ActionExecutor} about the game state changes since the last
+ * notification. Called on the executors thread, so the game state may be read but the
+ * listener must return quickly - e.g. update the render model and schedule a repaint.
+ * @author Sebastian Bordt
+ *
+ */
+public interface ActionBatchListener {
+
+	/**
+	 * @param actions number of actions executed since the last batch
+	 * @param tasks number of other tasks run since the last batch
+	 */
+	public void onBatchExecuted(int actions, int tasks);
+}
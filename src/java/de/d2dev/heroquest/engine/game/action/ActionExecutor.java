@@ -0,0 +1,305 @@
+package de.d2dev.heroquest.engine.game.action;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Preconditions;
+
+import de.d2dev.fourseasons.gamestate.GameStateException;
+import de.d2dev.fourseasons.util.ListenerUtil;
+import de.d2dev.fourseasons.util.Observable;
+import de.d2dev.heroquest.engine.game.GameContext;
+import de.d2dev.heroquest.engine.game.classical.ClassicalGameContext;
+
+/**
+ * Runs the game logic on its own thread. {@link GameAction}s and other tasks that touch the
+ * game state (e.g. input handling or asking the ai for the next monsters actions) are queued
+ * and executed in order by a single thread, so no other thread - in particular not the
+ * Swing event thread - has to wait for the game.<br>
+ * <br>
+ * With a step time, one action is executed per step so the player can follow the monsters
+ * moves. The pause is a scheduled wake up of the thread, not a sleep. Without a step time
+ * the queue is drained as fast as possible, e.g. for headless runs.<br>
+ * <br>
+ * The state changes are published in batches to the {@link ActionBatchListener}s: at most
+ * once per frame (or before every step pause if there is no frame rate) and once the queue
+ * runs empty. So listeners like the renderer see a coalesced update instead of one per action.
+ * @author Sebastian Bordt
+ *
+ */
+public class ActionExecutor implements Observable<ActionBatchListener> {
+
+	private static final Logger LOGGER = Logger.getLogger( ClassicalGameContext.GAME_LOGGER_NAME );
+
+	private final GameContext context;
+
+	private final ScheduledExecutorService thread;
+
+	private final ListenerUtil<ActionBatchListener> listeners = new ListenerUtil<ActionBatchListener>();
+
+	/*
+	 * GameActions and Runnables in the order they have been submitted. Guarded by this.
+	 */
+	private final ArrayDeque<Object> queue = new ArrayDeque<Object>();
+
+	/*
+	 * Is the drain task scheduled or running? Guarded by this.
+	 */
+	private boolean draining = false;
+
+	private volatile long stepNanos = 0;
+
+	private volatile long frameNanos = 0;
+
+	/*
+	 * Changes since the last batch, only touched by the executors thread
+	 */
+	private int batchActions = 0;
+	private int batchTasks = 0;
+	private long lastBatch = 0;
+
+	private volatile long executedActions = 0;
+
+	private final Runnable drainTask = new Runnable() {
+
+		@Override
+		public void run() {
+			ActionExecutor.this.drain();
+		}
+	};
+
+	/**
+	 * An executor for the given game that executes as fast as possible and publishes a
+	 * batch whenever the queue runs empty.
+	 * @param context
+	 */
+	public ActionExecutor(GameContext context) {
+		Preconditions.checkNotNull( context );
+
+		this.context = context;
+
+		this.thread = Executors.newSingleThreadScheduledExecutor( new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread( r, "game logic" );
+				thread.setDaemon( true );
+
+				return thread;
+			}
+		});
+	}
+
+	/**************************************************************************************
+	 *
+	 * 										GETTERS/SETTERS
+	 *
+	 **************************************************************************************/
+
+	public GameContext getGameContext() {
+		return this.context;
+	}
+
+	public long getStepNanos() {
+		return this.stepNanos;
+	}
+
+	/**
+	 * @param stepNanos time between two actions, 0 to execute them as fast as possible
+	 */
+	public void setStepNanos(long stepNanos) {
+		Preconditions.checkArgument( stepNanos >= 0, "negative step time" );
+
+		this.stepNanos = stepNanos;
+	}
+
+	/**
+	 * @param framesPerSecond maximum number of batches per second, 0 to publish a batch
+	 * only when the queue runs empty
+	 */
+	public void setFrameRate(int framesPerSecond) {
+		Preconditions.checkArgument( framesPerSecond >= 0, "negative frame rate" );
+
+		this.frameNanos = framesPerSecond == 0 ? 0 : 1000000000L / framesPerSecond;
+	}
+
+	/**
+	 * Number of actions executed so far.
+	 * @return
+	 */
+	public long getExecutedActions() {
+		return this.executedActions;
+	}
+
+	/**************************************************************************************
+	 *
+	 * 										SUBMITTING
+	 *
+	 **************************************************************************************/
+
+	public synchronized void submit(GameAction action) {
+		Preconditions.checkNotNull( action );
+
+		this.enqueue( action );
+	}
+
+	public synchronized void submit(List<GameAction> actions) {
+		for (GameAction action : actions) {
+			Preconditions.checkNotNull( action );
+
+			this.enqueue( action );
+		}
+	}
+
+	/**
+	 * Run a task on the game logic thread once the actions submitted before have been executed.
+	 * @param task
+	 */
+	public synchronized void execute(Runnable task) {
+		Preconditions.checkNotNull( task );
+
+		this.enqueue( task );
+	}
+
+	/**
+	 * Wait until everything submitted has been executed and published.
+	 * @throws InterruptedException
+	 */
+	public synchronized void awaitIdle() throws InterruptedException {
+		while ( this.draining ) {
+			this.wait();
+		}
+	}
+
+	/**
+	 * Stop the game logic thread. Queued actions are discarded.
+	 */
+	public void shutdown() {
+		synchronized ( this ) {
+			this.queue.clear();
+		}
+
+		this.thread.shutdownNow();
+	}
+
+	/**************************************************************************************
+	 *
+	 * 										EXECUTION
+	 *
+	 **************************************************************************************/
+
+	private void enqueue(Object item) {
+		this.queue.add( item );
+
+		if ( !this.draining ) {
+			this.draining = true;
+			this.thread.execute( this.drainTask );
+		}
+	}
+
+	/**
+	 * Runs on the executors thread. Executes the queue, or the next action only if actions
+	 * are paced, in which case the thread schedules itself for the next step.
+	 */
+	private void drain() {
+		while ( true ) {
+			Object next;
+
+			synchronized ( this ) {
+				next = this.queue.poll();
+			}
+
+			if ( next == null )
+				break;
+
+			boolean isAction = next instanceof GameAction;
+
+			this.run( next );
+
+			boolean paused = false;
+
+			if ( isAction && this.stepNanos > 0 ) {
+				synchronized ( this ) {
+					paused = !this.queue.isEmpty();
+				}
+			}
+
+			// without a frame rate, publish before every pause
+			if ( this.frameNanos > 0 ? System.nanoTime() - this.lastBatch >= this.frameNanos : paused )
+				this.publish();
+
+			if ( paused ) {
+				this.thread.schedule( this.drainTask, this.stepNanos, TimeUnit.NANOSECONDS );
+				return;
+			}
+		}
+
+		// the queue ran empty - publish what is left
+		this.publish();
+
+		synchronized ( this ) {
+			if ( this.queue.isEmpty() ) {
+				this.draining = false;
+				this.notifyAll();
+			} else {	// submitted while publishing
+				this.thread.execute( this.drainTask );
+			}
+		}
+	}
+
+	private void run(Object item) {
+		try {
+			if ( item instanceof GameAction ) {
+				this.context.execute( (GameAction) item );
+				this.batchActions++;
+				this.executedActions++;
+			} else {
+				( (Runnable) item ).run();
+				this.batchTasks++;
+			}
+		} catch (GameStateException e) {
+			LOGGER.error( "Rejected " + item, e );
+		} catch (RuntimeException e) {	// don't let one bad action stop the game
+			LOGGER.error( "Failed to run " + item, e );
+		}
+	}
+
+	private void publish() {
+		if ( this.batchActions == 0 && this.batchTasks == 0 )
+			return;
+
+		for (ActionBatchListener l : this.listeners) {
+			try {
+				l.onBatchExecuted( this.batchActions, this.batchTasks );
+			} catch (RuntimeException e) {
+				LOGGER.error( "Action batch listener failed", e );
+			}
+		}
+
+		this.batchActions = 0;
+		this.batchTasks = 0;
+		this.lastBatch = System.nanoTime();
+	}
+
+	/**************************************************************************************
+	 *
+	 * 										LISTENERS
+	 *
+	 **************************************************************************************/
+
+	@Override
+	public void addListener(ActionBatchListener l) {
+		this.listeners.addListener( l );
+	}
+
+	@Override
+	public void removeListener(ActionBatchListener l) {
+		this.listeners.removeListener( l );
+	}
+}
@@ -1,6 +1,7 @@
 package de.d2dev.heroquest.engine.game.action;
 
 import de.d2dev.fourseasons.gamestate.GameStateException;
+import de.d2dev.fourseasons.gamestate.Gamestate;
 import de.d2dev.heroquest.engine.game.Hero;
 import de.d2dev.heroquest.engine.game.Monster;
 import de.d2dev.heroquest.engine.game.Unit;
@@ -17,10 +18,19 @@ public class AttackAction extends GameActionAdapter {
 		
 		this.unitToAttack = unitToAttack;
 	}
+	
+	/**
+	 * The unit to be attacked.
+	 * @return
+	 */
+	public Unit getUnitToAttack() {
+		return unitToAttack;
+	}
 
 	@Override
 	public void excecute() throws GameStateException {
 		// TODO check validity... can this attack happen anyway?!
+		this.checkUnitToAttack();
 		
 		if ( this.unit.isHero() )
 			context.heroAttackMonster( (Hero) unit, (Monster) unitToAttack);
@@ -28,4 +38,37 @@ public class AttackAction extends GameActionAdapter {
 			context.monsterAttackHero( (Monster) unit, (Hero) unitToAttack);
 	}
 
+
+	@Override
+	public void make(UndoStack undo) throws GameStateException {
+		this.checkUnitToAttack();
+		
+		int field = this.unitToAttack.getField().getIndex();
+		int bodyForce = this.unitToAttack.getBodyForce();
+		
+		this.excecute();
+		
+		undo.pushInt( field );
+		undo.pushInt( bodyForce );
+	}
+
+	@Override
+	public void unmake(UndoStack undo) throws GameStateException {
+		int bodyForce = undo.popInt();
+		int field = undo.popInt();
+		
+		// killed - back onto the map
+		if ( this.unitToAttack.getField() == null )
+			this.unitToAttack.moveTo( this.unit.getMap().getField( field ) );
+		
+		this.unitToAttack.setBodyForce( bodyForce );
+	}
+	
+	/**
+	 * Units that have been killed meanwhile can't be attacked.
+	 * @throws GameStateException
+	 */
+	private void checkUnitToAttack() throws GameStateException {
+		Gamestate.checkState( this.unitToAttack.getField() != null, "Attempt to attack " + this.unitToAttack.getName() + " who is not on the map." );
+	}
 }
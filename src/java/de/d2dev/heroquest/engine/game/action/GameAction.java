@@ -19,4 +19,18 @@ public interface GameAction {
 	public Unit getActingUnit();
     
     public void excecute() throws GameStateException;
+    
+    /**
+     * Execute the action and push what is needed to take it back.
+     * @param undo
+     * @throws GameStateException
+     */
+    public void make(UndoStack undo) throws GameStateException;
+    
+    /**
+     * Take the action back. It must be the last one made with the given stack.
+     * @param undo
+     * @throws GameStateException
+     */
+    public void unmake(UndoStack undo) throws GameStateException;
 }
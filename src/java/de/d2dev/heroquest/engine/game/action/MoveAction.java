@@ -13,6 +13,8 @@ import de.d2dev.heroquest.engine.game.Unit;
  * @author Simon
  */
 public class MoveAction extends GameActionAdapter {
+	
+	private static final Direction2D[] DIRECTIONS = Direction2D.values();
 
 	/**
 	 * Direction to move into.
@@ -25,6 +27,14 @@ public class MoveAction extends GameActionAdapter {
 		this.direction = direction;
 	}
 
+    /**
+     * The direction to move into.
+     * @return
+     */
+    public Direction2D getDirection() {
+    	return direction;
+    }
+
 	@Override
     public void excecute() throws GameStateException {
     	switch ( this.direction ) {
@@ -46,4 +56,24 @@ public class MoveAction extends GameActionAdapter {
     		break;
     	}
     }
+
+	@Override
+	public void make(UndoStack undo) throws GameStateException {
+		int from = this.unit.getField().getIndex();
+		Direction2D viewDir = this.unit.getViewDir();
+		
+		this.excecute();
+		
+		undo.pushInt( from );
+		undo.pushInt( viewDir.ordinal() );
+	}
+
+	@Override
+	public void unmake(UndoStack undo) throws GameStateException {
+		Direction2D viewDir = DIRECTIONS[ undo.popInt() ];
+		int from = undo.popInt();
+		
+		this.unit.moveTo( this.unit.getMap().getField( from ) );
+		this.unit.setViewDir( viewDir );
+	}
 }
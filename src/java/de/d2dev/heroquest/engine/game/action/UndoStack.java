@@ -0,0 +1,72 @@
+package de.d2dev.heroquest.engine.game.action;
+
+import java.util.Arrays;
+
+/**
+ * The actions made by a {@link de.d2dev.heroquest.engine.game.GameContext} together with
+ * what is needed to take them back: each action pushes a few ints (field indices, body
+ * forces, ...) and is pushed itself. The arrays grow as needed and are never shrunk, so
+ * a search making and unmaking actions allocates nothing once warmed up.
+ * @author Sebastian Bordt
+ *
+ */
+public final class UndoStack {
+	
+	private int[] ints = new int[64];
+	private int numInts = 0;
+	
+	private GameAction[] actions = new GameAction[16];
+	private int numActions = 0;
+	
+	public void pushInt(int value) {
+		if ( this.numInts == this.ints.length )
+			this.ints = Arrays.copyOf( this.ints, this.ints.length * 2 );
+		
+		this.ints[ this.numInts++ ] = value;
+	}
+	
+	public int popInt() {
+		if ( this.numInts == 0 )
+			throw new IllegalStateException( "No undo data left." );
+		
+		return this.ints[ --this.numInts ];
+	}
+	
+	public void pushAction(GameAction action) {
+		if ( this.numActions == this.actions.length )
+			this.actions = Arrays.copyOf( this.actions, this.actions.length * 2 );
+		
+		this.actions[ this.numActions++ ] = action;
+	}
+	
+	public GameAction popAction() {
+		if ( this.numActions == 0 )
+			throw new IllegalStateException( "No action to unmake." );
+		
+		GameAction action = this.actions[ --this.numActions ];
+		this.actions[ this.numActions ] = null;
+		
+		return action;
+	}
+	
+	/**
+	 * Number of actions that can be unmade.
+	 * @return
+	 */
+	public int size() {
+		return this.numActions;
+	}
+	
+	public boolean isEmpty() {
+		return this.numActions == 0;
+	}
+	
+	/**
+	 * Forget all actions, they can't be unmade any more.
+	 */
+	public void clear() {
+		Arrays.fill( this.actions, 0, this.numActions, null );
+		this.numActions = 0;
+		this.numInts = 0;
+	}
+}
@@ -1,11 +1,8 @@
 package de.d2dev.heroquest.engine.game.classical;
 
-import java.util.Random;
-
 import org.apache.log4j.Logger;
 
-import com.google.common.base.Preconditions;
-
+import de.d2dev.heroquest.engine.game.DiceSource;
 import de.d2dev.heroquest.engine.game.GameContext;
 import de.d2dev.heroquest.engine.game.Hero;
 import de.d2dev.heroquest.engine.game.Map;
@@ -21,7 +18,10 @@ public class ClassicalGameContext extends GameContext {
 	
 	public ClassicalGameContext(Map map) {
 		super(map);
-		// TODO Auto-generated constructor stub
+	}
+	
+	public ClassicalGameContext(Map map, DiceSource dice) {
+		super(map, dice);
 	}
 
 	public enum HeroQuestDice {
@@ -36,12 +36,12 @@ public class ClassicalGameContext extends GameContext {
 	 * Roll a dice with 6 sites.
 	 * @return
 	 */
-	public static int rollW6() {
-		return new Random().nextInt( 6 );
+	public int rollW6() {
+		return this.dice.rollW6();
 	}
 	
-	public static HeroQuestDice rollHeroQuestDice() {
-		int result = ClassicalGameContext.rollW6();
+	public HeroQuestDice rollHeroQuestDice() {
+		int result = this.rollW6();
 		
 		if ( result == 0 )	// 0 = monster defense
 			return HeroQuestDice.MONSTER_DEFENSE;
@@ -52,58 +52,43 @@ public class ClassicalGameContext extends GameContext {
 		return HeroQuestDice.ATTACK;	// 3,4,5,6 attack
 	}
 	
-	public static HeroQuestDice[] roolHeroQuestDices(int number) {
-		Preconditions.checkArgument( number >= 0 );
-		
-		HeroQuestDice[] dices = new HeroQuestDice[ number ];
-		
-		for (int i=0; i<number; i++) {
-			dices[i] = ClassicalGameContext.rollHeroQuestDice();
-		}
-		
-		return dices;
-	}
+	/*
+	 * The dice are counted directly, 3 of 6 sites are an attack, 2 a hero defense
+	 * and 1 a monster defense.
+	 */
 	
-	public static int getDiceAppearence(HeroQuestDice[] dices, HeroQuestDice dice) {
-		int n = 0;
-		
-		for (int i=0; i<dices.length; i++) {
-			if ( dices[i] == dice ) {
-				n++;
-			}
-		}		
-		
-		return n;
+	public int rollAttackDices(int number) {
+		return this.dice.rollSuccesses( number, 3 );
 	}
 	
-	public static int rollAttackDices(int number) {
-		return ClassicalGameContext.getDiceAppearence(  ClassicalGameContext.roolHeroQuestDices( number ), HeroQuestDice.ATTACK );
+	public int rollHeroDefenceDices(int number) {
+		return this.dice.rollSuccesses( number, 2 );
 	}
 	
-	public static int rollHeroDefenceDices(int number) {
-		return ClassicalGameContext.getDiceAppearence(  ClassicalGameContext.roolHeroQuestDices( number ), HeroQuestDice.HERO_DEFENSE );
+	public int rollMonsterDefenceDices(int number) {
+		return this.dice.rollSuccesses( number, 1 );
 	}
 	
-	public static int rollMonsterDefenceDices(int number) {
-		return ClassicalGameContext.getDiceAppearence(  ClassicalGameContext.roolHeroQuestDices( number ), HeroQuestDice.MONSTER_DEFENSE );
+	private void log(String message) {
+		if ( !this.simulationMode ) {
+			Logger.getLogger( GAME_LOGGER_NAME ).info( message );
+		}
 	}
 	
 	public void monsterAttackHero(Monster monster, Hero hero) {
-		Logger logger = Logger.getLogger( GAME_LOGGER_NAME );
-		
-		int attack = ClassicalGameContext.rollAttackDices( monster.getNumAttackDices() );
-		int defense = ClassicalGameContext.rollHeroDefenceDices( hero.getNumDefenseDices() );
+		int attack = this.rollAttackDices( monster.getNumAttackDices() );
+		int defense = this.rollHeroDefenceDices( hero.getNumDefenseDices() );
 		
 		// no damage
 		if ( defense >= attack ) {
-			logger.info( monster.getName() + " attacked " + hero.getName() + " but dealt no damage." );
+			this.log( monster.getName() + " attacked " + hero.getName() + " but dealt no damage." );
 			return;
 		}
 		
 		// deal damage!
 		int damage = attack - defense;
 		
-		logger.info( monster.getName() + " attacked " + hero.getName() + " and dealt " + damage + " damage." );
+		this.log( monster.getName() + " attacked " + hero.getName() + " and dealt " + damage + " damage." );
 		
 		// hero survives
 		if ( hero.getBodyForce() > damage ) {
@@ -114,27 +99,25 @@ public class ClassicalGameContext extends GameContext {
 		// hero dies!
 		hero.setBodyForce( 0 );
 		
-		logger.info( hero.getName() + " dies!" );
+		this.log( hero.getName() + " dies!" );
 		
 		hero.getMap().removeUnit( hero );
 	}
 	
 	public void heroAttackMonster(Hero hero, Monster monster) {
-		Logger logger = Logger.getLogger( GAME_LOGGER_NAME );
-		
-		int attack = ClassicalGameContext.rollAttackDices( hero.getNumAttackDices() );
-		int defense = ClassicalGameContext.rollMonsterDefenceDices( monster.getNumDefenseDices() );
+		int attack = this.rollAttackDices( hero.getNumAttackDices() );
+		int defense = this.rollMonsterDefenceDices( monster.getNumDefenseDices() );
 		
 		// no damage
 		if ( defense >= attack ) {
-			logger.info( hero.getName() + " attacked " + monster.getName() + " but dealt no damage." );
+			this.log( hero.getName() + " attacked " + monster.getName() + " but dealt no damage." );
 			return;
 		}
 		
 		// deal damage!
 		int damage = attack - defense;
 		
-		logger.info( hero.getName() + " attacked " + monster.getName() + " and dealt " + damage + " damage." );
+		this.log( hero.getName() + " attacked " + monster.getName() + " and dealt " + damage + " damage." );
 		
 		// monster survives (usually not the case anyway)
 		if ( monster.getBodyForce() > damage ) {
@@ -145,7 +128,7 @@ public class ClassicalGameContext extends GameContext {
 		// monster dies! - fire event
 		monster.setBodyForce( 0 );
 		
-		logger.info( monster.getName() + " dies!" );	
+		this.log( monster.getName() + " dies!" );	
 		
 		this.fireOnMonsterDies( monster );
 		
@@ -0,0 +1,209 @@
+package de.d2dev.heroquest.engine.game.classical;
+
+import com.google.common.base.Preconditions;
+
+import de.d2dev.heroquest.engine.game.Unit;
+
+/**
+ * Exact odds of a classical HeroQuest fight, as resolved by {@link ClassicalGameContext}:
+ * the attacker rolls its attack dice, the defender its defence dice, each defence
+ * shield cancels one skull. A HeroQuest dice shows a skull on 3 of 6 sides, a hero shield on
+ * 2 and a monster shield on 1, so heroes defend better than monsters.<br>
+ * <br>
+ * For every number of dice up to {@link #MAX_DICE} the distribution of skulls and shields is
+ * the repeated convolution of the single dice distribution. From these, the damage
+ * distribution, its tail sums and the expected damage of every attack/defence combination are
+ * computed once when the class is loaded. Queries are plain table lookups.
+ * @author Sebastian Bordt
+ *
+ */
+public final class CombatOdds {
+
+	/**
+	 * The maximum number of attack or defence dice supported.
+	 */
+	public static final int MAX_DICE = 12;
+
+	public static final double ATTACK_PROBABILITY = 3.0 / 6.0;
+	public static final double HERO_DEFENSE_PROBABILITY = 2.0 / 6.0;
+	public static final double MONSTER_DEFENSE_PROBABILITY = 1.0 / 6.0;
+
+	/*
+	 * [attack dice][defence dice][damage], for heroes and monsters defending
+	 */
+	private static final double[][][] HERO_DAMAGE = new double[MAX_DICE + 1][MAX_DICE + 1][];
+	private static final double[][][] MONSTER_DAMAGE = new double[MAX_DICE + 1][MAX_DICE + 1][];
+
+	/*
+	 * [attack dice][defence dice][damage] = probability of at least that damage
+	 */
+	private static final double[][][] HERO_DAMAGE_TAIL = new double[MAX_DICE + 1][MAX_DICE + 1][];
+	private static final double[][][] MONSTER_DAMAGE_TAIL = new double[MAX_DICE + 1][MAX_DICE + 1][];
+
+	private static final double[][] HERO_EXPECTED_DAMAGE = new double[MAX_DICE + 1][MAX_DICE + 1];
+	private static final double[][] MONSTER_EXPECTED_DAMAGE = new double[MAX_DICE + 1][MAX_DICE + 1];
+
+	static {
+		double[][] attack = successDistributions( ATTACK_PROBABILITY );
+		double[][] heroDefense = successDistributions( HERO_DEFENSE_PROBABILITY );
+		double[][] monsterDefense = successDistributions( MONSTER_DEFENSE_PROBABILITY );
+
+		for (int a=0; a<=MAX_DICE; a++) {
+			for (int d=0; d<=MAX_DICE; d++) {
+				fill( HERO_DAMAGE, HERO_DAMAGE_TAIL, HERO_EXPECTED_DAMAGE, a, d, attack[a], heroDefense[d] );
+				fill( MONSTER_DAMAGE, MONSTER_DAMAGE_TAIL, MONSTER_EXPECTED_DAMAGE, a, d, attack[a], monsterDefense[d] );
+			}
+		}
+	}
+
+	private CombatOdds() {
+	}
+
+	/**************************************************************************************
+	 *
+	 * 										QUERIES
+	 *
+	 **************************************************************************************/
+
+	/**
+	 * Probability of exactly the given damage.
+	 * @param attackDice
+	 * @param defenseDice
+	 * @param heroDefends whether the defender is a hero
+	 * @param damage
+	 * @return
+	 */
+	public static double getDamageProbability(int attackDice, int defenseDice, boolean heroDefends, int damage) {
+		double[] distribution = table( heroDefends ? HERO_DAMAGE : MONSTER_DAMAGE, attackDice, defenseDice );
+
+		if ( damage < 0 || damage >= distribution.length )
+			return 0.0;
+
+		return distribution[damage];
+	}
+
+	/**
+	 * Probability of at least the given damage.
+	 * @param attackDice
+	 * @param defenseDice
+	 * @param heroDefends whether the defender is a hero
+	 * @param damage
+	 * @return
+	 */
+	public static double getDamageAtLeastProbability(int attackDice, int defenseDice, boolean heroDefends, int damage) {
+		double[] tail = table( heroDefends ? HERO_DAMAGE_TAIL : MONSTER_DAMAGE_TAIL, attackDice, defenseDice );
+
+		if ( damage <= 0 )
+			return 1.0;
+
+		if ( damage >= tail.length )
+			return 0.0;
+
+		return tail[damage];
+	}
+
+	public static double getExpectedDamage(int attackDice, int defenseDice, boolean heroDefends) {
+		check( attackDice, defenseDice );
+
+		return heroDefends ? HERO_EXPECTED_DAMAGE[attackDice][defenseDice] : MONSTER_EXPECTED_DAMAGE[attackDice][defenseDice];
+	}
+
+	/**
+	 * Probability that the defender dies, i.e. takes at least its body force as damage.
+	 * @param attackDice
+	 * @param defenseDice
+	 * @param heroDefends whether the defender is a hero
+	 * @param bodyForce the defenders remaining body force
+	 * @return
+	 */
+	public static double getKillProbability(int attackDice, int defenseDice, boolean heroDefends, int bodyForce) {
+		return getDamageAtLeastProbability( attackDice, defenseDice, heroDefends, Math.max( bodyForce, 1 ) );
+	}
+
+	/**
+	 * The expected damage if the attacker attacks the defender right now.
+	 * @param attacker
+	 * @param defender
+	 * @return
+	 */
+	public static double getExpectedDamage(Unit attacker, Unit defender) {
+		return getExpectedDamage( attacker.getNumAttackDices(), defender.getNumDefenseDices(), defender.isHero() );
+	}
+
+	/**
+	 * The probability that the defender dies if the attacker attacks it right now.
+	 * @param attacker
+	 * @param defender
+	 * @return
+	 */
+	public static double getKillProbability(Unit attacker, Unit defender) {
+		return getKillProbability( attacker.getNumAttackDices(), defender.getNumDefenseDices(), defender.isHero(), defender.getBodyForce() );
+	}
+
+	/**************************************************************************************
+	 *
+	 * 										TABLES
+	 *
+	 **************************************************************************************/
+
+	private static void check(int attackDice, int defenseDice) {
+		Preconditions.checkArgument( attackDice >= 0 && attackDice <= MAX_DICE, "attack dice out of range" );
+		Preconditions.checkArgument( defenseDice >= 0 && defenseDice <= MAX_DICE, "defense dice out of range" );
+	}
+
+	private static double[] table(double[][][] tables, int attackDice, int defenseDice) {
+		check( attackDice, defenseDice );
+
+		return tables[attackDice][defenseDice];
+	}
+
+	/**
+	 * Distributions of the number of successes for 0 to {@link #MAX_DICE} dice, each the
+	 * convolution of the one before with the single dice distribution.
+	 * @param p success probability of one dice
+	 * @return [dice][successes]
+	 */
+	private static double[][] successDistributions(double p) {
+		double[][] distributions = new double[MAX_DICE + 1][];
+
+		distributions[0] = new double[] { 1.0 };
+
+		for (int n=1; n<=MAX_DICE; n++) {
+			double[] before = distributions[n-1];
+			double[] distribution = new double[n + 1];
+
+			for (int k=0; k<before.length; k++) {
+				distribution[k] += before[k] * (1.0 - p);
+				distribution[k+1] += before[k] * p;
+			}
+
+			distributions[n] = distribution;
+		}
+
+		return distributions;
+	}
+
+	private static void fill(double[][][] damage, double[][][] tail, double[][] expected, int a, int d, double[] attack, double[] defense) {
+		double[] distribution = new double[a + 1];
+
+		for (int skulls=0; skulls<attack.length; skulls++) {
+			for (int shields=0; shields<defense.length; shields++) {
+				distribution[ Math.max( skulls - shields, 0 ) ] += attack[skulls] * defense[shields];
+			}
+		}
+
+		double[] atLeast = new double[a + 1];
+		double sum = 0.0;
+		double mean = 0.0;
+
+		for (int i=a; i>=0; i--) {
+			sum += distribution[i];
+			atLeast[i] = sum;
+			mean += i * distribution[i];
+		}
+
+		damage[a][d] = distribution;
+		tail[a][d] = atLeast;
+		expected[a][d] = mean;
+	}
+}
@@ -0,0 +1,92 @@
+package de.d2dev.heroquest.engine.game.event;
+
+import de.d2dev.heroquest.engine.game.Door;
+import de.d2dev.heroquest.engine.game.Field;
+import de.d2dev.heroquest.engine.game.Monster;
+import de.d2dev.heroquest.engine.game.Room;
+import de.d2dev.heroquest.engine.game.action.MoveAction;
+
+/**
+ * One slot of the {@link GameEventBus} ring buffer. The slots are allocated once and
+ * reused, so a handler must not keep a reference to the event after it has been handled.
+ * The subject of the event depends on its type, see {@link Type}.
+ * @author Sebastian Bordt
+ *
+ */
+public final class GameEvent {
+
+	public enum Type {
+		/** subject: the {@link Field} */
+		UNIT_ENTERS_FIELD,
+		/** subject: the {@link Field} */
+		UNIT_LEAVES_FIELD,
+		/** subject: the {@link Field} */
+		FIELD_REVEALED,
+		/** subject: the {@link Door} */
+		DOOR_OPENED,
+		/** subject: the {@link Room}, published after its fields have been revealed */
+		ROOM_REVEALED,
+		/** subject: the {@link Field} */
+		FIELD_TEXTURE_CHANGES,
+		/** subject: the {@link MoveAction} */
+		MOVE_ACTION,
+		/** subject: the {@link Monster} */
+		MONSTER_DIES,
+	}
+
+	private long sequence;
+
+	private Type type;
+
+	private Object subject;
+
+	GameEvent() {
+	}
+
+	void set(long sequence, Type type, Object subject) {
+		this.sequence = sequence;
+		this.type = type;
+		this.subject = subject;
+	}
+
+	/**
+	 * The position of the event in the stream of all events of the bus, starting with 0.
+	 * @return
+	 */
+	public long getSequence() {
+		return this.sequence;
+	}
+
+	public Type getType() {
+		return this.type;
+	}
+
+	public Object getSubject() {
+		return this.subject;
+	}
+
+	public Field getField() {
+		return (Field) this.subject;
+	}
+
+	public Door getDoor() {
+		return (Door) this.subject;
+	}
+
+	public Room getRoom() {
+		return (Room) this.subject;
+	}
+
+	public MoveAction getMoveAction() {
+		return (MoveAction) this.subject;
+	}
+
+	public Monster getMonster() {
+		return (Monster) this.subject;
+	}
+
+	@Override
+	public String toString() {
+		return this.sequence + ": " + this.type;
+	}
+}
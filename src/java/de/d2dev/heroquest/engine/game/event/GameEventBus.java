@@ -0,0 +1,427 @@
+package de.d2dev.heroquest.engine.game.event;
+
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Preconditions;
+
+import de.d2dev.heroquest.engine.game.classical.ClassicalGameContext;
+
+/**
+ * Delivers the events of a game to its subscribers. Events are written into a preallocated
+ * ring buffer of {@link GameEvent}s, so publishing an event allocates nothing and takes
+ * constant time. How the events get to a {@link GameEventHandler} depends on the
+ * {@link Mode} it subscribed with:<ul>
+ * <li>{@link Mode#SYNCHRONOUS}: right away, on the publishing thread</li>
+ * <li>{@link Mode#BATCHED}: at the end of each batch, on the publishing thread</li>
+ * <li>{@link Mode#ASYNCHRONOUS}: on a thread of its own, so a slow handler (e.g. sound) is
+ * never part of the game mutation. The handler may get several batches at once.</li></ul>
+ * A batch is started by {@link #beginBatch()} and ended by {@link #endBatch()}, batches may
+ * be nested. An event published outside of a batch is a batch of its own.<br>
+ * <br>
+ * The ring holds {@link #getCapacity()} events. If a batched or asynchronous handler is that
+ * far behind, the publisher delivers the events published so far as a batch, or waits for
+ * the handler, so a batch larger than the ring is split.<br>
+ * <br>
+ * While the bus is {@link #setSuspended(boolean) suspended}, e.g. while the game is simulated,
+ * only the synchronous handlers are notified. They keep state derived from the game up to date
+ * (e.g. the caches of the ai), presentation like rendering and sound subscribes batched or
+ * asynchronously.<br>
+ * <br>
+ * Events must be published by one thread at a time, the game logic thread. Handlers should be
+ * subscribed before or between batches.
+ * @author Sebastian Bordt
+ *
+ */
+public final class GameEventBus {
+
+	public enum Mode {
+		SYNCHRONOUS,
+		BATCHED,
+		ASYNCHRONOUS,
+	}
+
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private static final Logger LOGGER = Logger.getLogger( ClassicalGameContext.GAME_LOGGER_NAME );
+
+	/*
+	 * How long an idle asynchronous handler sleeps unless woken up by the publisher
+	 */
+	private static final long IDLE_NANOS = 10000000L;
+
+	private final GameEvent[] ring;
+
+	private final int mask;
+
+	private volatile Subscription[] subscriptions = new Subscription[0];
+
+	/*
+	 * Publisher state - only touched by the publishing thread
+	 */
+	private long next = 0;
+	private int depth = 0;
+	private boolean suspended = false;
+
+	/*
+	 * Carries the events published while suspended - they are not part of the ring
+	 */
+	private final GameEvent suspendedEvent = new GameEvent();
+
+	/*
+	 * Lower bound of the sequences of all batched and asynchronous handlers, reset when
+	 * a handler subscribes
+	 */
+	private volatile long gatingSequence = -1;
+
+	/**
+	 * The last event of the last complete batch.
+	 */
+	private volatile long committed = -1;
+
+	public GameEventBus() {
+		this( DEFAULT_CAPACITY );
+	}
+
+	/**
+	 * @param capacity a power of two
+	 */
+	public GameEventBus(int capacity) {
+		Preconditions.checkArgument( capacity > 0 && Integer.bitCount( capacity ) == 1, "capacity must be a power of two" );
+
+		this.ring = new GameEvent[capacity];
+		this.mask = capacity - 1;
+
+		for (int i=0; i<capacity; i++) {
+			this.ring[i] = new GameEvent();
+		}
+	}
+
+	/**************************************************************************************
+	 *
+	 * 										SUBSCRIPTIONS
+	 *
+	 **************************************************************************************/
+
+	/**
+	 * A handler subscribed to the bus.
+	 */
+	public final class Subscription {
+
+		private final GameEventHandler handler;
+
+		private final Mode mode;
+
+		/*
+		 * The last event handled
+		 */
+		private volatile long sequence;
+
+		private volatile boolean waiting = false;
+
+		private volatile boolean cancelled = false;
+
+		private boolean batchOpen = false;
+
+		private Thread thread;
+
+		private Subscription(GameEventHandler handler, Mode mode, long sequence) {
+			this.handler = handler;
+			this.mode = mode;
+			this.sequence = sequence;
+		}
+
+		public GameEventHandler getHandler() {
+			return this.handler;
+		}
+
+		public Mode getMode() {
+			return this.mode;
+		}
+
+		/**
+		 * Stop the delivery of events. An asynchronous handler finishes the batch it is handling.
+		 */
+		public void cancel() {
+			GameEventBus.this.remove( this );
+		}
+
+		/*
+		 * The thread of an asynchronous handler
+		 */
+		private void consume() {
+			while ( !this.cancelled ) {
+				long available = GameEventBus.this.committed;
+
+				if ( available > this.sequence ) {
+					GameEventBus.this.deliver( this, available );
+				} else {
+					this.waiting = true;
+
+					if ( GameEventBus.this.committed == this.sequence && !this.cancelled )
+						LockSupport.parkNanos( this, IDLE_NANOS );
+
+					this.waiting = false;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Subscribe a handler to all events published from now on.
+	 * @param handler
+	 * @param mode
+	 * @return the subscription, to cancel it
+	 */
+	public synchronized Subscription subscribe(GameEventHandler handler, Mode mode) {
+		Preconditions.checkNotNull( handler );
+		Preconditions.checkNotNull( mode );
+
+		final Subscription subscription = new Subscription( handler, mode, this.committed );
+
+		Subscription[] subscriptions = new Subscription[this.subscriptions.length + 1];
+		System.arraycopy( this.subscriptions, 0, subscriptions, 0, this.subscriptions.length );
+		subscriptions[subscriptions.length - 1] = subscription;
+
+		if ( mode == Mode.ASYNCHRONOUS ) {
+			subscription.thread = new Thread( new Runnable() {
+
+				@Override
+				public void run() {
+					subscription.consume();
+				}
+			}, "game events: " + handler.getClass().getSimpleName() );
+			subscription.thread.setDaemon( true );
+			subscription.thread.start();
+		}
+
+		this.subscriptions = subscriptions;
+		this.gatingSequence = -1;
+
+		return subscription;
+	}
+
+	private synchronized void remove(Subscription subscription) {
+		int n = this.subscriptions.length;
+		Subscription[] subscriptions = new Subscription[n];
+		int size = 0;
+
+		for (Subscription s : this.subscriptions) {
+			if ( s != subscription )
+				subscriptions[size++] = s;
+		}
+
+		if ( size == n )	// not subscribed
+			return;
+
+		Subscription[] shrunk = new Subscription[size];
+		System.arraycopy( subscriptions, 0, shrunk, 0, size );
+		this.subscriptions = shrunk;
+
+		subscription.cancelled = true;
+
+		if ( subscription.thread != null )
+			LockSupport.unpark( subscription.thread );
+	}
+
+	/**
+	 * Cancel all subscriptions.
+	 */
+	public void close() {
+		for (Subscription s : this.subscriptions) {
+			s.cancel();
+		}
+	}
+
+	/**************************************************************************************
+	 *
+	 * 										PUBLISHING
+	 *
+	 **************************************************************************************/
+
+	public int getCapacity() {
+		return this.ring.length;
+	}
+
+	public boolean isSuspended() {
+		return this.suspended;
+	}
+
+	/**
+	 * Suspend or resume notifying the batched and asynchronous handlers. Events published while
+	 * suspended are handed to the synchronous handlers only, with a sequence of -1, and are never
+	 * delivered to the others.
+	 * @param suspended
+	 */
+	public void setSuspended(boolean suspended) {
+		this.suspended = suspended;
+	}
+
+	/**
+	 * Start a batch. Batches may be nested, the outermost one counts.
+	 */
+	public void beginBatch() {
+		this.depth++;
+	}
+
+	/**
+	 * End a batch. At the end of the outermost batch the events are delivered to the batched
+	 * handlers and handed over to the asynchronous ones.
+	 */
+	public void endBatch() {
+		Preconditions.checkState( this.depth > 0, "No batch to end." );
+
+		if ( --this.depth == 0 )
+			this.commit();
+	}
+
+	/**
+	 * Publish an event.
+	 * @param type
+	 * @param subject see {@link GameEvent.Type}
+	 */
+	public void publish(GameEvent.Type type, Object subject) {
+		Subscription[] subscriptions = this.subscriptions;
+
+		if ( subscriptions.length == 0 )
+			return;
+
+		long sequence = -1;
+		GameEvent event = this.suspendedEvent;
+
+		if ( !this.suspended ) {
+			sequence = this.next;
+
+			// the slot must have been handled by everyone
+			if ( sequence - this.ring.length > this.gatingSequence )
+				this.makeRoom( subscriptions, sequence - this.ring.length );
+
+			event = this.ring[(int) sequence & this.mask];
+			this.next = sequence + 1;
+		}
+
+		event.set( sequence, type, subject );
+
+		for (Subscription s : subscriptions) {
+			if ( s.mode != Mode.SYNCHRONOUS )
+				continue;
+
+			if ( !s.batchOpen ) {
+				s.batchOpen = true;
+				s.handler.onBatchStart();
+			}
+
+			handle( s, event );
+
+			if ( !this.suspended )
+				s.sequence = sequence;
+		}
+
+		if ( this.depth == 0 )
+			this.commit();
+	}
+
+	/**
+	 * Wait until the asynchronous handlers have handled all complete batches.
+	 * @throws InterruptedException
+	 */
+	public void awaitHandlers() throws InterruptedException {
+		long committed = this.committed;
+
+		for (Subscription s : this.subscriptions) {
+			while ( s.sequence < committed && !s.cancelled ) {
+				if ( Thread.interrupted() )
+					throw new InterruptedException();
+
+				LockSupport.unpark( s.thread );
+				LockSupport.parkNanos( 100000L );
+			}
+		}
+	}
+
+	/**************************************************************************************
+	 *
+	 * 										DELIVERY
+	 *
+	 **************************************************************************************/
+
+	private void commit() {
+		Subscription[] subscriptions = this.subscriptions;
+
+		for (Subscription s : subscriptions) {
+			if ( s.mode == Mode.SYNCHRONOUS && s.batchOpen ) {
+				s.batchOpen = false;
+				s.handler.onBatchEnd();
+			}
+		}
+
+		this.commitPublished( subscriptions );
+	}
+
+	/**
+	 * Make the events published so far available to the batched and asynchronous handlers.
+	 */
+	private void commitPublished(Subscription[] subscriptions) {
+		long last = this.next - 1;
+
+		if ( last == this.committed )
+			return;
+
+		this.committed = last;
+
+		for (Subscription s : subscriptions) {
+			if ( s.mode == Mode.BATCHED ) {
+				this.deliver( s, last );
+			} else if ( s.mode == Mode.ASYNCHRONOUS && s.waiting ) {
+				LockSupport.unpark( s.thread );
+			}
+		}
+	}
+
+	/**
+	 * Wait until all handlers have handled the event with the given sequence. The events
+	 * of an unfinished batch are delivered early if necessary.
+	 */
+	private void makeRoom(Subscription[] subscriptions, long sequence) {
+		long min = Long.MAX_VALUE;
+
+		for (Subscription s : subscriptions) {
+			if ( s.mode == Mode.SYNCHRONOUS )
+				continue;
+
+			if ( s.sequence < sequence ) {
+				// split the batch, otherwise we wait forever
+				this.commitPublished( subscriptions );
+
+				while ( s.sequence < sequence && !s.cancelled ) {
+					LockSupport.unpark( s.thread );
+					LockSupport.parkNanos( 1000L );
+				}
+			}
+
+			min = Math.min( min, s.sequence );
+		}
+
+		this.gatingSequence = min;
+	}
+
+	private void deliver(Subscription s, long last) {
+		s.handler.onBatchStart();
+
+		for (long sequence=s.sequence + 1; sequence<=last; sequence++) {
+			handle( s, this.ring[(int) sequence & this.mask] );
+			s.sequence = sequence;
+		}
+
+		s.handler.onBatchEnd();
+	}
+
+	private static void handle(Subscription s, GameEvent event) {
+		try {
+			s.handler.onEvent( event );
+		} catch (RuntimeException e) {	// one broken handler must not stop the game
+			LOGGER.error( "Game event handler " + s.handler.getClass().getSimpleName() + " failed on " + event, e );
+		}
+	}
+}
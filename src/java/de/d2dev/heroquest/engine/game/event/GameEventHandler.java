@@ -0,0 +1,22 @@
+package de.d2dev.heroquest.engine.game.event;
+
+/**
+ * Subscriber of a {@link GameEventBus}. Events are delivered in batches: every batch starts
+ * with {@link #onBatchStart()}, followed by its events in the order they have been
+ * published and {@link #onBatchEnd()}. A batch holds one or more complete changes of the game
+ * state (e.g. a move, or a door that opens and reveals a room), so at the end of a batch the
+ * handler may e.g. redraw what changed.
+ * @author Sebastian Bordt
+ *
+ */
+public interface GameEventHandler {
+
+	public void onBatchStart();
+
+	/**
+	 * @param event only valid until the method returns
+	 */
+	public void onEvent(GameEvent event);
+
+	public void onBatchEnd();
+}
@@ -0,0 +1,84 @@
+package de.d2dev.heroquest.engine.game.event;
+
+import de.d2dev.heroquest.engine.game.GameListener;
+import de.d2dev.heroquest.engine.game.MapListener;
+
+/**
+ * Hands the events of a {@link GameEventBus} to a {@link MapListener} and/or a
+ * {@link GameListener}, so an existing listener can e.g. be notified asynchronously.
+ * Batches are ignored.
+ * @author Sebastian Bordt
+ *
+ */
+public class ListenerEventHandler implements GameEventHandler {
+
+	private final MapListener mapListener;
+
+	private final GameListener gameListener;
+
+	/**
+	 * @param mapListener may be {@code null}
+	 * @param gameListener may be {@code null}
+	 */
+	public ListenerEventHandler(MapListener mapListener, GameListener gameListener) {
+		this.mapListener = mapListener;
+		this.gameListener = gameListener;
+	}
+
+	public ListenerEventHandler(MapListener mapListener) {
+		this( mapListener, null );
+	}
+
+	public ListenerEventHandler(GameListener gameListener) {
+		this( null, gameListener );
+	}
+
+	@Override
+	public void onBatchStart() {
+	}
+
+	@Override
+	public void onEvent(GameEvent event) {
+		if ( this.mapListener != null ) {
+			switch ( event.getType() ) {
+			case UNIT_ENTERS_FIELD:
+				this.mapListener.onUnitEntersField( event.getField() );
+				break;
+			case UNIT_LEAVES_FIELD:
+				this.mapListener.onUnitLeavesField( event.getField() );
+				break;
+			case FIELD_REVEALED:
+				this.mapListener.onFieldRevealed( event.getField() );
+				break;
+			case DOOR_OPENED:
+				this.mapListener.onDoorOpened( event.getDoor() );
+				break;
+			case ROOM_REVEALED:
+				this.mapListener.onRoomRevealed( event.getRoom() );
+				break;
+			case FIELD_TEXTURE_CHANGES:
+				this.mapListener.onFieldTextureChanges( event.getField() );
+				break;
+			default:
+				break;
+			}
+		}
+
+		if ( this.gameListener != null ) {
+			switch ( event.getType() ) {
+			case MOVE_ACTION:
+				this.gameListener.onMoveAction( event.getMoveAction() );
+				break;
+			case MONSTER_DIES:
+				this.gameListener.onMonsterDies( event.getMonster() );
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	@Override
+	public void onBatchEnd() {
+	}
+}
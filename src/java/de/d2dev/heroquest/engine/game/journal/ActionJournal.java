@@ -0,0 +1,321 @@
+package de.d2dev.heroquest.engine.game.journal;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+
+import de.d2dev.heroquest.engine.game.GameContext;
+import de.d2dev.heroquest.engine.game.SplittableDice;
+import de.d2dev.heroquest.engine.game.Unit;
+import de.d2dev.heroquest.engine.game.action.AttackAction;
+import de.d2dev.heroquest.engine.game.action.GameAction;
+import de.d2dev.heroquest.engine.game.action.MoveAction;
+
+/**
+ * Append-only binary journal of the actions executed by a {@link GameContext}, see
+ * {@link GameContext#setJournal(ActionJournal)}. Together with the game's start state it
+ * is everything needed to replay the game with an {@link ActionReplay}.<br>
+ * <br>
+ * When the journal is started, the context gets a fresh {@link SplittableDice} whose seed is
+ * written to the journal, so a replay rolls the same dice. Units are identified by their
+ * position in the maps unit registry at that moment. A move is a single byte as long as the
+ * acting unit id differs by at most 7 from the one before, an attack takes three bytes on
+ * maps with up to 128 units. Every {@link #getCheckpointInterval()} actions a checkpoint with the
+ * Zobrist hash of the game state is written, so a replay notices if it went out of sync.<br>
+ * <br>
+ * Records are collected in a buffer and written through a {@link FileChannel} when it is
+ * full, on {@link #flush()} and on {@link #close()}. The first i/o error stops the journal, see
+ * {@link #getError()}, so a full disc never stops the game.
+ * @author Sebastian Bordt
+ *
+ */
+public final class ActionJournal {
+
+	/**
+	 * 'HQJ1'
+	 */
+	static final int MAGIC = 0x48514a31;
+
+	/*
+	 * Record tags, in the top two bits of the first byte
+	 */
+	static final int MOVE = 0x00;
+	static final int ATTACK = 0x40;
+	static final int CHECKPOINT = 0x80;
+
+	static final int TAG_MASK = 0xC0;
+
+	/*
+	 * Unit deltas that don't fit into the first byte are followed by the unit id
+	 */
+	static final int MOVE_ESCAPE = 0x0F;
+	static final int ATTACK_ESCAPE = 0x3F;
+
+	public static final int DEFAULT_CHECKPOINT_INTERVAL = 1024;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/*
+	 * Longest record: checkpoint tag, action number and hash
+	 */
+	private static final int MAX_RECORD = 1 + 5 + 8;
+
+	private final GameContext context;
+
+	private final FileChannel channel;
+
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect( BUFFER_SIZE );
+
+	private final IdentityHashMap<Unit, Integer> unitIds = new IdentityHashMap<Unit, Integer>();
+
+	private final long seed;
+
+	private int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+
+	private int lastUnit = 0;
+
+	private long actions = 0;
+
+	private long bytes = 0;
+
+	private IOException error;
+
+	private boolean closed = false;
+
+	/**
+	 * Start a journal of the context's game. Writes the header and gives the context a fresh,
+	 * seeded {@link SplittableDice}.
+	 * @param context
+	 * @param channel open for writing, positioned where the journal starts
+	 * @throws IOException
+	 */
+	public ActionJournal(GameContext context, FileChannel channel) throws IOException {
+		Preconditions.checkNotNull( context );
+		Preconditions.checkNotNull( channel );
+
+		this.context = context;
+		this.channel = channel;
+
+		// draw the seed from the old source, so journaled games differ as much as before
+		this.seed = context.getDice().nextLong();
+		context.setDice( new SplittableDice( this.seed ) );
+
+		List<Unit> units = context.map.getUnits();
+
+		for (int i=0; i<units.size(); i++) {
+			this.unitIds.put( units.get( i ), i );
+		}
+
+		this.buffer.putInt( MAGIC );
+		this.buffer.putLong( this.seed );
+		this.buffer.putLong( context.getHash() );
+		putVarInt( this.buffer, units.size() );
+
+		this.flush();
+
+		if ( this.error != null )
+			throw this.error;
+	}
+
+	/**
+	 * Start a journal of the context's game in a new file. An existing file is replaced.
+	 * @param context
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static ActionJournal create(GameContext context, File file) throws IOException {
+		FileChannel channel = new FileOutputStream( file ).getChannel();
+
+		try {
+			return new ActionJournal( context, channel );
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**************************************************************************************
+	 *
+	 * 										GETTERS/SETTERS
+	 *
+	 **************************************************************************************/
+
+	public long getSeed() {
+		return this.seed;
+	}
+
+	/**
+	 * Number of actions recorded.
+	 * @return
+	 */
+	public long getActionCount() {
+		return this.actions;
+	}
+
+	/**
+	 * Number of bytes written or buffered, including the header.
+	 * @return
+	 */
+	public long getSize() {
+		return this.bytes + this.buffer.position();
+	}
+
+	public int getCheckpointInterval() {
+		return this.checkpointInterval;
+	}
+
+	/**
+	 * @param checkpointInterval number of actions between two checkpoints, 0 for none
+	 */
+	public void setCheckpointInterval(int checkpointInterval) {
+		Preconditions.checkArgument( checkpointInterval >= 0, "negative checkpoint interval" );
+
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	/**
+	 * The i/o error that stopped the journal, {@code null} if there has been none.
+	 * @return
+	 */
+	public IOException getError() {
+		return this.error;
+	}
+
+	/**************************************************************************************
+	 *
+	 * 										RECORDING
+	 *
+	 **************************************************************************************/
+
+	/**
+	 * Append an action that has just been executed. Called by the {@link GameContext}.
+	 * @param action
+	 */
+	public void record(GameAction action) {
+		Preconditions.checkState( !this.closed, "The journal has been closed." );
+
+		if ( this.error != null )
+			return;
+
+		if ( this.buffer.remaining() < 2 * MAX_RECORD )
+			this.flush();
+
+		if ( action instanceof MoveAction ) {
+			MoveAction move = (MoveAction) action;
+			int delta = zigZag( this.getUnitId( action.getActingUnit() ) - this.lastUnit );
+
+			if ( delta < MOVE_ESCAPE ) {
+				this.buffer.put( (byte) ( MOVE | ( delta << 2 ) | move.getDirection().ordinal() ) );
+			} else {
+				this.buffer.put( (byte) ( MOVE | ( MOVE_ESCAPE << 2 ) | move.getDirection().ordinal() ) );
+				putVarInt( this.buffer, this.getUnitId( action.getActingUnit() ) );
+			}
+		} else if ( action instanceof AttackAction ) {
+			Unit target = ( (AttackAction) action ).getUnitToAttack();
+			int delta = zigZag( this.getUnitId( action.getActingUnit() ) - this.lastUnit );
+
+			if ( delta < ATTACK_ESCAPE ) {
+				this.buffer.put( (byte) ( ATTACK | delta ) );
+			} else {
+				this.buffer.put( (byte) ( ATTACK | ATTACK_ESCAPE ) );
+				putVarInt( this.buffer, this.getUnitId( action.getActingUnit() ) );
+			}
+
+			putVarInt( this.buffer, this.getUnitId( target ) );
+			// the outcome, so a replay knows if it rolled the same dice
+			this.buffer.put( (byte) Math.max( target.getBodyForce(), 0 ) );
+		} else {
+			throw new IllegalArgumentException( "Unknown action " + action.getClass().getName() );
+		}
+
+		this.lastUnit = this.getUnitId( action.getActingUnit() );
+		this.actions++;
+
+		if ( this.checkpointInterval > 0 && this.actions % this.checkpointInterval == 0 ) {
+			this.buffer.put( (byte) CHECKPOINT );
+			putVarInt( this.buffer, (int) this.actions );
+			this.buffer.putLong( this.context.getHash() );
+		}
+	}
+
+	/**
+	 * Write the buffered records to the channel.
+	 */
+	public void flush() {
+		if ( this.error != null )
+			return;
+
+		this.buffer.flip();
+
+		try {
+			while ( this.buffer.hasRemaining() ) {
+				this.bytes += this.channel.write( this.buffer );
+			}
+		} catch (IOException e) {
+			this.error = e;
+		}
+
+		this.buffer.clear();
+	}
+
+	/**
+	 * Flush and close the channel. Further actions must not be recorded.
+	 * @throws IOException the first error that occurred while writing the journal
+	 */
+	public void close() throws IOException {
+		if ( this.closed )
+			return;
+
+		this.flush();
+		this.closed = true;
+		this.channel.close();
+
+		if ( this.error != null )
+			throw this.error;
+	}
+
+	/**************************************************************************************
+	 *
+	 * 										ENCODING
+	 *
+	 **************************************************************************************/
+
+	private int getUnitId(Unit unit) {
+		Integer id = this.unitIds.get( unit );
+
+		if ( id == null )
+			throw new IllegalArgumentException( "The unit has not been on the map when the journal was started." );
+
+		return id;
+	}
+
+	/*
+	 * Small positive and negative numbers to small positive ones: 0, -1, 1, -2 ... to 0, 1, 2, 3 ...
+	 */
+	static int zigZag(int n) {
+		return ( n << 1 ) ^ ( n >> 31 );
+	}
+
+	static int unZigZag(int n) {
+		return ( n >>> 1 ) ^ -( n & 1 );
+	}
+
+	/*
+	 * 7 bits per byte, the top bit set on all but the last byte
+	 */
+	static void putVarInt(ByteBuffer buffer, int n) {
+		while ( ( n & ~0x7F ) != 0 ) {
+			buffer.put( (byte) ( ( n & 0x7F ) | 0x80 ) );
+			n >>>= 7;
+		}
+
+		buffer.put( (byte) n );
+	}
+}
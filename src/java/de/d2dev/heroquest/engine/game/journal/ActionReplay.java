@@ -0,0 +1,316 @@
+package de.d2dev.heroquest.engine.game.journal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+
+import de.d2dev.fourseasons.gamestate.GameStateException;
+import de.d2dev.heroquest.engine.game.Direction2D;
+import de.d2dev.heroquest.engine.game.GameContext;
+import de.d2dev.heroquest.engine.game.SplittableDice;
+import de.d2dev.heroquest.engine.game.Unit;
+import de.d2dev.heroquest.engine.game.action.AttackAction;
+import de.d2dev.heroquest.engine.game.action.GameAction;
+import de.d2dev.heroquest.engine.game.action.MoveAction;
+
+/**
+ * Replays an {@link ActionJournal} on a game that is in the state the journal has been
+ * started in, e.g. a new game of the same {@link de.d2dev.heroquest.engine.simulation.Scenario}.
+ * The context gets the journal's dice, so attacks have the same outcome as in the
+ * original game. The outcome of every attack and the checkpoint hashes are compared with the
+ * replayed game, a replay that went out of sync stops with an {@link IllegalStateException}.<br>
+ * <br>
+ * Actions can be replayed one by one, e.g. to watch a game, or skipped in simulation mode
+ * (no listeners, no logging) with {@link #fastForward(long)}. A journal written by a game
+ * that crashed ends with the last complete record.
+ * @author Sebastian Bordt
+ *
+ */
+public final class ActionReplay {
+
+	private static final Direction2D[] DIRECTIONS = Direction2D.values();
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final GameContext context;
+
+	private final FileChannel channel;
+
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect( BUFFER_SIZE );
+
+	private final Unit[] units;
+
+	private final long seed;
+
+	private int lastUnit = 0;
+
+	private long actions = 0;
+
+	private boolean end = false;
+
+	/**
+	 * Prepare the replay of a journal. Reads the header and gives the context the journal's dice.
+	 * @param context the game in the journal's start state
+	 * @param channel open for reading, positioned where the journal starts
+	 * @throws IOException if the channel does not contain a journal
+	 */
+	public ActionReplay(GameContext context, FileChannel channel) throws IOException {
+		Preconditions.checkNotNull( context );
+		Preconditions.checkNotNull( channel );
+
+		this.context = context;
+		this.channel = channel;
+
+		this.buffer.limit( 0 );
+
+		if ( !this.fill( 4 + 8 + 8 + 1 ) || this.buffer.getInt() != ActionJournal.MAGIC )
+			throw new IOException( "Not an action journal." );
+
+		this.seed = this.buffer.getLong();
+		long hash = this.buffer.getLong();
+		this.fill( 5 );
+		int numUnits = getVarInt( this.buffer );
+
+		List<Unit> units = context.map.getUnits();
+
+		Preconditions.checkArgument( hash == context.getHash() && numUnits == units.size(), "The game is not in the journal's start state." );
+
+		this.units = units.toArray( new Unit[numUnits] );
+
+		context.setDice( new SplittableDice( this.seed ) );
+	}
+
+	/**
+	 * Prepare the replay of a journal file.
+	 * @param context the game in the journal's start state
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static ActionReplay open(GameContext context, File file) throws IOException {
+		FileChannel channel = new FileInputStream( file ).getChannel();
+
+		try {
+			return new ActionReplay( context, channel );
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		} catch (RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**************************************************************************************
+	 *
+	 * 										GETTERS
+	 *
+	 **************************************************************************************/
+
+	public long getSeed() {
+		return this.seed;
+	}
+
+	/**
+	 * Number of actions replayed so far.
+	 * @return
+	 */
+	public long getActionCount() {
+		return this.actions;
+	}
+
+	/**
+	 * Have all actions been replayed?
+	 * @return
+	 */
+	public boolean isAtEnd() {
+		return this.end;
+	}
+
+	/**************************************************************************************
+	 *
+	 * 										REPLAY
+	 *
+	 **************************************************************************************/
+
+	/**
+	 * Replay the next action.
+	 * @return the action, {@code null} at the end of the journal
+	 * @throws IOException
+	 * @throws GameStateException
+	 */
+	public GameAction step() throws IOException, GameStateException {
+		while ( !this.end ) {
+			// a record is at most 14 bytes - anything less is the end or a truncated record
+			this.fill( 14 );
+
+			if ( !this.buffer.hasRemaining() ) {
+				this.end = true;
+				break;
+			}
+
+			try {
+				int first = this.buffer.get() & 0xFF;
+
+				switch ( first & ActionJournal.TAG_MASK ) {
+				case ActionJournal.MOVE:
+					return this.replayMove( first );
+				case ActionJournal.ATTACK:
+					return this.replayAttack( first );
+				case ActionJournal.CHECKPOINT:
+					this.checkpoint();
+					break;
+				default:
+					throw new IOException( "Corrupt action journal after " + this.actions + " actions." );
+				}
+			} catch (BufferUnderflowException e) {
+				this.end = true;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Replay actions in simulation mode until the given number of actions have been
+	 * replayed or the journal ends.
+	 * @param actions
+	 * @return the number of actions replayed so far
+	 * @throws IOException
+	 * @throws GameStateException
+	 */
+	public long fastForward(long actions) throws IOException, GameStateException {
+		boolean simulationMode = this.context.isSimulationMode();
+		this.context.setSimulationMode( true );
+
+		try {
+			while ( this.actions < actions ) {
+				if ( this.step() == null )
+					break;
+			}
+		} finally {
+			this.context.setSimulationMode( simulationMode );
+		}
+
+		return this.actions;
+	}
+
+	/**
+	 * Replay all remaining actions in simulation mode.
+	 * @return the number of actions replayed
+	 * @throws IOException
+	 * @throws GameStateException
+	 */
+	public long replayAll() throws IOException, GameStateException {
+		return this.fastForward( Long.MAX_VALUE );
+	}
+
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+	/**************************************************************************************
+	 *
+	 * 										DECODING
+	 *
+	 **************************************************************************************/
+
+	private GameAction replayMove(int first) throws GameStateException {
+		int delta = ( first >>> 2 ) & ActionJournal.MOVE_ESCAPE;
+		Unit unit = this.nextUnit( delta == ActionJournal.MOVE_ESCAPE ? -1 : delta );
+		GameAction action = new MoveAction( unit, DIRECTIONS[ first & 0x03 ] );
+
+		this.context.execute( action );
+		this.actions++;
+
+		return action;
+	}
+
+	private GameAction replayAttack(int first) throws GameStateException {
+		int delta = first & ActionJournal.ATTACK_ESCAPE;
+		int id = delta == ActionJournal.ATTACK_ESCAPE ? getVarInt( this.buffer ) : this.lastUnit + ActionJournal.unZigZag( delta );
+		Unit target = this.getUnit( getVarInt( this.buffer ) );
+		int bodyForce = this.buffer.get() & 0xFF;
+
+		Unit unit = this.getUnit( id );
+		this.lastUnit = id;
+
+		GameAction action = new AttackAction( unit, target );
+
+		this.context.execute( action );
+		this.actions++;
+
+		if ( Math.max( target.getBodyForce(), 0 ) != bodyForce )
+			throw new IllegalStateException( "Replay out of sync at action " + this.actions + ": attack outcome differs." );
+
+		return action;
+	}
+
+	private void checkpoint() {
+		int actions = getVarInt( this.buffer );
+		long hash = this.buffer.getLong();
+
+		if ( actions != this.actions || hash != this.context.getHash() )
+			throw new IllegalStateException( "Replay out of sync at action " + this.actions + ": game state differs." );
+	}
+
+	/**
+	 * @param delta zigzag encoded delta, -1 if the unit id follows
+	 */
+	private Unit nextUnit(int delta) {
+		int id = delta < 0 ? getVarInt( this.buffer ) : this.lastUnit + ActionJournal.unZigZag( delta );
+
+		this.lastUnit = id;
+
+		return this.getUnit( id );
+	}
+
+	private Unit getUnit(int id) {
+		if ( id < 0 || id >= this.units.length )
+			throw new IllegalStateException( "Replay out of sync at action " + this.actions + ": unknown unit " + id + "." );
+
+		return this.units[id];
+	}
+
+	/**
+	 * Read from the channel until at least n bytes are buffered or the channel is exhausted.
+	 * @return whether n bytes are buffered
+	 */
+	private boolean fill(int n) throws IOException {
+		if ( this.buffer.remaining() >= n )
+			return true;
+
+		this.buffer.compact();
+
+		try {
+			while ( this.buffer.position() < n ) {
+				if ( this.channel.read( this.buffer ) < 0 )
+					break;
+			}
+		} finally {
+			this.buffer.flip();
+		}
+
+		return this.buffer.remaining() >= n;
+	}
+
+	static int getVarInt(ByteBuffer buffer) {
+		int n = 0;
+
+		for (int shift=0; shift<32; shift+=7) {
+			int b = buffer.get();
+			n |= ( b & 0x7F ) << shift;
+
+			if ( ( b & 0x80 ) == 0 )
+				return n;
+		}
+
+		throw new BufferUnderflowException();
+	}
+}
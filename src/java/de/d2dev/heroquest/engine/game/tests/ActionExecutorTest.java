@@ -0,0 +1,112 @@
+package de.d2dev.heroquest.engine.game.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.d2dev.heroquest.engine.game.Direction2D;
+import de.d2dev.heroquest.engine.game.Hero;
+import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.SplittableDice;
+import de.d2dev.heroquest.engine.game.UnitFactory;
+import de.d2dev.heroquest.engine.game.action.ActionBatchListener;
+import de.d2dev.heroquest.engine.game.action.ActionExecutor;
+import de.d2dev.heroquest.engine.game.action.GameAction;
+import de.d2dev.heroquest.engine.game.action.MoveAction;
+import de.d2dev.heroquest.engine.game.classical.ClassicalGameContext;
+
+public class ActionExecutorTest {
+
+	Map map;
+	Hero barbarian;
+	ActionExecutor executor;
+
+	final AtomicInteger batches = new AtomicInteger();
+	final AtomicInteger published = new AtomicInteger();
+
+	@Before
+	public void before() throws Exception {
+		map = new Map( 10, 10 );
+		ClassicalGameContext game = new ClassicalGameContext( map, new SplittableDice( 1 ) );
+		map.setContext( game );
+
+		barbarian = new UnitFactory().createBarbarian( map.getField( 0, 0 ) );
+
+		executor = new ActionExecutor( game );
+		executor.addListener( new ActionBatchListener() {
+
+			@Override
+			public void onBatchExecuted(int actions, int tasks) {
+				batches.incrementAndGet();
+				published.addAndGet( actions );
+			}
+		});
+	}
+
+	@After
+	public void after() {
+		executor.shutdown();
+	}
+
+	private List<GameAction> walk(Direction2D direction, int steps) {
+		List<GameAction> actions = new ArrayList<GameAction>();
+
+		for (int i=0; i<steps; i++) {
+			actions.add( new MoveAction( barbarian, direction ) );
+		}
+
+		return actions;
+	}
+
+	@Test
+	public void testHeadless() throws Exception {
+		executor.submit( walk( Direction2D.DOWN, 9 ) );
+		executor.submit( walk( Direction2D.UP, 9 ) );
+		executor.awaitIdle();
+
+		assertSame( map.getField( 0, 0 ), barbarian.getField() );
+		assertEquals( 18, executor.getExecutedActions() );
+		assertEquals( 18, published.get() );
+		assertTrue( batches.get() <= 2 );
+	}
+
+	@Test
+	public void testTasksInOrder() throws Exception {
+		final List<Integer> rows = new ArrayList<Integer>();
+
+		executor.submit( walk( Direction2D.DOWN, 3 ) );
+		executor.execute( new Runnable() {
+
+			@Override
+			public void run() {
+				rows.add( barbarian.getField().getY() );
+				executor.submit( walk( Direction2D.DOWN, 2 ) );
+			}
+		});
+		executor.awaitIdle();
+
+		assertEquals( 1, rows.size() );
+		assertEquals( 3, (int) rows.get( 0 ) );
+		assertSame( map.getField( 0, 5 ), barbarian.getField() );
+	}
+
+	@Test
+	public void testPacing() throws Exception {
+		executor.setStepNanos( 5000000L );
+
+		long start = System.nanoTime();
+		executor.submit( walk( Direction2D.DOWN, 5 ) );
+		executor.awaitIdle();
+
+		// four pauses between five actions, each published before the pause
+		assertTrue( System.nanoTime() - start >= 4 * 5000000L );
+		assertEquals( 5, batches.get() );
+		assertEquals( 5, published.get() );
+	}
+}
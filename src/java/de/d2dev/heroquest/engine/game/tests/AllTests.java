@@ -5,7 +5,7 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({ FieldTest.class, MapTest.class })
+@SuiteClasses({ FieldTest.class, MapTest.class, CombatOddsTest.class, SplittableDiceTest.class, UndoTest.class, ZobristTest.class, JournalTest.class, ActionExecutorTest.class, GameEventBusTest.class })
 public class AllTests {
 
 }
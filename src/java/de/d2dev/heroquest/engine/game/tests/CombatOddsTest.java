@@ -0,0 +1,59 @@
+package de.d2dev.heroquest.engine.game.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import de.d2dev.heroquest.engine.game.classical.CombatOdds;
+
+public class CombatOddsTest {
+	
+	private static final double EPSILON = 1e-12;
+	
+	@Test
+	public void testDistributionsSumToOne() {
+		for (int a=0; a<=CombatOdds.MAX_DICE; a++) {
+			for (int d=0; d<=CombatOdds.MAX_DICE; d++) {
+				double hero = 0.0;
+				double monster = 0.0;
+				
+				for (int damage=0; damage<=a; damage++) {
+					hero += CombatOdds.getDamageProbability( a, d, true, damage );
+					monster += CombatOdds.getDamageProbability( a, d, false, damage );
+				}
+				
+				assertEquals( 1.0, hero, EPSILON );
+				assertEquals( 1.0, monster, EPSILON );
+			}
+		}
+	}
+	
+	@Test
+	public void testExactValues() {
+		// no defence: every attack dice is a skull with probability 1/2
+		assertEquals( 0.5, CombatOdds.getExpectedDamage( 1, 0, true ), EPSILON );
+		assertEquals( 1.5, CombatOdds.getExpectedDamage( 3, 0, false ), EPSILON );
+		
+		// one skull and no monster shield
+		assertEquals( 5.0 / 12.0, CombatOdds.getDamageProbability( 1, 1, false, 1 ), EPSILON );
+		
+		// two skulls and no hero shield
+		assertEquals( 1.0 / 6.0, CombatOdds.getDamageProbability( 2, 1, true, 2 ), EPSILON );
+		assertEquals( 1.0 / 6.0, CombatOdds.getKillProbability( 2, 1, true, 2 ), EPSILON );
+		
+		// more damage than attack dice is impossible
+		assertEquals( 0.0, CombatOdds.getKillProbability( 2, 0, false, 3 ), EPSILON );
+	}
+	
+	@Test
+	public void testHeroesDefendBetter() {
+		for (int a=1; a<=CombatOdds.MAX_DICE; a++) {
+			assertTrue( CombatOdds.getExpectedDamage( a, 2, true ) < CombatOdds.getExpectedDamage( a, 2, false ) );
+		}
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooManyDice() {
+		CombatOdds.getExpectedDamage( CombatOdds.MAX_DICE + 1, 0, false );
+	}
+}
@@ -8,7 +8,13 @@ import org.junit.Test;
 
 import de.d2dev.fourseasons.gamestate.GameStateException;
 import de.d2dev.heroquest.engine.game.Door;
+import de.d2dev.heroquest.engine.game.Field;
+import de.d2dev.heroquest.engine.game.FieldVisitor;
+import de.d2dev.heroquest.engine.game.Field.WallType;
 import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.event.GameEvent;
+import de.d2dev.heroquest.engine.game.event.GameEventBus;
+import de.d2dev.heroquest.engine.game.event.GameEventHandler;
 
 public class FieldTest {
 	
@@ -63,6 +69,103 @@ public class FieldTest {
 		assertFalse( door.isClosed() );		
 	}
 
+	@Test
+	public void testBlocked() throws Exception {
+		// walls block
+		assertTrue( map.getField(1, 1).isBlocked() );
+		assertFalse( map.getField(2, 2).isBlocked() );
+		assertTrue( map.isBlocked(4, 3) );
+		
+		// closed doors block, open doors don't
+		map.getField(1, 2).setDoor(true);
+		assertTrue( map.getField(1, 2).isBlocked() );
+		
+		map.getField(1, 2).getDoor().open();
+		assertFalse( map.getField(1, 2).isBlocked() );
+		
+		// removing a wall frees the field
+		map.getField(2, 4).setWall(false);
+		assertFalse( map.getField(2, 4).isBlocked() );
+		
+		// row scans
+		assertTrue( map.getOccupancy().isRowSegmentFree(2, 2, 3) );
+		assertFalse( map.getOccupancy().isRowSegmentFree(2, 0, 9) );
+		assertTrue( map.getOccupancy().isRowSegmentFree(0, 0, 9) );
+	}
+
+	@Test
+	public void testNeighbours() throws Exception {
+		// corner
+		assertEquals( 2, map.getField(0, 0).getNeighbours().size() );
+		assertEquals( 3, map.getField(0, 0).getSurroundingFields().size() );
+		
+		// inside
+		assertEquals( 4, map.getField(5, 5).getNeighbours().size() );
+		assertEquals( 8, map.getField(5, 5).getSurroundingFields().size() );
+		assertSame( map.getField(5, 4), map.getField(5, 5).getUpperField() );
+		assertSame( map.getField(6, 5), map.getField(5, 5).getRightField() );
+		assertNull( map.getField(9, 9).getLowerField() );
+		
+		// visitor
+		final int[] walls = new int[1];
+		
+		map.getField(2, 2).forEachSurrounding( new FieldVisitor() {
+			@Override
+			public void visit(Field field) {
+				if ( field.isWall() )
+					walls[0]++;
+			}
+		});
+		
+		assertEquals( 5, walls[0] );
+	}
+
+	@Test
+	public void testWallType() throws Exception {
+		assertEquals( WallType.EDGE_LOWER_RIGHT, map.getField(1, 1).getWallType() );
+		assertEquals( WallType.HORIZONTAL, map.getField(2, 1).getWallType() );
+		assertEquals( WallType.VERTICAL, map.getField(1, 2).getWallType() );
+		
+		// nothing revealed yet
+		assertEquals( WallType.FULL, map.getField(2, 1).getRevealedWallType() );
+		
+		map.getField(2, 2).reveal();
+		assertEquals( WallType.HORIZONTAL, map.getField(2, 1).getRevealedWallType() );
+		
+		// removing a wall updates the neighbours
+		map.getField(3, 1).setWall(false);
+		assertEquals( WallType.FULL, map.getField(2, 1).getWallType() );
+	}
+
+	@Test
+	public void testRevealWallsOnce() throws Exception {
+		final Field wall = map.getField(2, 1);
+		final int[] revealed = new int[1];
+		
+		map.getEventBus().subscribe( new GameEventHandler() {
+			@Override
+			public void onBatchStart() {
+			}
+			
+			@Override
+			public void onEvent(GameEvent event) {
+				if ( event.getType() == GameEvent.Type.FIELD_REVEALED && event.getField() == wall )
+					revealed[0]++;
+			}
+			
+			@Override
+			public void onBatchEnd() {
+			}
+		}, GameEventBus.Mode.SYNCHRONOUS );
+		
+		// both fields are next to the wall
+		map.getField(2, 2).reveal();
+		map.getField(3, 2).reveal();
+		
+		assertTrue( wall.isRevealed() );
+		assertEquals( 1, revealed[0] );
+	}
+
 	@Test
 	public void testRoom() throws Exception {
 		for (int i=0; i<map.getWidth(); i++)
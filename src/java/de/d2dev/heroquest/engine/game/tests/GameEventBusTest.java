@@ -0,0 +1,198 @@
+package de.d2dev.heroquest.engine.game.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.d2dev.heroquest.engine.game.Direction2D;
+import de.d2dev.heroquest.engine.game.Field;
+import de.d2dev.heroquest.engine.game.Hero;
+import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.Room;
+import de.d2dev.heroquest.engine.game.SplittableDice;
+import de.d2dev.heroquest.engine.game.UnitFactory;
+import de.d2dev.heroquest.engine.game.action.MoveAction;
+import de.d2dev.heroquest.engine.game.classical.ClassicalGameContext;
+import de.d2dev.heroquest.engine.game.event.GameEvent;
+import de.d2dev.heroquest.engine.game.event.GameEventBus;
+import de.d2dev.heroquest.engine.game.event.GameEventHandler;
+
+public class GameEventBusTest {
+
+	/*
+	 * Writes down what it gets, '[' and ']' for the batches
+	 */
+	static class Recorder implements GameEventHandler {
+
+		List<String> log = Collections.synchronizedList( new ArrayList<String>() );
+
+		long lastSequence = -1;
+
+		boolean ordered = true;
+
+		@Override
+		public void onBatchStart() {
+			log.add( "[" );
+		}
+
+		@Override
+		public void onEvent(GameEvent event) {
+			ordered &= event.getSequence() == lastSequence + 1;
+			lastSequence = event.getSequence();
+
+			log.add( event.getType().name() );
+		}
+
+		@Override
+		public void onBatchEnd() {
+			log.add( "]" );
+		}
+
+		int count(String entry) {
+			return Collections.frequency( log, entry );
+		}
+	}
+
+	Map map;
+	ClassicalGameContext game;
+	Hero barbarian;
+
+	@Before
+	public void before() throws Exception {
+		map = new Map( 10, 10 );
+		game = new ClassicalGameContext( map, new SplittableDice( 1 ) );
+		map.setContext( game );
+
+		barbarian = new UnitFactory().createBarbarian( map.getField( 0, 0 ) );
+	}
+
+	@After
+	public void after() {
+		map.getEventBus().close();
+	}
+
+	@Test
+	public void testSynchronousAndBatched() throws Exception {
+		Recorder sync = new Recorder();
+		Recorder batched = new Recorder();
+		map.getEventBus().subscribe( sync, GameEventBus.Mode.SYNCHRONOUS );
+		map.getEventBus().subscribe( batched, GameEventBus.Mode.BATCHED );
+
+		map.getEventBus().beginBatch();
+		barbarian.moveTo( map.getField( 0, 1 ) );
+
+		assertEquals( 3, sync.log.size() );	// [ leave enter
+		assertTrue( batched.log.isEmpty() );
+
+		map.getEventBus().endBatch();
+
+		assertEquals( Arrays.asList( "[", "UNIT_LEAVES_FIELD", "UNIT_ENTERS_FIELD", "]" ), sync.log );
+		assertEquals( sync.log, batched.log );
+	}
+
+	@Test
+	public void testSuspended() throws Exception {
+		Recorder sync = new Recorder();
+		Recorder batched = new Recorder();
+		map.getEventBus().subscribe( sync, GameEventBus.Mode.SYNCHRONOUS );
+		map.getEventBus().subscribe( batched, GameEventBus.Mode.BATCHED );
+
+		game.setSimulationMode( true );
+		game.make( new MoveAction( barbarian, Direction2D.DOWN ) );
+		game.unmake();
+		game.setSimulationMode( false );
+
+		assertEquals( 2, sync.count( "UNIT_ENTERS_FIELD" ) );
+		assertTrue( batched.log.isEmpty() );
+
+		// back in order afterwards
+		game.execute( new MoveAction( barbarian, Direction2D.DOWN ) );
+
+		assertEquals( 1, batched.count( "UNIT_ENTERS_FIELD" ) );
+		assertEquals( 1, batched.count( "MOVE_ACTION" ) );
+		assertTrue( batched.ordered );
+	}
+
+	@Test
+	public void testActionIsOneBatch() throws Exception {
+		Recorder batched = new Recorder();
+		map.getEventBus().subscribe( batched, GameEventBus.Mode.BATCHED );
+
+		game.execute( new MoveAction( barbarian, Direction2D.DOWN ) );
+
+		assertEquals( 1, batched.count( "[" ) );
+		assertEquals( 1, batched.count( "MOVE_ACTION" ) );
+		assertEquals( 1, batched.count( "]" ) );
+	}
+
+	@Test
+	public void testRoomRevealIsOneBatch() throws Exception {
+		// a 3x3 room with a door to its right
+		for (int y=0; y<5; y++) {
+			map.getField( 5, y ).setWall( true );
+		}
+
+		Field doorField = map.getField( 5, 1 );
+		doorField.setDoor( true );
+
+		Room room = map.addRoom();
+
+		for (int x=2; x<5; x++) {
+			for (int y=0; y<3; y++) {
+				map.getField( x, y ).setRoom( room );
+			}
+		}
+
+		Recorder batched = new Recorder();
+		map.getEventBus().subscribe( batched, GameEventBus.Mode.BATCHED );
+
+		doorField.getDoor().open();
+
+		assertEquals( 1, batched.count( "[" ) );
+		assertEquals( 1, batched.count( "DOOR_OPENED" ) );
+		assertEquals( 1, batched.count( "ROOM_REVEALED" ) );
+		assertTrue( batched.count( "FIELD_REVEALED" ) >= 9 );
+	}
+
+	@Test
+	public void testAsynchronousBackpressure() throws Exception {
+		GameEventBus bus = new GameEventBus( 8 );
+
+		Recorder async = new Recorder() {
+
+			@Override
+			public void onEvent(GameEvent event) {
+				super.onEvent( event );
+				Thread.yield();
+			}
+		};
+		bus.subscribe( async, GameEventBus.Mode.ASYNCHRONOUS );
+
+		// single events and a batch much larger than the ring
+		for (int i=0; i<100; i++) {
+			bus.publish( GameEvent.Type.MOVE_ACTION, null );
+		}
+
+		bus.beginBatch();
+
+		for (int i=0; i<100; i++) {
+			bus.publish( GameEvent.Type.FIELD_REVEALED, null );
+		}
+
+		bus.endBatch();
+		bus.awaitHandlers();
+		bus.close();
+
+		assertTrue( async.ordered );
+		assertEquals( 100, async.count( "MOVE_ACTION" ) );
+		assertEquals( 100, async.count( "FIELD_REVEALED" ) );
+		assertEquals( async.count( "[" ), async.count( "]" ) );
+	}
+}
@@ -0,0 +1,154 @@
+package de.d2dev.heroquest.engine.game.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.d2dev.heroquest.engine.game.Direction2D;
+import de.d2dev.heroquest.engine.game.Hero;
+import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.Monster;
+import de.d2dev.heroquest.engine.game.SplittableDice;
+import de.d2dev.heroquest.engine.game.UnitFactory;
+import de.d2dev.heroquest.engine.game.action.AttackAction;
+import de.d2dev.heroquest.engine.game.action.MoveAction;
+import de.d2dev.heroquest.engine.game.classical.ClassicalGameContext;
+import de.d2dev.heroquest.engine.game.journal.ActionJournal;
+import de.d2dev.heroquest.engine.game.journal.ActionReplay;
+
+public class JournalTest {
+
+	File file;
+
+	@Before
+	public void before() throws Exception {
+		file = File.createTempFile( "journal", ".hqj" );
+	}
+
+	@After
+	public void after() {
+		file.delete();
+	}
+
+	/*
+	 * A barbarian between two goblins
+	 */
+	private ClassicalGameContext createGame(long seed) throws Exception {
+		Map map = new Map( 10, 10 );
+		ClassicalGameContext game = new ClassicalGameContext( map, new SplittableDice( seed ) );
+		map.setContext( game );
+
+		UnitFactory factory = new UnitFactory();
+		factory.createBarbarian( map.getField( 1, 1 ) );
+		factory.createGoblin( map.getField( 0, 1 ) );
+		factory.createGoblin( map.getField( 5, 5 ) );
+
+		return game;
+	}
+
+	/*
+	 * Some moves, then fight until the first goblin or the barbarian is dead
+	 */
+	private void play(ClassicalGameContext game) throws Exception {
+		Hero barbarian = game.map.getHeroes().get( 0 );
+		Monster goblin = game.map.getMonsters().get( 0 );
+		Monster other = game.map.getMonsters().get( 1 );
+
+		for (int i=0; i<3; i++) {
+			game.execute( new MoveAction( other, Direction2D.UP ) );
+			game.execute( new MoveAction( barbarian, Direction2D.DOWN ) );
+			game.execute( new MoveAction( barbarian, Direction2D.UP ) );
+		}
+
+		while ( goblin.getField() != null && barbarian.getField() != null ) {
+			game.execute( new AttackAction( goblin, barbarian ) );
+			game.execute( new AttackAction( barbarian, goblin ) );
+		}
+	}
+
+	@Test
+	public void testRecordAndReplay() throws Exception {
+		ClassicalGameContext game = createGame( 1 );
+		ActionJournal journal = ActionJournal.create( game, file );
+		journal.setCheckpointInterval( 4 );
+		game.setJournal( journal );
+
+		play( game );
+		journal.close();
+
+		// header 21 bytes, moves a byte each, attacks 3 bytes, checkpoints 10 bytes
+		long actions = journal.getActionCount();
+
+		assertEquals( file.length(), journal.getSize() );
+		assertEquals( 21 + 9 + 3 * ( actions - 9 ) + 10 * ( actions / 4 ), journal.getSize() );
+
+		// a different seed - the replay has to use the journal's dice
+		ClassicalGameContext replayed = createGame( 2 );
+		ActionReplay replay = ActionReplay.open( replayed, file );
+
+		assertNotNull( replay.step() );
+		assertEquals( actions, replay.replayAll() );
+		assertTrue( replay.isAtEnd() );
+		assertNull( replay.step() );
+		replay.close();
+
+		assertEquals( game.getHash(), replayed.getHash() );
+		assertEquals( game.map.getHeroes().get( 0 ).getBodyForce(), replayed.map.getHeroes().get( 0 ).getBodyForce() );
+		assertEquals( game.map.getMonsters().size(), replayed.map.getMonsters().size() );
+	}
+
+	@Test
+	public void testFastForward() throws Exception {
+		ClassicalGameContext game = createGame( 3 );
+		ActionJournal journal = ActionJournal.create( game, file );
+		game.setJournal( journal );
+
+		play( game );
+		journal.close();
+
+		ClassicalGameContext replayed = createGame( 3 );
+		ActionReplay replay = ActionReplay.open( replayed, file );
+
+		assertEquals( 6, replay.fastForward( 6 ) );
+		assertFalse( replayed.isSimulationMode() );
+		assertSame( replayed.map.getField( 5, 3 ), replayed.map.getMonsters().get( 1 ).getField() );
+		replay.close();
+	}
+
+	@Test
+	public void testTruncated() throws Exception {
+		ClassicalGameContext game = createGame( 4 );
+		ActionJournal journal = ActionJournal.create( game, file );
+		journal.setCheckpointInterval( 0 );
+		game.setJournal( journal );
+
+		play( game );
+		journal.close();
+
+		// cut the last attack in half, as if the game had crashed while writing it
+		RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+		raf.setLength( raf.length() - 2 );
+		raf.close();
+
+		ActionReplay replay = ActionReplay.open( createGame( 4 ), file );
+
+		assertEquals( journal.getActionCount() - 1, replay.replayAll() );
+		replay.close();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWrongStartState() throws Exception {
+		ClassicalGameContext game = createGame( 5 );
+		ActionJournal.create( game, file ).close();
+
+		ClassicalGameContext other = createGame( 5 );
+		other.map.getHeroes().get( 0 ).setBodyForce( 1 );
+
+		ActionReplay.open( other, file );
+	}
+}
@@ -7,7 +7,11 @@ import nu.xom.Document;
 import org.junit.Test;
 
 import de.d2dev.fourseasons.files.FileUtil;
+import de.d2dev.heroquest.engine.game.Hero;
+import de.d2dev.heroquest.engine.game.Hero.HeroType;
 import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.Monster;
+import de.d2dev.heroquest.engine.game.UnitFactory;
 
 public class MapTest {
 
@@ -32,4 +36,30 @@ public class MapTest {
 			assertEquals( 10, map.getFields()[i].length );
 	}
 
+	@Test
+	public void unitRegistry() throws Exception {
+		Map map = new Map(10, 10);
+		UnitFactory factory = new UnitFactory();
+		
+		Hero barbarian = factory.createBarbarian( map.getField(0, 0) );
+		Monster orc = factory.createOrc( map.getField(5, 5) );
+		Hero wizard = factory.createWizard( map.getField(1, 0) );
+		
+		assertEquals( 3, map.getUnits().size() );
+		assertEquals( 2, map.getHeroes().size() );
+		assertEquals( 1, map.getMonsters().size() );
+		assertSame( barbarian, map.getHeroes().get(0) );
+		assertSame( wizard, map.getHero( HeroType.WIZARD ) );
+		assertNull( map.getHero( HeroType.DWARF ) );
+		
+		// moving does not change the registry
+		orc.moveTo( map.getField(5, 6) );
+		assertEquals( 1, map.getMonsters( orc.getMonsterType() ).size() );
+		
+		map.removeUnit( orc );
+		assertTrue( map.getMonsters().isEmpty() );
+		assertEquals( 2, map.getUnits().size() );
+		assertFalse( map.getField(5, 6).isBlocked() );
+	}
+
 }
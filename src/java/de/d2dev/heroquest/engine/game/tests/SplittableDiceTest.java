@@ -0,0 +1,68 @@
+package de.d2dev.heroquest.engine.game.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import de.d2dev.heroquest.engine.game.DiceSource;
+import de.d2dev.heroquest.engine.game.SplittableDice;
+
+public class SplittableDiceTest {
+	
+	@Test
+	public void testSameSeedSameDice() {
+		SplittableDice a = new SplittableDice( 42 );
+		SplittableDice b = new SplittableDice( 42 );
+		
+		for (int i=0; i<1000; i++) {
+			assertEquals( a.rollW6(), b.rollW6() );
+			assertEquals( a.rollSuccesses( i % 20, 3 ), b.rollSuccesses( i % 20, 3 ) );
+			assertEquals( a.rollSuccesses( i % 20, 1 ), b.rollSuccesses( i % 20, 1 ) );
+		}
+		
+		DiceSource splitA = a.split();
+		DiceSource splitB = b.split();
+		
+		for (int i=0; i<100; i++) {
+			assertEquals( splitA.nextLong(), splitB.nextLong() );
+		}
+	}
+	
+	@Test
+	public void testRanges() {
+		SplittableDice dice = new SplittableDice( 7 );
+		
+		for (int i=0; i<1000; i++) {
+			int w6 = dice.rollW6();
+			
+			assertTrue( w6 >= 0 && w6 < 6 );
+			
+			assertEquals( 0, dice.rollSuccesses( 10, 0 ) );
+			assertEquals( 10, dice.rollSuccesses( 10, 6 ) );
+			
+			int successes = dice.rollSuccesses( 100, 2 );
+			
+			assertTrue( successes >= 0 && successes <= 100 );
+		}
+	}
+	
+	@Test
+	public void testFrequencies() {
+		SplittableDice dice = new SplittableDice( 1 );
+		final int n = 600000;
+		
+		int[] counts = new int[6];
+		
+		for (int i=0; i<n; i++) {
+			counts[ dice.rollW6() ]++;
+		}
+		
+		for (int i=0; i<6; i++) {
+			assertEquals( n / 6, counts[i], n / 100 );
+		}
+		
+		assertEquals( n / 2, dice.rollSuccesses( n, 3 ), n / 100 );
+		assertEquals( n / 3, dice.rollSuccesses( n, 2 ), n / 100 );
+		assertEquals( n / 6, dice.rollSuccesses( n, 1 ), n / 100 );
+	}
+}
@@ -0,0 +1,120 @@
+package de.d2dev.heroquest.engine.game.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.d2dev.fourseasons.gamestate.GameStateException;
+import de.d2dev.heroquest.engine.game.Direction2D;
+import de.d2dev.heroquest.engine.game.Hero;
+import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.Monster;
+import de.d2dev.heroquest.engine.game.SplittableDice;
+import de.d2dev.heroquest.engine.game.Unit;
+import de.d2dev.heroquest.engine.game.UnitFactory;
+import de.d2dev.heroquest.engine.game.action.AttackAction;
+import de.d2dev.heroquest.engine.game.action.MoveAction;
+import de.d2dev.heroquest.engine.game.classical.ClassicalGameContext;
+
+public class UndoTest {
+	
+	Map map;
+	ClassicalGameContext game;
+	Hero barbarian;
+	Monster goblin;
+	
+	@Before
+	public void before() throws Exception {
+		map = new Map( 10, 10 );
+		game = new ClassicalGameContext( map, new SplittableDice( 1 ) );
+		map.setContext( game );
+		
+		UnitFactory factory = new UnitFactory();
+		barbarian = factory.createBarbarian( map.getField( 0, 0 ) );
+		goblin = factory.createGoblin( map.getField( 1, 0 ) );
+	}
+	
+	@Test
+	public void testMoves() throws Exception {
+		game.make( new MoveAction( barbarian, Direction2D.DOWN ) );
+		game.make( new MoveAction( barbarian, Direction2D.DOWN ) );
+		
+		assertSame( map.getField( 0, 2 ), barbarian.getField() );
+		assertEquals( Direction2D.DOWN, barbarian.getViewDir() );
+		assertEquals( 2, game.getUndoDepth() );
+		
+		game.unmake();
+		game.unmake();
+		
+		assertSame( map.getField( 0, 0 ), barbarian.getField() );
+		assertSame( barbarian, map.getField( 0, 0 ).getUnit() );
+		assertFalse( map.getField( 0, 1 ).hasUnit() );
+		assertEquals( Direction2D.UP, barbarian.getViewDir() );
+		assertEquals( 0, game.getUndoDepth() );
+	}
+	
+	@Test
+	public void testKillAndRevive() throws Exception {
+		game.setSimulationMode( true );
+		assertTrue( map.isListenersSuppressed() );
+		
+		int attacks = 0;
+		
+		while ( goblin.getField() != null && attacks < 1000 ) {
+			game.make( new AttackAction( barbarian, goblin ) );
+			attacks++;
+		}
+		
+		assertNull( goblin.getField() );
+		assertTrue( map.getMonsters().isEmpty() );
+		
+		while ( attacks-- > 0 ) {
+			game.unmake();
+		}
+		
+		assertSame( goblin, map.getField( 1, 0 ).getUnit() );
+		assertEquals( 1, goblin.getBodyForce() );
+		assertTrue( map.getMonsters().contains( goblin ) );
+		
+		game.setSimulationMode( false );
+		assertFalse( map.isListenersSuppressed() );
+	}
+	
+	@Test
+	public void testReviveKeepsRegistryOrder() throws Exception {
+		Monster orc = new UnitFactory().createOrc( map.getField( 5, 5 ) );
+		List<Unit> units = new ArrayList<Unit>( map.getUnits() );
+		
+		int attacks = 0;
+		
+		while ( goblin.getField() != null && attacks < 1000 ) {
+			game.make( new AttackAction( barbarian, goblin ) );
+			attacks++;
+		}
+		
+		while ( attacks-- > 0 ) {
+			game.unmake();
+		}
+		
+		assertEquals( units, map.getUnits() );
+		assertEquals( Arrays.asList( goblin, orc ), map.getMonsters() );
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void testLeaveSimulationModeUnbalanced() throws Exception {
+		game.setSimulationMode( true );
+		game.make( new MoveAction( barbarian, Direction2D.DOWN ) );
+		game.setSimulationMode( false );
+	}
+	
+	@Test(expected = GameStateException.class)
+	public void testAttackKilledUnit() throws Exception {
+		map.removeUnit( goblin );
+		game.make( new AttackAction( barbarian, goblin ) );
+	}
+}
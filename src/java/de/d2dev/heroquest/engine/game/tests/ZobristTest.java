@@ -0,0 +1,115 @@
+package de.d2dev.heroquest.engine.game.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.d2dev.heroquest.engine.game.Direction2D;
+import de.d2dev.heroquest.engine.game.Field;
+import de.d2dev.heroquest.engine.game.Hero;
+import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.Monster;
+import de.d2dev.heroquest.engine.game.SplittableDice;
+import de.d2dev.heroquest.engine.game.UnitFactory;
+import de.d2dev.heroquest.engine.game.action.AttackAction;
+import de.d2dev.heroquest.engine.game.action.MoveAction;
+import de.d2dev.heroquest.engine.game.classical.ClassicalGameContext;
+
+public class ZobristTest {
+
+	Map map;
+	ClassicalGameContext game;
+	Hero barbarian;
+	Monster goblin;
+
+	@Before
+	public void before() throws Exception {
+		map = new Map( 10, 10 );
+		game = new ClassicalGameContext( map, new SplittableDice( 1 ) );
+		map.setContext( game );
+
+		UnitFactory factory = new UnitFactory();
+		barbarian = factory.createBarbarian( map.getField( 0, 0 ) );
+		goblin = factory.createGoblin( map.getField( 5, 5 ) );
+	}
+
+	@Test
+	public void testTransposition() throws Exception {
+		long start = game.getHash();
+		assertEquals( map.computeHash(), start );
+
+		game.make( new MoveAction( barbarian, Direction2D.DOWN ) );
+		game.make( new MoveAction( barbarian, Direction2D.RIGHT ) );
+		long downRight = game.getHash();
+
+		assertFalse( start == downRight );
+		assertEquals( map.computeHash(), downRight );
+
+		game.unmake();
+		game.unmake();
+		assertEquals( start, game.getHash() );
+
+		game.make( new MoveAction( barbarian, Direction2D.RIGHT ) );
+		game.make( new MoveAction( barbarian, Direction2D.DOWN ) );
+		assertEquals( downRight, game.getHash() );
+	}
+
+	@Test
+	public void testBodyForceAndRemoval() throws Exception {
+		long start = game.getHash();
+
+		barbarian.setBodyForce( barbarian.getBodyForce() - 1 );
+		assertFalse( start == game.getHash() );
+		assertEquals( map.computeHash(), game.getHash() );
+
+		barbarian.setBodyForce( barbarian.getBodyForce() + 1 );
+		assertEquals( start, game.getHash() );
+
+		// attack until the goblin dies, then take it all back
+		goblin.moveTo( map.getField( 1, 0 ) );
+		long beforeFight = game.getHash();
+		int attacks = 0;
+
+		while ( goblin.getField() != null && attacks < 1000 ) {
+			game.make( new AttackAction( barbarian, goblin ) );
+			attacks++;
+		}
+
+		assertNull( goblin.getField() );
+		assertEquals( map.computeHash(), game.getHash() );
+
+		while ( attacks-- > 0 ) {
+			game.unmake();
+		}
+
+		assertEquals( beforeFight, game.getHash() );
+	}
+
+	@Test
+	public void testDoorsAndReveal() throws Exception {
+		Field wall = map.getField( 3, 3 );
+		wall.setWall( true );
+		wall.setDoor( true );
+
+		long closed = map.getHash();
+
+		wall.getDoor().open();
+		assertFalse( closed == map.getHash() );
+		assertEquals( map.computeHash(), map.getHash() );
+
+		map.getField( 7, 7 ).reveal();
+		assertEquals( map.computeHash(), map.getHash() );
+	}
+
+	@Test
+	public void testReadFromXml() throws Exception {
+		map.getField( 7, 7 ).reveal();
+
+		// the units are not part of the map file
+		map.removeUnit( barbarian );
+		map.removeUnit( goblin );
+
+		assertEquals( map.getHash(), new Map( map.toXML() ).getHash() );
+	}
+}
@@ -1,7 +1,7 @@
 package de.d2dev.heroquest.engine.rendering;
 
 import java.util.HashMap;
-import java.util.List;
+import java.util.LinkedHashSet;
 
 import com.google.common.base.Preconditions;
 
@@ -10,15 +10,20 @@ import de.d2dev.fourseasons.resource.ResourceLocator;
 import de.d2dev.fourseasons.resource.types.TextureResource;
 import de.d2dev.heroquest.engine.game.Door;
 import de.d2dev.heroquest.engine.game.Field;
+import de.d2dev.heroquest.engine.game.FieldVisitor;
 import de.d2dev.heroquest.engine.game.Field.WallType;
 import de.d2dev.heroquest.engine.game.Hero;
 import de.d2dev.heroquest.engine.game.Map;
 import de.d2dev.heroquest.engine.game.MapListener;
 import de.d2dev.heroquest.engine.game.MapObject;
+import de.d2dev.heroquest.engine.game.Neighbourhood;
+import de.d2dev.heroquest.engine.game.OccupancyGrid;
 import de.d2dev.heroquest.engine.game.Monster;
 import de.d2dev.heroquest.engine.game.Room;
 import de.d2dev.heroquest.engine.game.TextureOverlay;
 import de.d2dev.heroquest.engine.game.Unit;
+import de.d2dev.heroquest.engine.game.event.GameEvent;
+import de.d2dev.heroquest.engine.game.event.GameEventHandler;
 import de.d2dev.heroquest.engine.rendering.quads.QuadRenderModel;
 import de.d2dev.heroquest.engine.rendering.quads.RenderQuad;
 import de.d2dev.heroquest.engine.rendering.quads.RenderQuad.TextureTurn;
@@ -29,7 +34,7 @@ import de.d2dev.heroquest.engine.rendering.quads.RenderQuad.TextureTurn;
  * @author Sebastian Bordt
  *
  */
-public class Renderer implements MapListener {
+public class Renderer implements MapListener, GameEventHandler {
 	
 	/*
 	 * z-Layers for our RenderQuads
@@ -72,11 +77,32 @@ public class Renderer implements MapListener {
 	
 	private HashMap<Unit, RenderQuad> units = new HashMap<Unit, RenderQuad>();
 	
+	/*
+	 * Changes of the batches of game events since the last render(). The events are
+	 * delivered on the game logic thread, the render model is only changed by render().
+	 */
+	private LinkedHashSet<Field> revealedFields = new LinkedHashSet<Field>();
+	private LinkedHashSet<Field> changedFields = new LinkedHashSet<Field>();
+	private LinkedHashSet<Door> openedDoors = new LinkedHashSet<Door>();
+	
 	private HashMap<Field, RenderQuad> fogOfWarQuads = new HashMap<Field, RenderQuad>();
 	private Resource fogTexture = TextureResource.createTextureResource("fog of war/fog.png");
 	
 	private HashMap<MapObject, RenderQuad> objectQuads = new HashMap<MapObject, RenderQuad>();
 	
+	/*
+	 * Renders the wall fields around a revealed field
+	 */
+	private FieldVisitor renderWall = new FieldVisitor() {
+		
+		@Override
+		public void visit(Field field) {
+			if ( field.isWall() ) {
+				renderField( field );
+			}
+		}
+	};
+	
 	/*
 	 * Textures
 	 */
@@ -126,7 +152,8 @@ public class Renderer implements MapListener {
 	
 	
 	/**
-	 * Render the map!
+	 * Render the map! Includes the changes of the game events since the last call. Call it
+	 * on the thread that paints the render model, while the game logic does not run.
 	 */
 	public void render() {
 		// first time? then setup
@@ -157,6 +184,23 @@ public class Renderer implements MapListener {
 			this.firstTime = false;
 		}
 		
+		// changes of the game events
+		for (Field field : this.revealedFields) {
+			this.onFieldRevealed( field );
+		}
+		
+		for (Field field : this.changedFields) {
+			this.renderField( field );
+		}
+		
+		for (Door door : this.openedDoors) {
+			this.renderDoor( door );
+		}
+		
+		this.revealedFields.clear();
+		this.changedFields.clear();
+		this.openedDoors.clear();
+		
 		// units
 		this.renderUnits();
 		
@@ -177,12 +221,10 @@ public class Renderer implements MapListener {
 		this.units.clear();
 				
 		// render units
-		for (Field[] row : map.getFields()) {	// dummy to get all units
-			for (Field field : row) {
-				if ( field.hasUnit() ) {
-					this.units.put( field.getUnit(), this.renderUnit( field.getUnit() ) );
-					this.renderTarget.addQuad( this.units.get( field.getUnit() ) );
-				}
+		for (Unit unit : map.getUnits()) {
+			if ( unit.getField() != null ) {
+				this.units.put( unit, this.renderUnit( unit ) );
+				this.renderTarget.addQuad( this.units.get( unit ) );
 			}
 		}		
 	}
@@ -347,10 +389,13 @@ public class Renderer implements MapListener {
 		
 		// hide wall fields if all surrounding non-wall fields have not been revealed yet
 		if ( field.isWall() ) {
-			List<Field> surrounders = field.getSurroundingFields();
+			OccupancyGrid occupancy = this.map.getOccupancy();
+			Neighbourhood neighbourhood = this.map.getNeighbourhood();
 			
-			for (Field f : surrounders) {
-				if ( !f.isWall() && f.isRevealed() ) {
+			for (int k : Neighbourhood.getSlots( neighbourhood.getMask( field.getIndex() ) )) {
+				int f = neighbourhood.getNeighbour( field.getIndex(), k );
+				
+				if ( !occupancy.isWall( f ) && occupancy.isRevealed( f ) ) {
 					return;
 				}
 			}
@@ -515,11 +560,7 @@ public class Renderer implements MapListener {
 		this.renderField(field);
 		
 		// update all surrounding wall fields!
-		for (Field f : field.getSurroundingFields()) {
-			if ( f.isWall() ) {
-				this.renderField( f );
-			}
-		}
+		field.forEachSurrounding( this.renderWall );
 	}
 	
 	@Override
@@ -536,8 +577,33 @@ public class Renderer implements MapListener {
 	public void onFieldTextureChanges(Field field) {
 		this.renderField( field );
 	}
-
-
-
-
+	
+	/*
+	 * React on batches of game events - remember what to render, render() does it. The units
+	 * are rendered by every render() anyway.
+	 */
+	@Override
+	public void onBatchStart() {
+	}
+	
+	@Override
+	public void onEvent(GameEvent event) {
+		switch ( event.getType() ) {
+		case FIELD_REVEALED:
+			this.revealedFields.add( event.getField() );
+			break;
+		case DOOR_OPENED:
+			this.openedDoors.add( event.getDoor() );
+			break;
+		case FIELD_TEXTURE_CHANGES:
+			this.changedFields.add( event.getField() );
+			break;
+		default:
+			break;
+		}
+	}
+	
+	@Override
+	public void onBatchEnd() {
+	}
 }
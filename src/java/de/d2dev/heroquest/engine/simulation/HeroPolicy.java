@@ -0,0 +1,31 @@
+package de.d2dev.heroquest.engine.simulation;
+
+import de.d2dev.fourseasons.gamestate.GameStateException;
+import de.d2dev.heroquest.engine.game.Hero;
+import de.d2dev.heroquest.engine.game.Map;
+
+/**
+ * Plays the heroes of a simulated game instead of a human player.
+ * @author Sebastian Bordt
+ *
+ */
+public interface HeroPolicy {
+	
+	/**
+	 * Creates a policy for every simulated game, since policies may keep state.
+	 */
+	public interface Factory {
+		
+		public HeroPolicy createPolicy(Map map);
+	}
+	
+	/**
+	 * Play the turn of a hero: move at most the given number of fields, open doors
+	 * and attack - all by executing actions with the games context.
+	 * @param hero
+	 * @param moves the number of fields rolled
+	 * @param game
+	 * @throws GameStateException
+	 */
+	public void playTurn(Hero hero, int moves, SimulatedGame game) throws GameStateException;
+}
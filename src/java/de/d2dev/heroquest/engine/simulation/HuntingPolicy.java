@@ -0,0 +1,179 @@
+package de.d2dev.heroquest.engine.simulation;
+
+import java.util.Arrays;
+
+import de.d2dev.fourseasons.gamestate.GameStateException;
+import de.d2dev.heroquest.engine.game.Field;
+import de.d2dev.heroquest.engine.game.Hero;
+import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.Neighbourhood;
+import de.d2dev.heroquest.engine.game.OccupancyGrid;
+import de.d2dev.heroquest.engine.game.Unit;
+import de.d2dev.heroquest.engine.game.action.AttackAction;
+import de.d2dev.heroquest.engine.game.action.MoveAction;
+
+/**
+ * A simple hero policy: attack a monster standing next to the hero, otherwise walk
+ * towards the nearest monster (opening the doors on the way) and attack it once there.
+ * The nearest monster is found by a breadth first search over the fields that are
+ * not walls or objects, closed doors count as free.
+ * @author Sebastian Bordt
+ *
+ */
+public class HuntingPolicy implements HeroPolicy {
+	
+	public static final HeroPolicy.Factory FACTORY = new HeroPolicy.Factory() {
+		
+		@Override
+		public HeroPolicy createPolicy(Map map) {
+			return new HuntingPolicy( map );
+		}
+	};
+	
+	private final Map map;
+	private final OccupancyGrid occupancy;
+	private final Neighbourhood neighbourhood;
+	
+	/*
+	 * search buffers, reused for every search
+	 */
+	private final int[] queue;
+	private final int[] parent;
+	private final byte[] slot;
+	private final int[] seen;
+	private int generation = 0;
+	private int[] path = new int[16];
+	
+	public HuntingPolicy(Map map) {
+		this.map = map;
+		this.occupancy = map.getOccupancy();
+		this.neighbourhood = map.getNeighbourhood();
+		
+		int capacity = this.occupancy.getIndexCapacity();
+		
+		this.queue = new int[capacity];
+		this.parent = new int[capacity];
+		this.slot = new byte[capacity];
+		this.seen = new int[capacity];
+	}
+
+	@Override
+	public void playTurn(Hero hero, int moves, SimulatedGame game) throws GameStateException {
+		if ( this.attackNeighbour( hero, game ) )
+			return;
+		
+		int goal = this.searchMonster( hero.getField().getIndex() );
+		
+		if ( goal < 0 )	// no monster to be reached
+			return;
+		
+		int length = this.reconstruct( goal );
+		
+		for (int i=1; i<length && moves > 0; i++) {
+			Field next = this.map.getField( this.path[i] );
+			
+			if ( next.isDoor() && next.getDoor().isClosed() )
+				next.getDoor().open();
+			
+			if ( next.isBlocked() )
+				break;
+			
+			game.execute( new MoveAction( hero, Neighbourhood.getDirection( this.slot[ this.path[i] ] ) ) );
+			moves--;
+		}
+		
+		this.attackNeighbour( hero, game );
+	}
+	
+	/**************************************************************************************
+	 * 
+	 * 										PRIVATE
+	 * 
+	 **************************************************************************************/
+	
+	private boolean attackNeighbour(Hero hero, SimulatedGame game) throws GameStateException {
+		Unit monster = this.getNeighbouringMonster( hero.getField().getIndex() );
+		
+		if ( monster == null )
+			return false;
+		
+		game.execute( new AttackAction( hero, monster ) );
+		
+		return true;
+	}
+	
+	private Unit getNeighbouringMonster(int index) {
+		for (int k : Neighbourhood.getSlots( this.neighbourhood.getMask( index ) & Neighbourhood.DIRECT )) {
+			int neighbour = this.neighbourhood.getNeighbour( index, k );
+			
+			if ( this.occupancy.hasUnit( neighbour ) ) {
+				Unit unit = this.map.getField( neighbour ).getUnit();
+				
+				if ( unit.isMonster() )
+					return unit;
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * @return the nearest field next to a monster, -1 if there is none
+	 */
+	private int searchMonster(int start) {
+		if ( ++this.generation == 0 ) {
+			Arrays.fill( this.seen, 0 );
+			this.generation = 1;
+		}
+		
+		int head = 0, tail = 0;
+		
+		this.queue[tail++] = start;
+		this.parent[start] = -1;
+		this.seen[start] = this.generation;
+		
+		while ( head < tail ) {
+			int actual = this.queue[head++];
+			
+			if ( this.getNeighbouringMonster( actual ) != null )
+				return actual;
+			
+			for (int k : Neighbourhood.getSlots( this.neighbourhood.getMask( actual ) & Neighbourhood.DIRECT )) {
+				int neighbour = this.neighbourhood.getNeighbour( actual, k );
+				
+				if ( this.seen[neighbour] == this.generation || this.occupancy.isObstacle( neighbour ) || this.occupancy.hasUnit( neighbour ) )
+					continue;
+				
+				this.seen[neighbour] = this.generation;
+				this.parent[neighbour] = actual;
+				this.slot[neighbour] = (byte) k;
+				this.queue[tail++] = neighbour;
+			}
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Write the path to the goal into {@link #path}, the start first.
+	 * @return the length of the path
+	 */
+	private int reconstruct(int goal) {
+		int length = 0;
+		
+		for (int index = goal; index >= 0; index = this.parent[index])
+			length++;
+		
+		if ( this.path.length < length )
+			this.path = new int[ Math.max( length, this.path.length * 2 ) ];
+		
+		int index = goal;
+		
+		for (int i=length-1; i>=0; i--) {
+			this.path[i] = index;
+			index = this.parent[index];
+		}
+		
+		return length;
+	}
+}
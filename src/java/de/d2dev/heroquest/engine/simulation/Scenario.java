@@ -0,0 +1,164 @@
+package de.d2dev.heroquest.engine.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import nu.xom.Element;
+
+import com.google.common.base.Preconditions;
+
+import de.d2dev.fourseasons.gamestate.GameStateException;
+import de.d2dev.heroquest.engine.ai.AISystem;
+import de.d2dev.heroquest.engine.files.HqMapFile;
+import de.d2dev.heroquest.engine.game.Field;
+import de.d2dev.heroquest.engine.game.Hero;
+import de.d2dev.heroquest.engine.game.Hero.HeroType;
+import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.Monster;
+import de.d2dev.heroquest.engine.game.Monster.MonsterType;
+import de.d2dev.heroquest.engine.game.UnitFactory;
+
+/**
+ * The start position of a simulated game: the map (as xml, units are not part of it)
+ * and where the heroes and monsters stand. Every game gets its own {@link Map} created
+ * from the scenario, so any number of games can run at once.
+ * @author Sebastian Bordt
+ *
+ */
+public class Scenario {
+	
+	/**
+	 * A unit to be placed on the map.
+	 */
+	private static class Placement {
+		
+		private final int x;
+		private final int y;
+		private final HeroType heroType;
+		private final MonsterType monsterType;
+		
+		private Placement(int x, int y, HeroType heroType, MonsterType monsterType) {
+			this.x = x;
+			this.y = y;
+			this.heroType = heroType;
+			this.monsterType = monsterType;
+		}
+	}
+	
+	private final Element xml;
+	
+	/*
+	 * xom nodes are not thread safe, each thread reads its own copy
+	 */
+	private final ThreadLocal<Element> copies = new ThreadLocal<Element>() {
+		@Override
+		protected Element initialValue() {
+			synchronized ( Scenario.this.xml ) {
+				return (Element) Scenario.this.xml.copy();
+			}
+		}
+	};
+	
+	private final List<Placement> placements = new ArrayList<Placement>();
+	
+	/**
+	 * A scenario starting like the given map, including its heroes and monsters.
+	 * @param map e.g. created by a lua map template
+	 */
+	public Scenario(Map map) {
+		this.xml = map.toXML();
+		
+		for (Hero hero : map.getHeroes()) {
+			this.addHero( hero.getHeroType(), hero.getField().getX(), hero.getField().getY() );
+		}
+		
+		for (Monster monster : map.getMonsters()) {
+			this.addMonster( monster.getMonsterType(), monster.getField().getX(), monster.getField().getY() );
+		}
+	}
+	
+	/**
+	 * A scenario on the map of the given file, without any units.
+	 * @param file
+	 */
+	public Scenario(HqMapFile file) {
+		this.xml = file.map.getRootElement();
+	}
+	
+	public Scenario addHero(HeroType type, int x, int y) {
+		Preconditions.checkNotNull( type );
+		this.placements.add( new Placement( x, y, type, null ) );
+		
+		return this;
+	}
+	
+	public Scenario addMonster(MonsterType type, int x, int y) {
+		Preconditions.checkNotNull( type );
+		this.placements.add( new Placement( x, y, null, type ) );
+		
+		return this;
+	}
+	
+	public int getNumHeroes() {
+		int n = 0;
+		
+		for (Placement placement : this.placements) {
+			if ( placement.heroType != null )
+				n++;
+		}
+		
+		return n;
+	}
+	
+	public int getNumMonsters() {
+		return this.placements.size() - this.getNumHeroes();
+	}
+	
+	/**************************************************************************************
+	 * 
+	 * 										SETUP
+	 * 
+	 **************************************************************************************/
+	
+	/**
+	 * Create a new map without units. May be called from any thread.
+	 * @return
+	 */
+	public Map createMap() {
+		return new Map( this.copies.get() );
+	}
+	
+	/**
+	 * Place the heroes and the monsters on a map created by {@link #createMap()}.
+	 * @param map
+	 * @param aiSystem controls the monsters
+	 * @throws GameStateException if a unit stands on a blocked field
+	 */
+	public void placeUnits(Map map, AISystem aiSystem) throws GameStateException {
+		UnitFactory factory = new UnitFactory();
+		
+		for (Placement placement : this.placements) {
+			Field field = map.getField( placement.x, placement.y );
+			
+			if ( placement.monsterType != null ) {
+				factory.createMonster( field, placement.monsterType, aiSystem );
+				continue;
+			}
+			
+			switch ( placement.heroType ) {
+			case BARBARIAN:
+				factory.createBarbarian( field );
+				break;
+			case DWARF:
+				factory.createDwarf( field );
+				break;
+			case ALB:
+				factory.createAlb( field );
+				break;
+			case WIZARD:
+				factory.createWizard( field );
+				break;
+			}
+		}
+	}
+}
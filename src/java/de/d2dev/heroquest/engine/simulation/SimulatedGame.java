@@ -0,0 +1,208 @@
+package de.d2dev.heroquest.engine.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.d2dev.fourseasons.gamestate.GameStateException;
+import de.d2dev.heroquest.engine.ai.AISystem;
+import de.d2dev.heroquest.engine.game.Hero;
+import de.d2dev.heroquest.engine.game.Map;
+import de.d2dev.heroquest.engine.game.Monster;
+import de.d2dev.heroquest.engine.game.SplittableDice;
+import de.d2dev.heroquest.engine.game.action.AttackAction;
+import de.d2dev.heroquest.engine.game.action.GameAction;
+import de.d2dev.heroquest.engine.game.classical.ClassicalGameContext;
+
+/**
+ * A single game played without rendering, sound or user input: the heroes are played by
+ * a {@link HeroPolicy}, the monsters by an {@link AISystem}. Heroes and monsters take
+ * turns until one side is gone or the maximum number of rounds has been played. The dice
+ * are seeded, so the same seed plays the same game.
+ * @author Sebastian Bordt
+ *
+ */
+public class SimulatedGame {
+	
+	public enum Result {
+		HEROES_WON,
+		MONSTERS_WON,
+		DRAW,
+	}
+	
+	private final Map map;
+	private final ClassicalGameContext context;
+	private final AISystem aiSystem;
+	private final HeroPolicy policy;
+	private final int maxRounds;
+	
+	private Result result = null;
+	private int rounds = 0;
+	
+	/*
+	 * Time spent in the phases of the game
+	 */
+	private long setupNanos;
+	private long heroesNanos = 0;
+	private long planningNanos = 0;
+	private long monstersNanos = 0;
+	
+	public SimulatedGame(Scenario scenario, HeroPolicy.Factory policies, long seed, int maxRounds) throws GameStateException {
+		long start = System.nanoTime();
+		
+		this.map = scenario.createMap();
+		this.context = new ClassicalGameContext( this.map, new SplittableDice( seed ) );
+		this.map.setContext( this.context );
+		
+		this.aiSystem = new AISystem( this.map );
+		scenario.placeUnits( this.map, this.aiSystem );
+		
+		this.policy = policies.createPolicy( this.map );
+		this.maxRounds = maxRounds;
+		
+		this.setupNanos = System.nanoTime() - start;
+	}
+	
+	/**************************************************************************************
+	 * 
+	 * 										PLAY
+	 * 
+	 **************************************************************************************/
+	
+	/**
+	 * Play the game to its end.
+	 * @return
+	 * @throws GameStateException
+	 */
+	public Result play() throws GameStateException {
+		while ( this.result == null ) {
+			this.rounds++;
+			
+			this.heroesRound();
+			
+			if ( this.map.getMonsters().isEmpty() ) {
+				this.result = Result.HEROES_WON;
+				break;
+			}
+			
+			this.monstersRound();
+			
+			if ( this.map.getHeroes().isEmpty() ) {
+				this.result = Result.MONSTERS_WON;
+				break;
+			}
+			
+			if ( this.rounds >= this.maxRounds ) {
+				this.result = Result.DRAW;
+			}
+		}
+		
+		return this.result;
+	}
+	
+	/**
+	 * Execute an action of a hero or a monster. Attacks on units that have died
+	 * meanwhile are dropped.
+	 * @param action
+	 * @throws GameStateException
+	 */
+	public void execute(GameAction action) throws GameStateException {
+		if ( action instanceof AttackAction && ( (AttackAction) action ).getUnitToAttack().getField() == null )
+			return;
+		
+		this.context.execute( action );
+	}
+	
+	private void heroesRound() throws GameStateException {
+		long start = System.nanoTime();
+		
+		for (Hero hero : new ArrayList<Hero>( this.map.getHeroes() )) {
+			int moves = 0;
+			
+			for (int i=0; i<hero.getDiceTempo(); i++) {
+				moves += this.context.rollW6() + 1;
+			}
+			
+			this.policy.playTurn( hero, moves, this );
+			
+			if ( this.map.getMonsters().isEmpty() )
+				break;
+		}
+		
+		this.heroesNanos += System.nanoTime() - start;
+	}
+	
+	private void monstersRound() {
+		this.aiSystem.startMonstersRound();
+		
+		Monster monster;
+		
+		while ( ( monster = this.aiSystem.getNextMonster() ) != null ) {
+			List<GameAction> actions = this.aiSystem.getActions( monster );
+			
+			try {
+				for (GameAction action : actions) {
+					this.execute( action );
+				}
+			} catch (GameStateException e) {
+				// the way is blocked - the monster stops here
+			}
+			
+			if ( this.map.getHeroes().isEmpty() )
+				break;
+		}
+		
+		this.aiSystem.endMonstersRound();
+		
+		this.planningNanos += this.aiSystem.getPlanningNanos();
+		this.monstersNanos += this.aiSystem.getRoundNanos() - this.aiSystem.getPlanningNanos();
+	}
+	
+	/**************************************************************************************
+	 * 
+	 * 										RESULTS
+	 * 
+	 **************************************************************************************/
+	
+	public Map getMap() {
+		return this.map;
+	}
+	
+	public ClassicalGameContext getContext() {
+		return this.context;
+	}
+	
+	/**
+	 * @return {@code null} if the game has not been played yet
+	 */
+	public Result getResult() {
+		return this.result;
+	}
+	
+	public int getRounds() {
+		return this.rounds;
+	}
+	
+	public long getSetupNanos() {
+		return this.setupNanos;
+	}
+	
+	public long getHeroesNanos() {
+		return this.heroesNanos;
+	}
+	
+	/**
+	 * Time the {@link AISystem} spent planning at the start of the monsters rounds.
+	 * @return
+	 */
+	public long getPlanningNanos() {
+		return this.planningNanos;
+	}
+	
+	/**
+	 * Time spent in the monsters rounds, besides planning.
+	 * @return
+	 */
+	public long getMonstersNanos() {
+		return this.monstersNanos;
+	}
+}
@@ -0,0 +1,152 @@
+package de.d2dev.heroquest.engine.simulation;
+
+/**
+ * Summary of many simulated games: results, games per second and the time spent in the
+ * phases of the games (summed up over all games and threads).
+ * @author Sebastian Bordt
+ *
+ */
+public class SimulationReport {
+	
+	private int games = 0;
+	private int heroesWon = 0;
+	private int monstersWon = 0;
+	private int draws = 0;
+	private int failed = 0;
+	private long rounds = 0;
+	
+	private long setupNanos = 0;
+	private long heroesNanos = 0;
+	private long planningNanos = 0;
+	private long monstersNanos = 0;
+	
+	private long wallNanos = 0;
+	private int threads = 0;
+	
+	SimulationReport(int threads) {
+		this.threads = threads;
+	}
+	
+	void add(SimulatedGame game) {
+		this.games++;
+		this.rounds += game.getRounds();
+		
+		switch ( game.getResult() ) {
+		case HEROES_WON:
+			this.heroesWon++;
+			break;
+		case MONSTERS_WON:
+			this.monstersWon++;
+			break;
+		case DRAW:
+			this.draws++;
+			break;
+		}
+		
+		this.setupNanos += game.getSetupNanos();
+		this.heroesNanos += game.getHeroesNanos();
+		this.planningNanos += game.getPlanningNanos();
+		this.monstersNanos += game.getMonstersNanos();
+	}
+	
+	void addFailed() {
+		this.failed++;
+	}
+	
+	void setWallNanos(long wallNanos) {
+		this.wallNanos = wallNanos;
+	}
+	
+	/**************************************************************************************
+	 * 
+	 * 										RESULTS
+	 * 
+	 **************************************************************************************/
+	
+	/**
+	 * Number of games played to the end.
+	 * @return
+	 */
+	public int getGames() {
+		return this.games;
+	}
+	
+	public int getHeroesWon() {
+		return this.heroesWon;
+	}
+	
+	public int getMonstersWon() {
+		return this.monstersWon;
+	}
+	
+	public int getDraws() {
+		return this.draws;
+	}
+	
+	/**
+	 * Number of games that could not be set up or were aborted by a {@link de.d2dev.fourseasons.gamestate.GameStateException}.
+	 * @return
+	 */
+	public int getFailed() {
+		return this.failed;
+	}
+	
+	public double getHeroesWinRate() {
+		return this.games == 0 ? 0.0 : (double) this.heroesWon / this.games;
+	}
+	
+	public double getMonstersWinRate() {
+		return this.games == 0 ? 0.0 : (double) this.monstersWon / this.games;
+	}
+	
+	public double getAverageRounds() {
+		return this.games == 0 ? 0.0 : (double) this.rounds / this.games;
+	}
+	
+	public double getGamesPerSecond() {
+		return this.wallNanos == 0 ? 0.0 : this.games * 1e9 / this.wallNanos;
+	}
+	
+	public long getWallNanos() {
+		return this.wallNanos;
+	}
+	
+	public int getThreads() {
+		return this.threads;
+	}
+	
+	public long getSetupNanos() {
+		return this.setupNanos;
+	}
+	
+	public long getHeroesNanos() {
+		return this.heroesNanos;
+	}
+	
+	public long getPlanningNanos() {
+		return this.planningNanos;
+	}
+	
+	public long getMonstersNanos() {
+		return this.monstersNanos;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		
+		builder.append( String.format( "%d games (%d failed) in %.2fs on %d threads: %.1f games/s%n",
+				this.games, this.failed, this.wallNanos / 1e9, this.threads, this.getGamesPerSecond() ) );
+		builder.append( String.format( "heroes won %.1f%%, monsters won %.1f%%, draws %.1f%%, %.1f rounds per game%n",
+				100.0 * this.getHeroesWinRate(), 100.0 * this.getMonstersWinRate(),
+				this.games == 0 ? 0.0 : 100.0 * this.draws / this.games, this.getAverageRounds() ) );
+		builder.append( String.format( "time per game: setup %.3fms, heroes %.3fms, monster planning %.3fms, monster actions %.3fms",
+				perGame( this.setupNanos ), perGame( this.heroesNanos ), perGame( this.planningNanos ), perGame( this.monstersNanos ) ) );
+		
+		return builder.toString();
+	}
+	
+	private double perGame(long nanos) {
+		return this.games == 0 ? 0.0 : nanos / 1e6 / this.games;
+	}
+}
@@ -0,0 +1,131 @@
+package de.d2dev.heroquest.engine.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import com.google.common.base.Preconditions;
+
+import de.d2dev.heroquest.engine.game.SplittableDice;
+
+/**
+ * Plays many independent games of a {@link Scenario} on all cores, e.g. to balance the
+ * heroes and monsters. Every game has its own map, ai system and dice; the seeds of the
+ * games are derived from one seed, so a run can be repeated.
+ * @author Sebastian Bordt
+ *
+ */
+public class Simulator {
+	
+	public static final int DEFAULT_MAX_ROUNDS = 100;
+	
+	private final Scenario scenario;
+	private final HeroPolicy.Factory policies;
+	
+	private int maxRounds = DEFAULT_MAX_ROUNDS;
+	private int threads = 0;
+	
+	public Simulator(Scenario scenario, HeroPolicy.Factory policies) {
+		Preconditions.checkNotNull( scenario );
+		Preconditions.checkNotNull( policies );
+		
+		this.scenario = scenario;
+		this.policies = policies;
+	}
+	
+	/**
+	 * @param maxRounds after this many rounds a game is a draw
+	 */
+	public void setMaxRounds(int maxRounds) {
+		Preconditions.checkArgument( maxRounds > 0 );
+		this.maxRounds = maxRounds;
+	}
+	
+	public int getMaxRounds() {
+		return this.maxRounds;
+	}
+	
+	/**
+	 * @param threads number of threads playing games, 0 for one per processor
+	 */
+	public void setThreads(int threads) {
+		Preconditions.checkArgument( threads >= 0 );
+		this.threads = threads;
+	}
+	
+	public int getThreads() {
+		return this.threads;
+	}
+	
+	/**************************************************************************************
+	 * 
+	 * 										RUN
+	 * 
+	 **************************************************************************************/
+	
+	/**
+	 * Play a number of games and wait for all of them.
+	 * @param games
+	 * @param seed
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public SimulationReport run(int games, long seed) throws InterruptedException {
+		Preconditions.checkArgument( games >= 0 );
+		
+		int numThreads = this.threads > 0 ? this.threads : Runtime.getRuntime().availableProcessors();
+		
+		ExecutorService executor = Executors.newFixedThreadPool( numThreads, new ThreadFactory() {
+			
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread( r, "game simulation" );
+				thread.setDaemon( true );
+				
+				return thread;
+			}
+		});
+		
+		SimulationReport report = new SimulationReport( numThreads );
+		SplittableDice seeds = new SplittableDice( seed );
+		List<Future<SimulatedGame>> futures = new ArrayList<Future<SimulatedGame>>( games );
+		
+		long start = System.nanoTime();
+		
+		try {
+			for (int i=0; i<games; i++) {
+				final long gameSeed = seeds.nextLong();
+				
+				futures.add( executor.submit( new Callable<SimulatedGame>() {
+					
+					@Override
+					public SimulatedGame call() throws Exception {
+						SimulatedGame game = new SimulatedGame( scenario, policies, gameSeed, maxRounds );
+						game.play();
+						
+						return game;
+					}
+				}));
+			}
+			
+			for (Future<SimulatedGame> future : futures) {
+				try {
+					report.add( future.get() );
+				} catch (ExecutionException e) {
+					report.addFailed();
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		
+		report.setWallNanos( System.nanoTime() - start );
+		
+		return report;
+	}
+}